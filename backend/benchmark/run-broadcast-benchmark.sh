@@ -0,0 +1,14 @@
+#!/usr/bin/env bash
+# Purpose: Reports bytes allocated per room broadcast for 10..10k subscribers, comparing the
+# stock simple-broker fan-out with the shared-frame broadcaster.
+#
+# Usage: benchmark/run-broadcast-benchmark.sh [subscriber counts...]
+
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+./mvnw -q -B test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt -Dmdep.includeScope=test
+
+java -Xmx2g -cp "target/test-classes:target/classes:$(cat target/test-classpath.txt)" \
+    -Dorg.slf4j.simpleLogger.defaultLogLevel=warn \
+    com.example.playlistcollaborator.benchmark.BroadcastAllocationBenchmark "$@"
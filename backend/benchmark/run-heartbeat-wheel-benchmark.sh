@@ -0,0 +1,14 @@
+#!/usr/bin/env bash
+# Purpose: Reports CPU time of the heartbeat wheel thread for 1k..100k idle sessions while the
+# same 1k sessions owe heartbeats, to check that idle connections cost the wheel nothing.
+#
+# Usage: benchmark/run-heartbeat-wheel-benchmark.sh [idle session counts...]
+
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+./mvnw -q -B test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt -Dmdep.includeScope=test
+
+java -Xmx2g -cp "target/test-classes:target/classes:$(cat target/test-classpath.txt)" \
+    -Dorg.slf4j.simpleLogger.defaultLogLevel=warn \
+    com.example.playlistcollaborator.benchmark.HeartbeatWheelBenchmark "$@"
@@ -0,0 +1,17 @@
+#!/usr/bin/env bash
+# Purpose: addSong handler throughput with logging in dev (sync text), async JSON, prod
+# (async JSON + per-message rate limiting) and off. Console output is drained through a
+# pipe, as a container log driver would, and counted: the async modes trade lines for throughput.
+#
+# Usage: benchmark/run-logging-benchmark.sh [threads] [seconds]
+
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+./mvnw -q -B test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt -Dmdep.includeScope=test
+
+for mode in dev async-json prod off; do
+    lines=$(java -Xmx1g -cp "target/test-classes:target/classes:$(cat target/test-classpath.txt)" \
+        com.example.playlistcollaborator.benchmark.LoggingThroughputBenchmark "$mode" "$@" | wc -l)
+    printf '%-12s %d log lines written\n' "$mode" "$lines" >&2
+done
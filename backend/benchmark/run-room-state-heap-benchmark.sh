@@ -0,0 +1,13 @@
+#!/usr/bin/env bash
+# Purpose: Reports retained heap for 100k in-memory room queues, comparing a list of
+# PlaylistSongDto per room with the column layout used by RoomState.
+#
+# Usage: benchmark/run-room-state-heap-benchmark.sh [rooms] [max songs per room]
+
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+./mvnw -q -B test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt -Dmdep.includeScope=test
+
+java -Xmx2g -XX:+UseSerialGC -cp "target/test-classes:target/classes:$(cat target/test-classpath.txt)" \
+    com.example.playlistcollaborator.benchmark.RoomStateHeapBenchmark "$@"
@@ -0,0 +1,33 @@
+#!/usr/bin/env bash
+# Purpose: Compares time-to-first-message (JVM launch -> STOMP CONNECTED) for the backend
+# with and without an AppCDS archive, using the same layout the Dockerfile builds.
+#
+# Usage: benchmark/run-startup-benchmark.sh [iterations]
+# Needs a reachable PostgreSQL unless the extra app args below keep the database untouched.
+
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+ITERATIONS="${1:-5}"
+WORK_DIR=target/startup-benchmark
+# Same settings as the Dockerfile training run: boots without touching the database
+APP_ARGS="--spring.profiles.active=fast-startup --spring.flyway.enabled=false --spring.datasource.password= --youtube.apikey=benchmark"
+
+./mvnw -q -B package -DskipTests
+./mvnw -q -B test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt -Dmdep.includeScope=test
+
+rm -rf "$WORK_DIR" && mkdir -p "$WORK_DIR"
+cp target/playlist-collaborator-*-SNAPSHOT.jar "$WORK_DIR/application.jar"
+java -Djarmode=tools -jar "$WORK_DIR/application.jar" extract --destination "$WORK_DIR/application"
+WORK_DIR="$WORK_DIR/application"
+
+# Training run, exactly as in the Dockerfile
+java -XX:ArchiveClassesAtExit="$WORK_DIR/application.jsa" -Dspring.context.exit=onRefresh \
+    -jar "$WORK_DIR/application.jar" $APP_ARGS > "$WORK_DIR/training.log" 2>&1
+
+java -cp "target/test-classes:$(cat target/test-classpath.txt)" \
+    -Dbenchmark.appArgs="$APP_ARGS" \
+    com.example.playlistcollaborator.benchmark.StartupBenchmark "$WORK_DIR/application.jar" "$ITERATIONS" \
+    "no-cds=-Xshare:off" \
+    "default-cds=" \
+    "appcds=-XX:SharedArchiveFile=$WORK_DIR/application.jsa"
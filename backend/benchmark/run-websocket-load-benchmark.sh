@@ -0,0 +1,21 @@
+#!/usr/bin/env bash
+# Purpose: Compares broadcast throughput and CPU cost of the raw WebSocket endpoint (with and
+# without permessage-deflate) against the SockJS fallback, with many clients in one room.
+#
+# Usage: benchmark/run-websocket-load-benchmark.sh [variants...]
+# Client and message counts: -Dbenchmark.clients / -Dbenchmark.messages via JAVA_OPTS.
+
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+# Boots without touching the database (same arguments as the startup benchmark)
+APP_ARGS="--spring.profiles.active=fast-startup --spring.flyway.enabled=false --spring.datasource.password= --youtube.apikey=benchmark"
+
+./mvnw -q -B package -DskipTests
+./mvnw -q -B test-compile dependency:build-classpath -Dmdep.outputFile=target/test-classpath.txt -Dmdep.includeScope=test
+
+java ${JAVA_OPTS:-} -cp "target/test-classes:target/classes:$(cat target/test-classpath.txt)" \
+    -Dorg.slf4j.simpleLogger.defaultLogLevel=warn \
+    -Dbenchmark.appArgs="$APP_ARGS" \
+    com.example.playlistcollaborator.benchmark.WebSocketLoadBenchmark \
+    "$(ls target/playlist-collaborator-*-SNAPSHOT.jar)" "$@"
@@ -0,0 +1,84 @@
+// Purpose: Tracks open WebSocket sessions so heartbeats can be written to them directly.
+
+package com.example.playlistcollaborator.broadcast;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registered as a WebSocket handler decorator, so it sees every session before Spring's
+ * STOMP handler does. Each session is wrapped in a {@link ConcurrentWebSocketSessionDecorator}
+ * here, and heartbeats (see SessionHeartbeatMonitor) are written through that wrapper. Every
+ * write to the socket therefore goes through this wrapper's lock, so heartbeats and STOMP
+ * frames never write concurrently.
+ *
+ * The limits are not shared, though. SubProtocolWebSocketHandler wraps the session it is
+ * given in a ConcurrentWebSocketSessionDecorator of its own. STOMP frames, room broadcasts
+ * included, are buffered and timed there first, then again here. Both use the
+ * playlist.websocket.send-* values, but each counts separately, so a session can hit either
+ * limit on its own.
+ *
+ * Session ids are the same ids the STOMP layer puts in the simpSessionId header.
+ */
+@Component
+@Slf4j
+public class BroadcastSessionRegistry implements WebSocketHandlerDecoratorFactory {
+
+    private final int sendTimeLimitMillis;
+    private final int sendBufferSizeLimit;
+    private final ConcurrentHashMap<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+
+    public BroadcastSessionRegistry(
+            @Value("${playlist.websocket.send-time-limit-ms:10000}") int sendTimeLimitMillis,
+            @Value("${playlist.websocket.send-buffer-size-limit:524288}") int sendBufferSizeLimit) {
+        this.sendTimeLimitMillis = sendTimeLimitMillis;
+        this.sendBufferSizeLimit = sendBufferSizeLimit;
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                WebSocketSession concurrent = new ConcurrentWebSocketSessionDecorator(
+                        session, sendTimeLimitMillis, sendBufferSizeLimit);
+                sessions.put(session.getId(), concurrent);
+                super.afterConnectionEstablished(concurrent);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                WebSocketSession concurrent = sessions.remove(session.getId());
+                super.afterConnectionClosed(concurrent != null ? concurrent : session, closeStatus);
+            }
+        };
+    }
+
+    /**
+     * @param sessionId The WebSocket (and STOMP) session id.
+     * @return The session's shared send wrapper, or null if it is not open.
+     */
+    public WebSocketSession getSession(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    /**
+     * @return Number of open WebSocket sessions.
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    void register(WebSocketSession session) {
+        sessions.put(session.getId(), session);
+    }
+}
@@ -0,0 +1,155 @@
+// Purpose: Executor of the client outbound channel that hands each session its frames one at a time, in publish order.
+
+package com.example.playlistcollaborator.broadcast;
+
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.broker.OrderedMessageChannelDecorator;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Every frame for a session goes through the client outbound channel: room broadcasts
+ * (see {@link SharedFrameBroadcaster}), @SubscribeMapping replies, /user/queue/errors
+ * replies, RECEIPTs and CONNECTED. The channel hands each message to this executor on
+ * the publishing thread, so queuing it on its session's lane right there keeps publish
+ * order. Messages without a session id run directly on the pool.
+ *
+ * A lane hands its next message to the pool once the current one is in the session's
+ * send buffer, not once it is on the wire. This is the same hook Spring's
+ * preservePublishOrder uses: StompSubProtocolHandler sets the task found under
+ * {@link #NEXT_MESSAGE_TASK_HEADER} as the message callback of the session's
+ * ConcurrentWebSocketSessionDecorator, which runs it right after buffering. So a slow
+ * socket holds one pool thread (the one flushing it), never its lane. Later frames pile
+ * up in the decorator's buffer, and its send time and buffer size limits close the
+ * session as they would on the stock path. A message that is dropped before reaching
+ * the buffer releases its lane when handling ends.
+ *
+ * A lane exists only while one of its messages is being handed off, so sessions need
+ * no registration or cleanup.
+ */
+public class OutboundSessionLanes extends ThreadPoolTaskExecutor implements ExecutorChannelInterceptor {
+
+    // Read by StompSubProtocolHandler via OrderedMessageChannelDecorator.getNextMessageTask
+    static final String NEXT_MESSAGE_TASK_HEADER = "simpNextMessageTask";
+
+    private final ConcurrentHashMap<String, ArrayDeque<Runnable>> lanes = new ConcurrentHashMap<>();
+
+    public OutboundSessionLanes() {
+        // The defaults Spring uses for the client outbound channel's own executor
+        setCorePoolSize(Runtime.getRuntime().availableProcessors() * 2);
+        setAllowCoreThreadTimeOut(true);
+        setThreadNamePrefix("clientOutboundChannel-");
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId == null) {
+            return message;
+        }
+        SimpMessageHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, SimpMessageHeaderAccessor.class);
+        if (accessor != null && accessor.isMutable()) {
+            accessor.setHeader(NEXT_MESSAGE_TASK_HEADER, new Release(sessionId));
+            return message;
+        }
+        accessor = SimpMessageHeaderAccessor.wrap(message);
+        accessor.setHeader(NEXT_MESSAGE_TASK_HEADER, new Release(sessionId));
+        return MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders());
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        Release release = task instanceof MessageHandlingRunnable
+                ? releaseOf(((MessageHandlingRunnable) task).getMessage()) : null;
+        if (release == null) {
+            super.execute(task);
+            return;
+        }
+        // Creating the lane means nothing of this session is in progress, so the task starts now
+        boolean[] start = new boolean[1];
+        lanes.compute(release.sessionId, (id, lane) -> {
+            if (lane == null) {
+                start[0] = true;
+                return new ArrayDeque<>();
+            }
+            lane.add(task);
+            return lane;
+        });
+        if (start[0] && !dispatch(task, release)) {
+            throw new TaskRejectedException("Outbound executor rejected a message for session " + release.sessionId);
+        }
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        Release release = releaseOf(message);
+        if (release != null) {
+            release.run();
+        }
+    }
+
+    /**
+     * @return Number of sessions with a message being handed off.
+     */
+    public int getActiveLaneCount() {
+        return lanes.size();
+    }
+
+    // --- Helper Methods ---
+
+    private static Release releaseOf(Message<?> message) {
+        Runnable task = OrderedMessageChannelDecorator.getNextMessageTask(message);
+        return task instanceof Release ? (Release) task : null;
+    }
+
+    private boolean dispatch(Runnable task, Release release) {
+        try {
+            super.execute(task);
+            return true;
+        } catch (TaskRejectedException e) {
+            release.run(); // E.g. during shutdown: the message is dropped, the rest of its lane is not stranded
+            return false;
+        }
+    }
+
+    private void startNext(String sessionId) {
+        Runnable[] next = new Runnable[1];
+        lanes.computeIfPresent(sessionId, (id, lane) -> {
+            next[0] = lane.poll();
+            return next[0] != null ? lane : null; // An empty lane is removed
+        });
+        if (next[0] != null) {
+            dispatch(next[0], releaseOf(((MessageHandlingRunnable) next[0]).getMessage()));
+        }
+    }
+
+    /**
+     * Lets the next message of the session go, the first time it runs.
+     */
+    private final class Release implements Runnable {
+        private final String sessionId;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Release(String sessionId) {
+            this.sessionId = sessionId;
+        }
+
+        @Override
+        public void run() {
+            if (released.compareAndSet(false, true)) {
+                startNext(sessionId);
+            }
+        }
+    }
+}
@@ -0,0 +1,257 @@
+// Purpose: Fans room broadcasts out to subscribers from a single encoded STOMP frame.
+
+package com.example.playlistcollaborator.broadcast;
+
+import com.example.playlistcollaborator.flightrecorder.BroadcastEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.broker.SubscriptionRegistry;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.messaging.StompSubProtocolHandler;
+import org.springframework.web.socket.messaging.SubProtocolHandler;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Interceptor on the broker channel for "/topic/room/**" messages, i.e. everything
+ * sent by @SendTo handlers and SimpMessagingTemplate to a room.
+ *
+ * The default path clones the message for every subscriber and StompSubProtocolHandler
+ * encodes a new STOMP frame for each one. Here the JSON payload (already serialized once
+ * by the message converter) is framed once per distinct subscription id. Browsers using
+ * stomp.js mostly share the same ids, so in practice that is one frame per broadcast.
+ *
+ * Each subscriber still gets its own message on the client outbound channel, carrying the
+ * shared frame under {@link #SHARED_FRAME_HEADER}, and {@link SharedFrameEncoder} (installed
+ * on the STOMP handler) returns those bytes instead of encoding again. Room frames therefore
+ * take the same path as every other frame for the session: they are ordered with
+ * @SubscribeMapping replies, /user/queue/errors replies and RECEIPTs by
+ * {@link OutboundSessionLanes}, buffered and limited by the session's send decorator, and
+ * sent as text frames like any other JSON frame. Each session's TextMessage still decodes
+ * the shared bytes once, which is what the stock path does too.
+ *
+ * Messages this does not handle (non-room destinations, non-byte[] payloads) fall
+ * through to the simple broker unchanged. Handled ones are passed on under
+ * {@link #HANDLED_DESTINATION_PREFIX}, outside the broker's "/topic" and "/queue" prefixes.
+ */
+@Component
+@Slf4j
+public class SharedFrameBroadcaster implements ChannelInterceptor, SmartInitializingSingleton {
+
+    private static final String ROOM_TOPIC_PREFIX = "/topic/room/";
+    static final String HANDLED_DESTINATION_PREFIX = "/shared-frame-sent";
+    static final String SHARED_FRAME_HEADER = "sharedStompFrame";
+
+    private final ObjectProvider<SimpleBrokerMessageHandler> brokerProvider;
+    private final ObjectProvider<MessageChannel> clientOutboundChannelProvider;
+    private final ObjectProvider<WebSocketHandler> webSocketHandlerProvider;
+    private final boolean enabled;
+    private final StompEncoder stompEncoder = new StompEncoder();
+    private final AtomicLong messageIds = new AtomicLong();
+    private final Counter framesEncoded;
+    private final Counter deliveries;
+    private volatile SubscriptionRegistry subscriptionRegistry;
+    private volatile MessageChannel clientOutboundChannel;
+    private volatile boolean encoderInstalled;
+
+    @Autowired
+    public SharedFrameBroadcaster(
+            ObjectProvider<SimpleBrokerMessageHandler> brokerProvider,
+            @Qualifier("clientOutboundChannel") ObjectProvider<MessageChannel> clientOutboundChannelProvider,
+            @Qualifier("subProtocolWebSocketHandler") ObjectProvider<WebSocketHandler> webSocketHandlerProvider,
+            @Value("${playlist.broadcast.shared-frames:true}") boolean enabled,
+            MeterRegistry meterRegistry) {
+        this.brokerProvider = brokerProvider;
+        this.clientOutboundChannelProvider = clientOutboundChannelProvider;
+        this.webSocketHandlerProvider = webSocketHandlerProvider;
+        this.enabled = enabled;
+        this.framesEncoded = Counter.builder("playlist.broadcast.frames-encoded")
+                .description("STOMP frames encoded for room broadcasts").register(meterRegistry);
+        this.deliveries = Counter.builder("playlist.broadcast.deliveries")
+                .description("Room broadcast frames handed to the client outbound channel").register(meterRegistry);
+    }
+
+    SharedFrameBroadcaster(SubscriptionRegistry subscriptionRegistry, MessageChannel clientOutboundChannel,
+                           MeterRegistry meterRegistry) {
+        this.brokerProvider = null;
+        this.clientOutboundChannelProvider = null;
+        this.webSocketHandlerProvider = null;
+        this.subscriptionRegistry = subscriptionRegistry;
+        this.clientOutboundChannel = clientOutboundChannel;
+        this.enabled = true;
+        this.encoderInstalled = true; // The caller encodes with SharedFrameEncoder itself
+        this.framesEncoded = Counter.builder("playlist.broadcast.frames-encoded").register(meterRegistry);
+        this.deliveries = Counter.builder("playlist.broadcast.deliveries").register(meterRegistry);
+    }
+
+    /**
+     * Installs {@link SharedFrameEncoder} on the STOMP handler. Its endpoint registry adds the
+     * handler only after the WebSocket handler bean is created, so this waits for all singletons.
+     * Until it runs (or if no STOMP handler is found), room messages take the default path.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        WebSocketHandler handler = webSocketHandlerProvider != null ? webSocketHandlerProvider.getIfAvailable() : null;
+        if (!enabled || !(handler instanceof SubProtocolWebSocketHandler)) {
+            return;
+        }
+        for (SubProtocolHandler protocolHandler : ((SubProtocolWebSocketHandler) handler).getProtocolHandlers()) {
+            if (protocolHandler instanceof StompSubProtocolHandler) {
+                ((StompSubProtocolHandler) protocolHandler).setEncoder(new SharedFrameEncoder());
+                encoderInstalled = true;
+            }
+        }
+        if (!encoderInstalled) {
+            log.warn("No STOMP handler found; room broadcasts use the default per-subscriber encoding");
+        }
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (!enabled || !encoderInstalled
+                || SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return message;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination == null || !destination.startsWith(ROOM_TOPIC_PREFIX) || !(message.getPayload() instanceof byte[])) {
+            return message;
+        }
+        SubscriptionRegistry registry = subscriptionRegistry();
+        MessageChannel outbound = clientOutboundChannel();
+        if (registry == null || outbound == null) {
+            return message;
+        }
+        broadcast(registry.findSubscriptions(message), message, outbound);
+
+        // Returning null would make SimpMessagingTemplate report a failed send, so the
+        // message continues under a prefix no broker serves and is dropped there
+        SimpMessageHeaderAccessor handled = SimpMessageHeaderAccessor.wrap(message);
+        handled.setDestination(HANDLED_DESTINATION_PREFIX + destination);
+        return MessageBuilder.createMessage(message.getPayload(), handled.getMessageHeaders());
+    }
+
+    /**
+     * Sends one message per subscription to the client outbound channel, encoding its STOMP
+     * frame once per distinct subscription id.
+     * @param subscriptions Session id to subscription ids, as found in the broker's registry.
+     * @param message The broker message; its payload must already be serialized.
+     * @param outbound The client outbound channel.
+     * @return Number of sessions the frame was handed to.
+     */
+    int broadcast(MultiValueMap<String, String> subscriptions, Message<?> message, MessageChannel outbound) {
+        if (subscriptions.isEmpty()) {
+            return 0;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        BroadcastEvent event = new BroadcastEvent(destination, ((byte[]) message.getPayload()).length);
+        String messageId = "b-" + messageIds.incrementAndGet();
+        Map<String, byte[]> frames = new HashMap<>();
+
+        int sessions = 0;
+        for (Map.Entry<String, List<String>> entry : subscriptions.entrySet()) {
+            for (String subscriptionId : entry.getValue()) {
+                byte[] frame = frames.computeIfAbsent(subscriptionId, id -> encode(message, id, messageId));
+                send(outbound, entry.getKey(), subscriptionId, destination, message, frame);
+            }
+            sessions++;
+        }
+        event.delivered(sessions, frames.size(), frames.values().stream().mapToLong(frame -> frame.length).sum());
+        event.finish();
+        return sessions;
+    }
+
+    // --- Helper Methods ---
+
+    private SubscriptionRegistry subscriptionRegistry() {
+        SubscriptionRegistry registry = subscriptionRegistry;
+        if (registry == null && brokerProvider != null) {
+            // Looked up lazily: the broker handler is created after the channel this interceptor is on
+            SimpleBrokerMessageHandler broker = brokerProvider.getIfAvailable();
+            if (broker != null) {
+                registry = broker.getSubscriptionRegistry();
+                subscriptionRegistry = registry;
+            }
+        }
+        return registry;
+    }
+
+    private MessageChannel clientOutboundChannel() {
+        MessageChannel channel = clientOutboundChannel;
+        if (channel == null && clientOutboundChannelProvider != null) {
+            channel = clientOutboundChannelProvider.getIfAvailable();
+            clientOutboundChannel = channel;
+        }
+        return channel;
+    }
+
+    private byte[] encode(Message<?> message, String subscriptionId, String messageId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+        SimpMessageHeaderAccessor source = SimpMessageHeaderAccessor.wrap(message);
+        Map<String, List<String>> nativeHeaders = source.toNativeHeaderMap();
+        nativeHeaders.forEach((name, values) -> values.forEach(value -> accessor.addNativeHeader(name, value)));
+        accessor.setDestination(source.getDestination());
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setMessageId(messageId);
+        MimeType contentType = source.getContentType();
+        if (contentType != null) {
+            accessor.setContentType(contentType);
+        }
+        byte[] bytes = stompEncoder.encode(MessageBuilder.createMessage((byte[]) message.getPayload(), accessor.getMessageHeaders()));
+        framesEncoded.increment();
+        return bytes;
+    }
+
+    private void send(MessageChannel outbound, String sessionId, String subscriptionId, String destination,
+                      Message<?> message, byte[] frame) {
+        // Only what routing and StompSubProtocolHandler look at; the frame itself is already encoded
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        accessor.setHeader(SHARED_FRAME_HEADER, frame);
+        accessor.setLeaveMutable(true); // Lets OutboundSessionLanes add its header without a copy
+        try {
+            outbound.send(MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders()));
+            deliveries.increment();
+        } catch (RuntimeException e) {
+            // Same as the default path: the broker logs and moves on to the next subscriber
+            log.debug("Broadcast to session {} failed: {}", sessionId, e.getMessage());
+        }
+    }
+
+    /**
+     * Encodes STOMP frames as usual, except room broadcast messages, whose frame was encoded
+     * once by {@link SharedFrameBroadcaster} and is returned as is.
+     */
+    public static class SharedFrameEncoder extends StompEncoder {
+
+        @Override
+        public byte[] encode(Map<String, Object> headers, byte[] payload) {
+            Object frame = headers.get(SHARED_FRAME_HEADER);
+            return frame instanceof byte[] ? (byte[]) frame : super.encode(headers, payload);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+// Purpose: Applies logged room commands to Postgres in batches and records how far it got.
+
+package com.example.playlistcollaborator.commandlog;
+
+import com.example.playlistcollaborator.entity.CommandLogCheckpoint;
+import com.example.playlistcollaborator.repository.CommandLogCheckpointRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Receives every command in sequence order (as the log's append listener) and, on
+ * each {@link #checkpointBatch()}, writes up to batchSize of them with JDBC batch
+ * statements in one transaction that also moves the checkpoint row forward. The
+ * database therefore always equals "everything up to the checkpoint", and recovery
+ * only has to replay the log from there.
+ *
+ * The checkpoint row is keyed by the log's id, so a checkpoint only ever applies to
+ * the log that wrote it.
+ *
+ * Inserts are idempotent (ON CONFLICT DO NOTHING) and deletes are naturally so, which
+ * keeps a replayed batch harmless even if it overlaps rows that are already present.
+ */
+@Slf4j
+public class CommandLogCheckpointer {
+
+    private static final String INSERT_SONG_SQL =
+            "INSERT INTO playlist_songs (id, title, artist, added_at, room_id, youtube_video_id, added_by_username, duration_seconds) "
+            + "SELECT ?, ?, ?, ?, r.id, ?, ?, ? FROM rooms r WHERE r.public_id = ? "
+            + "ON CONFLICT (id) DO NOTHING";
+    private static final String DELETE_SONG_SQL = "DELETE FROM playlist_songs WHERE id = ?";
+    private static final String UPSERT_CHECKPOINT_SQL =
+            "INSERT INTO command_log_checkpoints (log_id, last_sequence) VALUES (?, ?) "
+            + "ON CONFLICT (log_id) DO UPDATE SET last_sequence = EXCLUDED.last_sequence";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CommandLogCheckpointRepository checkpointRepository;
+    private final String logId;
+    private final int batchSize;
+    private final ConcurrentLinkedQueue<RoomCommand> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private volatile long checkpointedSequence;
+
+    public CommandLogCheckpointer(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                  CommandLogCheckpointRepository checkpointRepository, String logId, int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.checkpointRepository = checkpointRepository;
+        this.logId = logId;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Reads the stored checkpoint of this checkpointer's log.
+     * @return Highest sequence of this log already applied to the database, or 0 if none.
+     */
+    public long loadCheckpoint() {
+        checkpointedSequence = checkpointRepository.findById(logId)
+                .map(CommandLogCheckpoint::getLastSequence)
+                .orElse(0L);
+        return checkpointedSequence;
+    }
+
+    /**
+     * Queues a command for the next batch. Must be called in sequence order.
+     * @param command A command that has been appended to the log.
+     */
+    public void enqueue(RoomCommand command) {
+        pending.add(command);
+        pendingCount.incrementAndGet();
+    }
+
+    /**
+     * Writes the oldest pending commands (up to the batch size) and advances the checkpoint.
+     * On failure nothing is dequeued, so the same commands are retried next time.
+     * @return Number of commands written; 0 if nothing was pending.
+     */
+    public synchronized int checkpointBatch() {
+        List<RoomCommand> batch = new ArrayList<>(Math.min(batchSize, Math.max(pendingCount.get(), 1)));
+        Iterator<RoomCommand> iterator = pending.iterator();
+        while (iterator.hasNext() && batch.size() < batchSize) {
+            batch.add(iterator.next());
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        long lastSequence = batch.get(batch.size() - 1).getSequence();
+        transactionTemplate.executeWithoutResult(status -> write(batch, lastSequence));
+
+        for (int i = 0; i < batch.size(); i++) {
+            pending.poll();
+        }
+        pendingCount.addAndGet(-batch.size());
+        checkpointedSequence = lastSequence;
+        log.debug("Checkpointed {} command(s) up to sequence {}", batch.size(), lastSequence);
+        return batch.size();
+    }
+
+    /**
+     * @return Id of the log whose checkpoint this is.
+     */
+    public String getLogId() {
+        return logId;
+    }
+
+    /**
+     * @return Highest sequence known to be in the database.
+     */
+    public long getCheckpointedSequence() {
+        return checkpointedSequence;
+    }
+
+    /**
+     * @return Number of commands logged but not yet in the database.
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    // --- Helper Methods ---
+
+    private void write(List<RoomCommand> batch, long lastSequence) {
+        // Log order is kept: a song can be removed and then put back (the inverse of a remove
+        // whose fsync failed), so consecutive commands of one type form one JDBC batch
+        List<Object[]> run = new ArrayList<>();
+        RoomCommand.Type runType = null;
+        for (RoomCommand command : batch) {
+            if (command.getType() != runType) {
+                writeRun(runType, run);
+                run = new ArrayList<>();
+                runType = command.getType();
+            }
+            if (command.getType() == RoomCommand.Type.ADD_SONG) {
+                run.add(new Object[] {
+                        command.getSongId(),
+                        command.getTitle(),
+                        command.getArtist(),
+                        Timestamp.valueOf(command.addedAtLocalTime()),
+                        command.getYoutubeVideoId(),
+                        command.getAddedByUsername(),
+                        command.getDurationSeconds(),
+                        command.getPublicId()
+                });
+            } else {
+                run.add(new Object[] { command.getSongId() });
+            }
+        }
+        writeRun(runType, run);
+        jdbcTemplate.update(UPSERT_CHECKPOINT_SQL, logId, lastSequence);
+    }
+
+    private void writeRun(RoomCommand.Type type, List<Object[]> run) {
+        if (run.isEmpty()) {
+            return;
+        }
+        if (type == RoomCommand.Type.ADD_SONG) {
+            jdbcTemplate.batchUpdate(INSERT_SONG_SQL, run, new int[] {
+                    Types.OTHER, Types.VARCHAR, Types.VARCHAR, Types.TIMESTAMP,
+                    Types.VARCHAR, Types.VARCHAR, Types.INTEGER, Types.VARCHAR });
+        } else {
+            jdbcTemplate.batchUpdate(DELETE_SONG_SQL, run, new int[] { Types.OTHER });
+        }
+    }
+}
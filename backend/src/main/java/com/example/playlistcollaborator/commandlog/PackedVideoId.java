@@ -0,0 +1,74 @@
+// Purpose: Packs 11-character YouTube video ids into a single long and back.
+
+package com.example.playlistcollaborator.commandlog;
+
+import java.util.Arrays;
+
+/**
+ * A YouTube video id is a 64-bit value written as 11 base64url characters: ten carry
+ * six bits each and the last carries the remaining four, so it is always one of
+ * "AEIMQUYcgkosw048". Ids of that shape round-trip through a long exactly; anything
+ * else (wrong length, other characters) is reported as not packable and the caller
+ * keeps the string.
+ */
+final class PackedVideoId {
+
+    private static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+    private static final int LENGTH = 11;
+    private static final byte[] DECODE = new byte[128];
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        for (int i = 0; i < ALPHABET.length(); i++) {
+            DECODE[ALPHABET.charAt(i)] = (byte) i;
+        }
+    }
+
+    private PackedVideoId() {
+    }
+
+    /**
+     * @param videoId A video id; may be null.
+     * @return true if {@link #pack(String)} and {@link #unpack(long)} round-trip it.
+     */
+    static boolean isPackable(String videoId) {
+        if (videoId == null || videoId.length() != LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < LENGTH; i++) {
+            if (digit(videoId.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return (digit(videoId.charAt(LENGTH - 1)) & 0b11) == 0;
+    }
+
+    /**
+     * @param videoId An id for which {@link #isPackable(String)} is true.
+     * @return The 64 bits the id encodes.
+     */
+    static long pack(String videoId) {
+        long bits = 0;
+        for (int i = 0; i < LENGTH - 1; i++) {
+            bits = (bits << 6) | digit(videoId.charAt(i));
+        }
+        return (bits << 4) | (digit(videoId.charAt(LENGTH - 1)) >>> 2);
+    }
+
+    static String unpack(long bits) {
+        char[] chars = new char[LENGTH];
+        chars[LENGTH - 1] = ALPHABET.charAt((int) (bits & 0xF) << 2);
+        bits >>>= 4;
+        for (int i = LENGTH - 2; i >= 0; i--) {
+            chars[i] = ALPHABET.charAt((int) (bits & 0x3F));
+            bits >>>= 6;
+        }
+        return new String(chars);
+    }
+
+    // --- Helper Methods ---
+
+    private static int digit(char c) {
+        return c < DECODE.length ? DECODE[c] : -1;
+    }
+}
@@ -0,0 +1,52 @@
+// Purpose: A single room mutation as recorded in the command log.
+
+package com.example.playlistcollaborator.commandlog;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomCommand {
+
+    public enum Type {
+        ADD_SONG,
+        REMOVE_SONG // Also used when the queue advances past its head
+    }
+
+    private long sequence; // Assigned by the log on append; strictly increasing
+    private Type type;
+    private String publicId;
+    private UUID songId;
+    // The fields below are only set for ADD_SONG
+    private String youtubeVideoId;
+    private String title;
+    private String artist;
+    private String addedByUsername;
+    private Integer durationSeconds;
+    private long addedAtEpochMillis;
+
+    /**
+     * @return addedAt the way playlist_songs.added_at stores it: wall-clock time in the server's zone.
+     */
+    public LocalDateTime addedAtLocalTime() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(addedAtEpochMillis), ZoneId.systemDefault());
+    }
+
+    public static RoomCommand addSong(String publicId, UUID songId, String youtubeVideoId, String title, String artist,
+                                      String addedByUsername, Integer durationSeconds, long addedAtEpochMillis) {
+        return new RoomCommand(0, Type.ADD_SONG, publicId, songId, youtubeVideoId, title, artist, addedByUsername,
+                durationSeconds, addedAtEpochMillis);
+    }
+
+    public static RoomCommand removeSong(String publicId, UUID songId) {
+        return new RoomCommand(0, Type.REMOVE_SONG, publicId, songId, null, null, null, null, null, 0);
+    }
+}
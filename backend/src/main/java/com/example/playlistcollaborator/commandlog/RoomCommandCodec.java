@@ -0,0 +1,94 @@
+// Purpose: Binary encoding of RoomCommands for the command log.
+
+package com.example.playlistcollaborator.commandlog;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Payload layout (big-endian): sequence, type, publicId, songId, and for ADD_SONG the
+ * song fields. Strings are an int byte length (-1 for null) followed by UTF-8 bytes.
+ * Framing and checksums are the log's job, not the codec's.
+ */
+final class RoomCommandCodec {
+
+    private RoomCommandCodec() {
+    }
+
+    static byte[] encode(RoomCommand command) {
+        byte[] publicId = utf8(command.getPublicId());
+        byte[] videoId = utf8(command.getYoutubeVideoId());
+        byte[] title = utf8(command.getTitle());
+        byte[] artist = utf8(command.getArtist());
+        byte[] username = utf8(command.getAddedByUsername());
+
+        int size = Long.BYTES + 1 + stringSize(publicId) + 2 * Long.BYTES;
+        if (command.getType() == RoomCommand.Type.ADD_SONG) {
+            size += stringSize(videoId) + stringSize(title) + stringSize(artist) + stringSize(username)
+                    + Integer.BYTES + Long.BYTES;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putLong(command.getSequence());
+        buffer.put((byte) command.getType().ordinal());
+        putString(buffer, publicId);
+        buffer.putLong(command.getSongId().getMostSignificantBits());
+        buffer.putLong(command.getSongId().getLeastSignificantBits());
+        if (command.getType() == RoomCommand.Type.ADD_SONG) {
+            putString(buffer, videoId);
+            putString(buffer, title);
+            putString(buffer, artist);
+            putString(buffer, username);
+            buffer.putInt(command.getDurationSeconds() != null ? command.getDurationSeconds() : -1);
+            buffer.putLong(command.getAddedAtEpochMillis());
+        }
+        return buffer.array();
+    }
+
+    static RoomCommand decode(ByteBuffer buffer) {
+        RoomCommand command = new RoomCommand();
+        command.setSequence(buffer.getLong());
+        command.setType(RoomCommand.Type.values()[buffer.get()]);
+        command.setPublicId(getString(buffer));
+        command.setSongId(new UUID(buffer.getLong(), buffer.getLong()));
+        if (command.getType() == RoomCommand.Type.ADD_SONG) {
+            command.setYoutubeVideoId(getString(buffer));
+            command.setTitle(getString(buffer));
+            command.setArtist(getString(buffer));
+            command.setAddedByUsername(getString(buffer));
+            int duration = buffer.getInt();
+            command.setDurationSeconds(duration >= 0 ? duration : null);
+            command.setAddedAtEpochMillis(buffer.getLong());
+        }
+        return command;
+    }
+
+    // --- Helper Methods ---
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int stringSize(byte[] bytes) {
+        return Integer.BYTES + (bytes != null ? bytes.length : 0);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,301 @@
+// Purpose: In-memory copy of one room's queue, kept current by applying logged commands.
+
+package com.example.playlistcollaborator.commandlog;
+
+import com.example.playlistcollaborator.dto.PlaylistSongDto;
+import com.example.playlistcollaborator.dto.RoomDto;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Not thread-safe: callers synchronize on the instance, which also makes "append to
+ * the log, then apply" atomic per room so the log and memory agree on queue order.
+ *
+ * The queue is stored column by column rather than as a list of PlaylistSongDto, so a
+ * song costs a few primitives and references instead of a DTO, a UUID, a LocalDateTime
+ * and their strings (see benchmark/run-room-state-heap-benchmark.sh):
+ * <ul>
+ *   <li>song ids as two longs (UUID most/least significant bits);</li>
+ *   <li>YouTube video ids packed into one long ({@link PackedVideoId}); other ids are
+ *       kept as strings in a side column that is only allocated when needed;</li>
+ *   <li>titles, artists and usernames as canonical instances from the {@link SongCatalog};</li>
+ *   <li>timestamps as microseconds since 1970-01-01T00:00 read as UTC, an exact encoding of the
+ *       LocalDateTime at the precision Postgres keeps, and duration as an int (-1 when unknown).</li>
+ * </ul>
+ * DTOs are only built when a caller asks for one.
+ */
+public class RoomState {
+
+    private static final int MIN_CAPACITY = 4;
+    private static final int UNKNOWN_DURATION = -1;
+    private static final long MICROS_PER_SECOND = 1_000_000;
+    private static final int NANOS_PER_MICRO = 1_000;
+    private static final long NO_TIME = Long.MIN_VALUE; // A null timestamp, kept apart from 1970-01-01T00:00
+    // Marks a song without a video id in unpackedVideoIds; compared by identity
+    private static final String NO_VIDEO_ID = new String();
+
+    private static final long[] NO_LONGS = new long[0];
+    private static final int[] NO_INTS = new int[0];
+    private static final String[] NO_STRINGS = new String[0];
+
+    private final SongCatalog catalog;
+    private final String publicId;
+    private final String name;
+    private final long createdAtMicros;
+
+    // Queue columns; index i of every column describes the i-th song
+    private int size;
+    private long[] idMostSigBits = NO_LONGS;
+    private long[] idLeastSigBits = NO_LONGS;
+    private long[] packedVideoIds = NO_LONGS;
+    private String[] unpackedVideoIds; // null until a song's video id does not pack
+    private String[] titles = NO_STRINGS;
+    private String[] artists = NO_STRINGS;
+    private String[] addedByUsernames = NO_STRINGS;
+    private long[] addedAtMicros = NO_LONGS;
+    private int[] durationSeconds = NO_INTS;
+
+    private long lastSequence; // Highest command applied; 0 if none since the room was loaded
+    private long lastAccessMillis;
+    private boolean evicted;
+
+    /**
+     * @param room The room as last stored in the database.
+     */
+    public RoomState(RoomDto room) {
+        this(room, SongCatalog.shared());
+    }
+
+    /**
+     * @param room The room as last stored in the database.
+     * @param catalog Deduplicates the room's strings against other rooms.
+     */
+    public RoomState(RoomDto room, SongCatalog catalog) {
+        this.catalog = catalog;
+        this.publicId = room.getPublicId();
+        this.name = room.getName();
+        this.createdAtMicros = toEpochMicros(room.getCreatedAt());
+        if (room.getPlaylistSongs() != null) {
+            ensureCapacity(room.getPlaylistSongs().size());
+            for (PlaylistSongDto song : room.getPlaylistSongs()) {
+                append(song.getId(), song.getYoutubeVideoId(), song.getTitle(), song.getArtist(),
+                        song.getAddedByUsername(), toEpochMicros(song.getAddedAt()), song.getDurationSeconds());
+            }
+        }
+        this.lastAccessMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Applies a command to the queue. Applying the same sequence twice is a no-op.
+     * @param command A logged command for this room.
+     */
+    public void apply(RoomCommand command) {
+        if (command.getSequence() != 0 && command.getSequence() <= lastSequence) {
+            return;
+        }
+        switch (command.getType()) {
+            case ADD_SONG:
+                append(command.getSongId(), command.getYoutubeVideoId(), command.getTitle(), command.getArtist(),
+                        command.getAddedByUsername(), toEpochMicros(command.addedAtLocalTime()), command.getDurationSeconds());
+                break;
+            case REMOVE_SONG:
+                int index = indexOf(command.getSongId());
+                if (index >= 0) {
+                    removeAt(index);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command type: " + command.getType());
+        }
+        lastSequence = Math.max(lastSequence, command.getSequence());
+        touch();
+    }
+
+    /**
+     * Records a command that was logged for this room but not applied to the queue (one
+     * whose fsync failed, or the inverse that cancels it), so the room is not evicted
+     * before the database has caught up with it.
+     * @param command A logged command for this room.
+     */
+    public void skip(RoomCommand command) {
+        lastSequence = Math.max(lastSequence, command.getSequence());
+    }
+
+    public boolean containsSong(UUID songId) {
+        return indexOf(songId) >= 0;
+    }
+
+    public Optional<PlaylistSongDto> findSong(UUID songId) {
+        int index = indexOf(songId);
+        return index < 0 ? Optional.empty() : Optional.of(songAt(index));
+    }
+
+    public Optional<PlaylistSongDto> head() {
+        touch();
+        return size == 0 ? Optional.empty() : Optional.of(songAt(0));
+    }
+
+    public RoomDto toRoomDto() {
+        touch();
+        List<PlaylistSongDto> songs = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            songs.add(songAt(i));
+        }
+        return new RoomDto(publicId, name, toLocalDateTime(createdAtMicros), songs);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    public boolean isEvicted() {
+        return evicted;
+    }
+
+    /**
+     * Marks the state evicted if nothing touched it since idleSinceMillis and every
+     * command applied to it is already checkpointed, so reloading from the database is safe.
+     * @return true if the state was evicted.
+     */
+    public boolean evictIfIdle(long idleSinceMillis, long checkpointedSequence) {
+        if (lastAccessMillis < idleSinceMillis && lastSequence <= checkpointedSequence) {
+            evicted = true;
+        }
+        return evicted;
+    }
+
+    /**
+     * @param command An ADD_SONG command.
+     * @return The song the command adds, as the API exposes it.
+     */
+    public static PlaylistSongDto toSongDto(RoomCommand command) {
+        return new PlaylistSongDto(command.getSongId(), command.getTitle(), command.getArtist(),
+                command.addedAtLocalTime(), command.getAddedByUsername(),
+                command.getYoutubeVideoId(), command.getDurationSeconds());
+    }
+
+    // --- Helper Methods ---
+
+    private void append(UUID songId, String videoId, String title, String artist, String addedBy,
+                        long addedAt, Integer duration) {
+        ensureCapacity(size + 1);
+        idMostSigBits[size] = songId.getMostSignificantBits();
+        idLeastSigBits[size] = songId.getLeastSignificantBits();
+        if (PackedVideoId.isPackable(videoId)) {
+            packedVideoIds[size] = PackedVideoId.pack(videoId);
+        } else {
+            if (unpackedVideoIds == null) {
+                unpackedVideoIds = new String[idMostSigBits.length];
+            }
+            unpackedVideoIds[size] = videoId != null ? catalog.intern(videoId) : NO_VIDEO_ID;
+        }
+        titles[size] = catalog.intern(title);
+        artists[size] = catalog.intern(artist);
+        addedByUsernames[size] = catalog.intern(addedBy);
+        addedAtMicros[size] = addedAt;
+        durationSeconds[size] = duration != null ? duration : UNKNOWN_DURATION;
+        size++;
+    }
+
+    private void removeAt(int index) {
+        int tail = size - index - 1;
+        System.arraycopy(idMostSigBits, index + 1, idMostSigBits, index, tail);
+        System.arraycopy(idLeastSigBits, index + 1, idLeastSigBits, index, tail);
+        System.arraycopy(packedVideoIds, index + 1, packedVideoIds, index, tail);
+        System.arraycopy(titles, index + 1, titles, index, tail);
+        System.arraycopy(artists, index + 1, artists, index, tail);
+        System.arraycopy(addedByUsernames, index + 1, addedByUsernames, index, tail);
+        System.arraycopy(addedAtMicros, index + 1, addedAtMicros, index, tail);
+        System.arraycopy(durationSeconds, index + 1, durationSeconds, index, tail);
+        if (unpackedVideoIds != null) {
+            System.arraycopy(unpackedVideoIds, index + 1, unpackedVideoIds, index, tail);
+        }
+        size--;
+        // Drop the references the shifted tail left behind so the catalog can release them
+        titles[size] = null;
+        artists[size] = null;
+        addedByUsernames[size] = null;
+        if (unpackedVideoIds != null) {
+            unpackedVideoIds[size] = null;
+        }
+    }
+
+    private int indexOf(UUID songId) {
+        long most = songId.getMostSignificantBits();
+        long least = songId.getLeastSignificantBits();
+        for (int i = 0; i < size; i++) {
+            if (idLeastSigBits[i] == least && idMostSigBits[i] == most) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private PlaylistSongDto songAt(int index) {
+        return new PlaylistSongDto(
+                new UUID(idMostSigBits[index], idLeastSigBits[index]),
+                titles[index],
+                artists[index],
+                toLocalDateTime(addedAtMicros[index]),
+                addedByUsernames[index],
+                videoIdAt(index),
+                durationSeconds[index] != UNKNOWN_DURATION ? durationSeconds[index] : null);
+    }
+
+    private String videoIdAt(int index) {
+        String unpacked = unpackedVideoIds != null ? unpackedVideoIds[index] : null;
+        if (unpacked == null) {
+            return PackedVideoId.unpack(packedVideoIds[index]);
+        }
+        return unpacked == NO_VIDEO_ID ? null : unpacked;
+    }
+
+    private void ensureCapacity(int required) {
+        int capacity = idMostSigBits.length;
+        if (required <= capacity) {
+            return;
+        }
+        int grown = Math.max(required, Math.max(MIN_CAPACITY, capacity + (capacity >> 1)));
+        idMostSigBits = Arrays.copyOf(idMostSigBits, grown);
+        idLeastSigBits = Arrays.copyOf(idLeastSigBits, grown);
+        packedVideoIds = Arrays.copyOf(packedVideoIds, grown);
+        titles = Arrays.copyOf(titles, grown);
+        artists = Arrays.copyOf(artists, grown);
+        addedByUsernames = Arrays.copyOf(addedByUsernames, grown);
+        addedAtMicros = Arrays.copyOf(addedAtMicros, grown);
+        durationSeconds = Arrays.copyOf(durationSeconds, grown);
+        if (unpackedVideoIds != null) {
+            unpackedVideoIds = Arrays.copyOf(unpackedVideoIds, grown);
+        }
+    }
+
+    // UTC is only an encoding here: no zone rules apply, so every LocalDateTime round-trips exactly
+    private static long toEpochMicros(LocalDateTime time) {
+        if (time == null) {
+            return NO_TIME;
+        }
+        return time.toEpochSecond(ZoneOffset.UTC) * MICROS_PER_SECOND + time.getNano() / NANOS_PER_MICRO;
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMicros) {
+        if (epochMicros == NO_TIME) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMicros, MICROS_PER_SECOND),
+                (int) Math.floorMod(epochMicros, MICROS_PER_SECOND) * NANOS_PER_MICRO, ZoneOffset.UTC);
+    }
+
+    private void touch() {
+        lastAccessMillis = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,481 @@
+// Purpose: Append-only, memory-mapped, segmented write-ahead log of room commands with group commit.
+
+package com.example.playlistcollaborator.commandlog;
+
+import com.example.playlistcollaborator.exception.CommandLogCorruptedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * The log is a directory of fixed-size segment files named after the sequence of
+ * their first record. Only the newest ("active") segment is written to. It is mapped
+ * into memory, so an append is a memory copy under a short lock and never a syscall.
+ *
+ * Durability comes from group commit: a flusher thread calls
+ * {@link MappedByteBuffer#force()} every flush interval and then completes the future
+ * of every append the flush covered. One fsync therefore acknowledges every command
+ * written since the last one, however many rooms they came from.
+ *
+ * Each record is framed as [int length][int crc32][payload]. The payload is written
+ * before the header, and a zero length marks the end of a segment. On open, a record
+ * at the tail of the last segment that is cut short or fails its checksum is treated
+ * as a torn write and discarded. Damage anywhere else throws
+ * {@link CommandLogCorruptedException}, because dropping it would lose acknowledged commands.
+ */
+@Slf4j
+public class SegmentedCommandLog implements Closeable {
+
+    static final String SEGMENT_PREFIX = "segment-";
+    static final String SEGMENT_SUFFIX = ".log";
+    static final String LOG_ID_FILE = "log-id";
+    private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final Consumer<RoomCommand> appendListener;
+    private final ScheduledExecutorService flusher;
+    private final ConcurrentLinkedQueue<PendingAck> pendingAcks = new ConcurrentLinkedQueue<>();
+    private final Object appendLock = new Object();
+    private final Object flushLock = new Object();
+
+    // Guarded by appendLock
+    private final List<Segment> closedSegments = new ArrayList<>();
+    private Segment active;
+    private long nextSequence;
+    private boolean closed;
+
+    private volatile long lastWrittenSequence;
+    private volatile long durableSequence;
+
+    /**
+     * Opens (or creates) the log in the given directory and repairs a torn tail.
+     * @param directory Directory holding the segment files.
+     * @param segmentBytes Size of each segment file; a record must fit in one segment.
+     * @param flushIntervalMillis How often the group-commit thread forces the active segment to disk.
+     * @param minNextSequence Lowest sequence the next append may use, e.g. the last checkpoint + 1,
+     *                        so numbering never goes backwards after every segment has been compacted.
+     * @param appendListener Called under the append lock with every appended command, i.e. in sequence order. May be null.
+     * @throws IOException if the directory or a segment cannot be read or created.
+     */
+    public SegmentedCommandLog(Path directory, int segmentBytes, long flushIntervalMillis, long minNextSequence,
+                               Consumer<RoomCommand> appendListener) throws IOException {
+        if (segmentBytes <= RECORD_HEADER_BYTES) {
+            throw new IllegalArgumentException("segmentBytes too small: " + segmentBytes);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.appendListener = appendListener != null ? appendListener : command -> { };
+        Files.createDirectories(directory);
+
+        long lastSequence = recover();
+        this.nextSequence = Math.max(lastSequence + 1, Math.max(minNextSequence, 1));
+        this.lastWrittenSequence = nextSequence - 1;
+        this.durableSequence = nextSequence - 1;
+        if (active == null) {
+            active = Segment.create(segmentPath(nextSequence), nextSequence, segmentBytes);
+        }
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("command-log-flusher-"));
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Assigns the command the next sequence number and writes it to the active segment.
+     * The command is readable by {@link #replay} at once but only durable when the returned future completes.
+     * @param command The command to append; its sequence field is overwritten.
+     * @return A future completed with the command's sequence once a flush has forced it to disk.
+     */
+    public CompletableFuture<Long> append(RoomCommand command) {
+        CompletableFuture<Long> ack = new CompletableFuture<>();
+        synchronized (appendLock) {
+            if (closed) {
+                throw new IllegalStateException("Command log is closed");
+            }
+            long sequence = nextSequence;
+            command.setSequence(sequence);
+            byte[] payload = RoomCommandCodec.encode(command);
+            int recordBytes = RECORD_HEADER_BYTES + payload.length;
+            if (recordBytes + Integer.BYTES > segmentBytes) {
+                throw new IllegalArgumentException("Command of " + recordBytes + " bytes does not fit in a segment");
+            }
+            if (active.writePosition + recordBytes + Integer.BYTES > active.buffer.capacity()) {
+                rotate(sequence);
+            }
+            active.write(payload);
+            active.lastSequence = sequence;
+            nextSequence = sequence + 1;
+            lastWrittenSequence = sequence;
+            pendingAcks.add(new PendingAck(sequence, ack));
+            appendListener.accept(command);
+        }
+        return ack;
+    }
+
+    /**
+     * Forces everything written so far to disk and completes the covered append futures.
+     * Normally called by the group-commit thread; callers may use it to flush early.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            Segment segment;
+            long target;
+            synchronized (appendLock) {
+                segment = active;
+                target = lastWrittenSequence;
+            }
+            // Segments before the active one were forced when they were rotated out
+            if (target > durableSequence) {
+                segment.buffer.force();
+                durableSequence = target;
+            }
+            PendingAck head;
+            while ((head = pendingAcks.peek()) != null && head.sequence <= durableSequence) {
+                pendingAcks.poll();
+                head.future.complete(head.sequence);
+            }
+        }
+    }
+
+    /**
+     * Feeds every logged command with a sequence above afterSequence to the consumer, oldest first.
+     * @param afterSequence Commands up to and including this sequence are skipped (typically the last checkpoint).
+     * @param consumer Receives each command.
+     * @return The number of commands replayed.
+     * @throws IOException if a segment cannot be read.
+     */
+    public long replay(long afterSequence, Consumer<RoomCommand> consumer) throws IOException {
+        synchronized (appendLock) {
+            long replayed = 0;
+            List<Segment> segments = new ArrayList<>(closedSegments);
+            segments.add(active);
+            for (Segment segment : segments) {
+                if (segment.lastSequence <= afterSequence) {
+                    continue;
+                }
+                ByteBuffer view = segment.buffer.duplicate();
+                view.position(0).limit(segment.writePosition);
+                for (RoomCommand command : readRecords(view, segment.path).commands) {
+                    if (command.getSequence() > afterSequence) {
+                        consumer.accept(command);
+                        replayed++;
+                    }
+                }
+            }
+            return replayed;
+        }
+    }
+
+    /**
+     * Deletes every closed segment whose commands are all at or below the checkpoint.
+     * The active segment is never deleted.
+     * @param checkpointedSequence Highest sequence safely stored elsewhere.
+     * @return The number of segment files deleted.
+     */
+    public int compact(long checkpointedSequence) {
+        List<Segment> removable = new ArrayList<>();
+        synchronized (appendLock) {
+            while (!closedSegments.isEmpty() && closedSegments.get(0).lastSequence <= checkpointedSequence) {
+                removable.add(closedSegments.remove(0));
+            }
+        }
+        int deleted = 0;
+        for (Segment segment : removable) {
+            try {
+                segment.channel.close();
+                Files.deleteIfExists(segment.path);
+                deleted++;
+            } catch (IOException e) {
+                log.warn("Could not delete compacted command log segment {}: {}", segment.path, e.getMessage());
+            }
+        }
+        if (deleted > 0) {
+            log.debug("Compacted {} command log segment(s) up to sequence {}", deleted, checkpointedSequence);
+        }
+        return deleted;
+    }
+
+    /**
+     * Reads the id kept in the log directory, creating the directory and a random id on first use.
+     * Checkpoints are stored per log id, so a new or wiped directory (whose sequences start
+     * again at 1) never inherits the checkpoint of a different log.
+     * @param directory Directory holding the segment files.
+     * @return The id of the log in that directory.
+     * @throws IOException if the id file cannot be read or written.
+     */
+    public static String readOrCreateLogId(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path idFile = directory.resolve(LOG_ID_FILE);
+        if (Files.exists(idFile)) {
+            String logId = Files.readString(idFile, StandardCharsets.US_ASCII).trim();
+            if (logId.isEmpty()) {
+                throw new CommandLogCorruptedException("Command log id file is empty: " + idFile);
+            }
+            return logId;
+        }
+        // Written aside and renamed so a crash never leaves a partial id. Losing the file
+        // altogether only costs a full replay, which is idempotent.
+        String logId = UUID.randomUUID().toString();
+        Path tempFile = directory.resolve(LOG_ID_FILE + ".tmp");
+        Files.writeString(tempFile, logId, StandardCharsets.US_ASCII);
+        Files.move(tempFile, idFile, StandardCopyOption.ATOMIC_MOVE);
+        return logId;
+    }
+
+    /**
+     * @return Highest sequence known to be on disk.
+     */
+    public long getDurableSequence() {
+        return durableSequence;
+    }
+
+    /**
+     * @return Highest sequence appended so far (durable or not).
+     */
+    public long getLastWrittenSequence() {
+        return lastWrittenSequence;
+    }
+
+    /**
+     * @return Number of segment files currently on disk, including the active one.
+     */
+    public int getSegmentCount() {
+        synchronized (appendLock) {
+            return closedSegments.size() + 1;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        synchronized (appendLock) {
+            closed = true;
+            for (Segment segment : closedSegments) {
+                segment.channel.close();
+            }
+            active.channel.close();
+        }
+    }
+
+    /**
+     * Stops the group-commit thread without a final flush, leaving unforced appends
+     * unacknowledged, as a process crash would. Used by the crash-recovery tests.
+     */
+    void halt() throws IOException {
+        flusher.shutdownNow();
+        synchronized (appendLock) {
+            closed = true;
+            for (Segment segment : closedSegments) {
+                segment.channel.close();
+            }
+            active.channel.close();
+        }
+    }
+
+    // --- Helper Methods ---
+
+    /**
+     * Scans existing segments, validating each record, and returns the highest sequence found.
+     * Leaves the newest segment open as the active one, positioned after its last valid record.
+     */
+    private long recover() throws IOException {
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files.filter(SegmentedCommandLog::isSegmentFile)
+                    .sorted((a, b) -> Long.compare(baseSequence(a), baseSequence(b)))
+                    .collect(Collectors.toList());
+        }
+
+        long lastSequence = 0;
+        for (int i = 0; i < paths.size(); i++) {
+            Path path = paths.get(i);
+            boolean tail = i == paths.size() - 1;
+            Segment segment = Segment.open(path, baseSequence(path));
+            ScanResult scan = readRecords(segment.buffer.duplicate(), path);
+            if (scan.torn && !tail) {
+                throw new CommandLogCorruptedException("Damaged record at offset " + scan.endPosition + " in " + path
+                        + ", which is not the newest segment");
+            }
+            for (RoomCommand command : scan.commands) {
+                if (command.getSequence() <= lastSequence) {
+                    throw new CommandLogCorruptedException("Sequence " + command.getSequence() + " in " + path
+                            + " does not follow " + lastSequence);
+                }
+                lastSequence = command.getSequence();
+            }
+            segment.writePosition = scan.endPosition;
+            segment.lastSequence = scan.commands.isEmpty() ? segment.baseSequence - 1 : lastSequence;
+            if (tail) {
+                if (scan.torn) {
+                    log.warn("Discarding torn record at offset {} of {}; {} valid command(s) kept in this segment",
+                            scan.endPosition, path, scan.commands.size());
+                }
+                segment.zeroFrom(scan.endPosition);
+                active = segment;
+            } else {
+                closedSegments.add(segment);
+            }
+        }
+        if (!paths.isEmpty()) {
+            log.info("Opened command log in {}: {} segment(s), last sequence {}", directory, paths.size(), lastSequence);
+        }
+        return lastSequence;
+    }
+
+    private void rotate(long nextBaseSequence) {
+        try {
+            active.buffer.force();
+            closedSegments.add(active);
+            active = Segment.create(segmentPath(nextBaseSequence), nextBaseSequence, segmentBytes);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create command log segment at sequence " + nextBaseSequence, e);
+        }
+    }
+
+    private static ScanResult readRecords(ByteBuffer buffer, Path path) {
+        ScanResult result = new ScanResult();
+        int position = buffer.position();
+        while (position + RECORD_HEADER_BYTES <= buffer.limit()) {
+            int length = buffer.getInt(position);
+            if (length == 0) {
+                break; // Clean end of segment
+            }
+            int crc = buffer.getInt(position + Integer.BYTES);
+            int payloadStart = position + RECORD_HEADER_BYTES;
+            if (length < 0 || payloadStart + length > buffer.limit()) {
+                result.torn = true;
+                break;
+            }
+            ByteBuffer payload = buffer.duplicate();
+            payload.position(payloadStart).limit(payloadStart + length);
+            CRC32 checksum = new CRC32();
+            checksum.update(payload.duplicate());
+            if ((int) checksum.getValue() != crc) {
+                result.torn = true;
+                break;
+            }
+            try {
+                result.commands.add(RoomCommandCodec.decode(payload));
+            } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+                throw new CommandLogCorruptedException("Undecodable record at offset " + position + " in " + path, e);
+            }
+            position = payloadStart + length;
+        }
+        result.endPosition = position;
+        return result;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Command log flush failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private Path segmentPath(long baseSequence) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, baseSequence, SEGMENT_SUFFIX));
+    }
+
+    private static boolean isSegmentFile(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private static long baseSequence(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static final class Segment {
+        final Path path;
+        final long baseSequence;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        int writePosition;
+        long lastSequence;
+
+        private Segment(Path path, long baseSequence, FileChannel channel, MappedByteBuffer buffer) {
+            this.path = path;
+            this.baseSequence = baseSequence;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.lastSequence = baseSequence - 1;
+        }
+
+        static Segment create(Path path, long baseSequence, int size) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            return new Segment(path, baseSequence, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+
+        static Segment open(Path path, long baseSequence) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(path, baseSequence, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+        }
+
+        void write(byte[] payload) {
+            CRC32 checksum = new CRC32();
+            checksum.update(payload);
+            // Payload and checksum first, length last: a zero length still reads as "end of segment"
+            buffer.put(writePosition + RECORD_HEADER_BYTES, payload);
+            buffer.putInt(writePosition + Integer.BYTES, (int) checksum.getValue());
+            buffer.putInt(writePosition, payload.length);
+            writePosition += RECORD_HEADER_BYTES + payload.length;
+        }
+
+        // Clears whatever a torn write left behind, touching only pages that are not already zero
+        void zeroFrom(int position) {
+            for (int i = position; i < buffer.limit(); i++) {
+                if (buffer.get(i) != 0) {
+                    buffer.put(i, (byte) 0);
+                }
+            }
+        }
+    }
+
+    private static final class ScanResult {
+        final List<RoomCommand> commands = new ArrayList<>();
+        int endPosition;
+        boolean torn;
+    }
+
+    private static final class PendingAck {
+        final long sequence;
+        final CompletableFuture<Long> future;
+
+        PendingAck(long sequence, CompletableFuture<Long> future) {
+            this.sequence = sequence;
+            this.future = future;
+        }
+    }
+}
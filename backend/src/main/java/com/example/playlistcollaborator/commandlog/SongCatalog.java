@@ -0,0 +1,75 @@
+// Purpose: Process-wide deduplication of the song titles, artists and usernames held in room queues.
+
+package com.example.playlistcollaborator.commandlog;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+/**
+ * Popular songs sit in many rooms at once, and every command-log replay or database load
+ * would otherwise give each room its own copy of the same title and artist. Room queues
+ * store only the canonical instance returned by {@link #intern(String)}.
+ *
+ * Entries are weak: once no room references a string it is collected and its entry
+ * disappears, so the catalog never outgrows the set of songs actually queued. The table
+ * is split into lock stripes so concurrent rooms rarely contend.
+ */
+public final class SongCatalog {
+
+    private static final SongCatalog SHARED = new SongCatalog(64);
+
+    private final WeakHashMap<String, WeakReference<String>>[] stripes;
+
+    /**
+     * @param stripeCount Number of independently locked tables; rounded up to a power of two.
+     */
+    @SuppressWarnings("unchecked")
+    public SongCatalog(int stripeCount) {
+        int count = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new WeakHashMap[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new WeakHashMap<>();
+        }
+    }
+
+    /**
+     * @return The catalog shared by every room in this process.
+     */
+    public static SongCatalog shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param value A string to store in a room queue; may be null.
+     * @return An equal string, the same instance for every caller while any room holds it.
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        int hash = value.hashCode();
+        WeakHashMap<String, WeakReference<String>> stripe = stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+        synchronized (stripe) {
+            WeakReference<String> ref = stripe.get(value);
+            String canonical = ref != null ? ref.get() : null;
+            if (canonical == null) {
+                canonical = value;
+                stripe.put(canonical, new WeakReference<>(canonical));
+            }
+            return canonical;
+        }
+    }
+
+    /**
+     * @return Number of distinct strings currently held (approximate; includes entries awaiting collection).
+     */
+    public int size() {
+        int size = 0;
+        for (WeakHashMap<String, WeakReference<String>> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,50 @@
+// Purpose: Token bucket budgets for inbound room commands, bound from "playlist.admission.*" properties.
+
+package com.example.playlistcollaborator.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "playlist.admission")
+public class AdmissionControlProperties {
+
+    private boolean enabled = true;
+
+    // Budgets for a single WebSocket session (one browser tab)
+    private Budgets session = new Budgets(
+            new Budget(5, 0.5),    // addSong
+            new Budget(10, 1),     // removeSong
+            new Budget(20, 5),     // playbackState
+            new Budget(5, 1),      // nextSong / requestNextSong
+            new Budget(20, 5));    // anything else under /app
+
+    // Budgets shared by every session in a room
+    private Budgets room = new Budgets(
+            new Budget(30, 5),
+            new Budget(30, 5),
+            new Budget(40, 10),
+            new Budget(10, 2),
+            new Budget(60, 20));
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Budgets {
+        private Budget addSong;
+        private Budget removeSong;
+        private Budget playbackState;
+        private Budget nextSong;
+        private Budget other;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Budget {
+        private int capacity; // Largest burst admitted at once
+        private double refillPerSecond; // Sustained rate
+    }
+}
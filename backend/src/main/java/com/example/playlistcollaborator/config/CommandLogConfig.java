@@ -0,0 +1,92 @@
+// Purpose: Opens the local command log, replays it into Postgres, and wires the checkpointer.
+
+package com.example.playlistcollaborator.config;
+
+import com.example.playlistcollaborator.commandlog.CommandLogCheckpointer;
+import com.example.playlistcollaborator.commandlog.SegmentedCommandLog;
+import com.example.playlistcollaborator.repository.CommandLogCheckpointRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Only active when playlist.command-log.enabled=true; LoggedRoomService then takes over
+ * room mutations from RoomServiceImpl.
+ *
+ * Recovery happens while the log bean is created, i.e. before any controller can
+ * receive a command: every command after the stored checkpoint is replayed into
+ * Postgres, after which the database is authoritative again and room state is
+ * rebuilt lazily from it.
+ *
+ * Room queues and the log live in this process only, so every room must be written by
+ * exactly one instance: one backend with its own log directory. A second instance would
+ * serve and checkpoint its own copy of the same rooms. The fast-startup profile is the one
+ * used to scale out backend replicas, so startup fails if the command log is enabled
+ * together with it.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "playlist.command-log", name = "enabled", havingValue = "true")
+@Slf4j
+public class CommandLogConfig {
+
+    static final String REPLICATED_PROFILE = "fast-startup";
+
+    public CommandLogConfig(Environment environment) {
+        if (environment.acceptsProfiles(Profiles.of(REPLICATED_PROFILE))) {
+            throw new IllegalStateException("playlist.command-log.enabled=true keeps room state in one instance"
+                    + " and cannot be used with the '" + REPLICATED_PROFILE + "' profile, which runs several replicas");
+        }
+    }
+
+    @Bean
+    public CommandLogCheckpointer commandLogCheckpointer(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            CommandLogCheckpointRepository checkpointRepository,
+            @Value("${playlist.command-log.directory:./data/command-log}") String directory,
+            @Value("${playlist.command-log.checkpoint-batch-size:1000}") int batchSize,
+            MeterRegistry meterRegistry) throws IOException {
+        String logId = SegmentedCommandLog.readOrCreateLogId(Path.of(directory));
+        CommandLogCheckpointer checkpointer = new CommandLogCheckpointer(
+                jdbcTemplate, transactionManager, checkpointRepository, logId, batchSize);
+        Gauge.builder("playlist.command-log.pending", checkpointer, CommandLogCheckpointer::getPendingCount)
+                .description("Commands logged locally but not yet checkpointed to the database")
+                .register(meterRegistry);
+        return checkpointer;
+    }
+
+    @Bean(destroyMethod = "close")
+    public SegmentedCommandLog commandLog(
+            CommandLogCheckpointer checkpointer,
+            @Value("${playlist.command-log.directory:./data/command-log}") String directory,
+            @Value("${playlist.command-log.segment-bytes:67108864}") int segmentBytes,
+            @Value("${playlist.command-log.flush-interval-ms:5}") long flushIntervalMillis,
+            MeterRegistry meterRegistry) throws IOException {
+        long checkpoint = checkpointer.loadCheckpoint();
+        SegmentedCommandLog commandLog = new SegmentedCommandLog(
+                Path.of(directory), segmentBytes, flushIntervalMillis, checkpoint + 1, checkpointer::enqueue);
+
+        long replayed = commandLog.replay(checkpoint, checkpointer::enqueue);
+        while (checkpointer.checkpointBatch() > 0) {
+            // Drain everything the previous process logged but never checkpointed
+        }
+        int compacted = commandLog.compact(checkpointer.getCheckpointedSequence());
+        log.info("Command log {} recovered: {} command(s) replayed after checkpoint {}, {} segment(s) compacted",
+                checkpointer.getLogId(), replayed, checkpoint, compacted);
+
+        Gauge.builder("playlist.command-log.segments", commandLog, SegmentedCommandLog::getSegmentCount)
+                .register(meterRegistry);
+        return commandLog;
+    }
+}
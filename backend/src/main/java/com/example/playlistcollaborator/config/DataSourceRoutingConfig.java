@@ -0,0 +1,91 @@
+// Purpose: Wires separate primary and replica connection pools behind a read/write routing DataSource.
+
+package com.example.playlistcollaborator.config;
+
+import com.example.playlistcollaborator.datasource.ReplicaLagMonitor;
+import com.example.playlistcollaborator.datasource.ReplicaReadPolicy;
+import com.example.playlistcollaborator.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+/**
+ * Only active when playlist.datasource.replica.url is set; otherwise Spring Boot's
+ * single auto-configured pool is used unchanged.
+ *
+ * Each target gets its own Hikari pool ("primary-pool", "replica-pool"), sized from
+ * spring.datasource.hikari.* and playlist.datasource.replica.hikari.* respectively.
+ * Because both pools are beans, Actuator publishes hikaricp.* metrics for each under
+ * its pool name. Flyway always migrates through the primary pool.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "playlist.datasource.replica", name = "url")
+public class DataSourceRoutingConfig {
+
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary-pool");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("playlist.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(
+            DataSourceProperties properties,
+            @Value("${playlist.datasource.replica.url}") String url,
+            @Value("${playlist.datasource.replica.username:${spring.datasource.username}}") String username,
+            @Value("${playlist.datasource.replica.password:${spring.datasource.password}}") String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.getDriverClassName())
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName("replica-pool");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    /**
+     * The DataSource JPA and everything else sees. The lazy proxy defers choosing a pool
+     * until the first statement, by which time the transaction's read-only flag is bound.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            @Qualifier("primaryDataSource") DataSource primaryDataSource,
+            @Qualifier("replicaDataSource") DataSource replicaDataSource,
+            ReplicaReadPolicy readPolicy) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource, readPolicy));
+        // Set explicitly so the proxy does not borrow a connection just to discover them
+        proxy.setDefaultAutoCommit(true);
+        proxy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        return proxy;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(
+            @Qualifier("replicaDataSource") DataSource replicaDataSource,
+            ReplicaReadPolicy readPolicy,
+            @Value("${playlist.datasource.replica.lag-check-interval-ms:1000}") long intervalMillis,
+            @Value("${playlist.datasource.replica.lag-check-timeout-ms:2000}") long timeoutMillis) {
+        return new ReplicaLagMonitor(replicaDataSource, readPolicy, intervalMillis, timeoutMillis);
+    }
+}
@@ -0,0 +1,118 @@
+// Purpose: Handshake handler that decides whether permessage-deflate may be negotiated on native WebSocket connections.
+
+package com.example.playlistcollaborator.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.websocket.Extension;
+import jakarta.websocket.server.ServerEndpointConfig;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.server.standard.StandardWebSocketUpgradeStrategy;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Tomcat offers permessage-deflate (RFC 7692) to every client that asks for it. That
+ * saves bandwidth on large playlist payloads, but each session then compresses its own
+ * copy of every frame, which costs CPU per subscriber on broadcasts. This handler keeps
+ * the extension or strips it from the negotiation, per playlist.websocket.permessage-deflate.
+ *
+ * Tomcat reports no installed extensions through the standard API and negotiates from
+ * the request header on its own, ignoring what Spring selected. The upgrade strategy
+ * below therefore declares permessage-deflate as supported and narrows the header the
+ * container sees to the extensions selected here.
+ */
+public class PerMessageDeflateHandshakeHandler extends DefaultHandshakeHandler {
+
+    static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+    private final boolean deflateEnabled;
+
+    public PerMessageDeflateHandshakeHandler(boolean deflateEnabled) {
+        super(new SelectedExtensionsUpgradeStrategy());
+        this.deflateEnabled = deflateEnabled;
+    }
+
+    @Override
+    protected List<WebSocketExtension> filterRequestedExtensions(ServerHttpRequest request,
+                                                                 List<WebSocketExtension> requestedExtensions,
+                                                                 List<WebSocketExtension> supportedExtensions) {
+        List<WebSocketExtension> filtered = super.filterRequestedExtensions(request, requestedExtensions, supportedExtensions);
+        if (deflateEnabled) {
+            return filtered;
+        }
+        return filtered.stream()
+                .filter(extension -> !PERMESSAGE_DEFLATE.equalsIgnoreCase(extension.getName()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Upgrades with a request whose Sec-WebSocket-Extensions header only offers the
+     * extensions the handshake handler selected.
+     */
+    static class SelectedExtensionsUpgradeStrategy extends StandardWebSocketUpgradeStrategy {
+
+        @Override
+        public List<WebSocketExtension> getSupportedExtensions(ServerHttpRequest request) {
+            List<WebSocketExtension> supported = new ArrayList<>(super.getSupportedExtensions(request));
+            if (supported.stream().noneMatch(extension -> PERMESSAGE_DEFLATE.equalsIgnoreCase(extension.getName()))) {
+                supported.add(new WebSocketExtension(PERMESSAGE_DEFLATE));
+            }
+            return supported;
+        }
+
+        @Override
+        protected void upgradeHttpToWebSocket(HttpServletRequest request, HttpServletResponse response,
+                                              ServerEndpointConfig endpointConfig, Map<String, String> pathParams)
+                throws Exception {
+            Set<String> selected = endpointConfig.getExtensions().stream()
+                    .map(Extension::getName)
+                    .collect(Collectors.toSet());
+            super.upgradeHttpToWebSocket(new SelectedExtensionsRequest(request, selected), response, endpointConfig, pathParams);
+        }
+    }
+
+    private static final class SelectedExtensionsRequest extends HttpServletRequestWrapper {
+        private final Set<String> selected;
+
+        SelectedExtensionsRequest(HttpServletRequest request, Set<String> selected) {
+            super(request);
+            this.selected = selected;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (!WebSocketHttpHeaders.SEC_WEBSOCKET_EXTENSIONS.equalsIgnoreCase(name)) {
+                return super.getHeader(name);
+            }
+            List<String> offers = selectedOffers();
+            return offers.isEmpty() ? null : String.join(", ", offers);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            if (!WebSocketHttpHeaders.SEC_WEBSOCKET_EXTENSIONS.equalsIgnoreCase(name)) {
+                return super.getHeaders(name);
+            }
+            return Collections.enumeration(selectedOffers());
+        }
+
+        private List<String> selectedOffers() {
+            return Collections.list(super.getHeaders(WebSocketHttpHeaders.SEC_WEBSOCKET_EXTENSIONS)).stream()
+                    .flatMap(header -> WebSocketExtension.parseExtensions(header).stream())
+                    .filter(extension -> selected.contains(extension.getName()))
+                    .map(WebSocketExtension::toString)
+                    .collect(Collectors.toList());
+        }
+    }
+}
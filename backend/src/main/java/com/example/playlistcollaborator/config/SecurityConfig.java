@@ -43,7 +43,7 @@ public class SecurityConfig {
                                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                                 .requestMatchers(HttpMethod.POST, "/api/rooms").permitAll()
                                 .requestMatchers(HttpMethod.GET, "/api/rooms/{publicId}").permitAll() // More specific for the GET
-                                .requestMatchers("/ws-playlist/**").permitAll()
+                                .requestMatchers("/ws-playlist/**", "/ws-playlist-native").permitAll()
                                 // Then, a broader permit for other /api GETs if needed, or more specific rules
                                 // .requestMatchers(HttpMethod.GET, "/api/**").permitAll() // If you have other general GET APIs
 
@@ -2,20 +2,41 @@
 
 package com.example.playlistcollaborator.config;
 
+import com.example.playlistcollaborator.broadcast.BroadcastSessionRegistry;
+import com.example.playlistcollaborator.broadcast.OutboundSessionLanes;
+import com.example.playlistcollaborator.broadcast.SharedFrameBroadcaster;
+import com.example.playlistcollaborator.flightrecorder.CommandRecordingInterceptor;
+import com.example.playlistcollaborator.heartbeat.SessionHeartbeatMonitor;
+import com.example.playlistcollaborator.interceptor.AdmissionControlInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
 import org.springframework.scheduling.annotation.EnableScheduling;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.context.annotation.Bean;
 
 @Configuration
 @EnableWebSocketMessageBroker
 @EnableScheduling
+@EnableConfigurationProperties({ AdmissionControlProperties.class, WebSocketTransportProperties.class })
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final AdmissionControlInterceptor admissionControlInterceptor;
+    private final SharedFrameBroadcaster sharedFrameBroadcaster;
+    private final BroadcastSessionRegistry broadcastSessionRegistry;
+    private final SessionHeartbeatMonitor sessionHeartbeatMonitor;
+    private final CommandRecordingInterceptor commandRecordingInterceptor;
+    private final WebSocketTransportProperties transportProperties;
+    // Becomes the clientOutboundChannelExecutor bean, which Spring initializes and shuts down
+    private final OutboundSessionLanes outboundSessionLanes = new OutboundSessionLanes();
+
     // Define allowed origins - React dev server and potentially production URL
     private final String[] ALLOWED_ORIGINS = {
             "http://localhost:3000",
@@ -24,16 +45,20 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     };
 
     /**
-     * Registers the STOMP endpoints, mapping each endpoint to a specific URL
-     * and enabling SockJS fallback options. SockJS is used to enable
-     * WebSocket emulation when WebSocket is not available (e.g., due to proxies).
+     * Registers the STOMP endpoints. Clients connect to the raw WebSocket endpoint
+     * first; the SockJS endpoint is only the fallback for networks where a plain
+     * WebSocket upgrade does not get through (e.g., some proxies).
      * 
      * @param registry STOMP endpoint registry
      */
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
-        // The endpoint clients will connect to for WebSocket communication.
-        // '/ws-playlist' is the HTTP URL for the WebSocket handshake.
+        // Primary: plain WebSocket, no SockJS framing, permessage-deflate negotiable
+        registry.addEndpoint("/ws-playlist-native")
+                .setAllowedOrigins(ALLOWED_ORIGINS)
+                .setHandshakeHandler(new PerMessageDeflateHandshakeHandler(transportProperties.isPermessageDeflate()));
+
+        // Fallback: '/ws-playlist' is the SockJS URL (HTTP streaming/polling when WebSocket is unavailable)
         registry.addEndpoint("/ws-playlist")
                 .setAllowedOrigins(ALLOWED_ORIGINS) // Allow connections from REact server
                 .withSockJS(); // Enable SockJS fallback options.
@@ -59,17 +84,70 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         // - "/topic" is typically used for publish-subscribe (one-to-many)
         // - "/queue" is typically used for point-to-point messaging (one-to-one, often
         // user-specific)
-        registry.enableSimpleBroker("/topic", "/queue")
-                .setHeartbeatValue(new long[] { 10000, 10000 })
-                .setTaskScheduler(heartBeatTaskScheduler());
+        // Heartbeats are not the broker's job here: SessionHeartbeatMonitor sends and
+        // checks them on a timing wheel instead of scanning every session each interval.
+        registry.enableSimpleBroker("/topic", "/queue");
+
+        // 3. Room topics are framed once per broadcast instead of once per subscriber
+        // (see SharedFrameBroadcaster); the frames still go out on the client outbound channel.
+        registry.configureBrokerChannel().interceptors(sharedFrameBroadcaster);
+    }
+
+    /**
+     * Runs the admission layer on every inbound client frame before it is
+     * dispatched to @MessageMapping handlers or the broker, and records a flight
+     * recorder event around each admitted room command.
+     *
+     * @param registration Client inbound channel registration
+     */
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(admissionControlInterceptor, commandRecordingInterceptor);
+    }
+
+    /**
+     * Delivers each session's frames in publish order (see OutboundSessionLanes) and
+     * lets the heartbeat monitor advertise its heartbeat values in CONNECTED frames and
+     * arm each session's timers. The lanes come last so they tag the final message.
+     *
+     * @param registration Client outbound channel registration
+     */
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.executor(outboundSessionLanes)
+                .interceptors(sessionHeartbeatMonitor, outboundSessionLanes);
+    }
+
+    /**
+     * Applies the STOMP transport limits and lets heartbeats write to the same
+     * per-session send wrapper as the STOMP handler. The heartbeat monitor is
+     * added last, making it the outermost decorator, so it sees every frame.
+     *
+     * @param registration WebSocket transport registration
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setMessageSizeLimit(transportProperties.getMessageSizeLimit())
+                .setSendTimeLimit(transportProperties.getSendTimeLimitMs())
+                .setSendBufferSizeLimit(transportProperties.getSendBufferSizeLimit())
+                .addDecoratorFactory(broadcastSessionRegistry)
+                .addDecoratorFactory(sessionHeartbeatMonitor);
     }
 
+    /**
+     * Tunes the servlet container's WebSocket buffers and timeouts. Tomcat's default
+     * 8 KB read buffer would close the session on a larger STOMP frame before the
+     * message size limit above is ever checked.
+     *
+     * @return Factory that configures the container's jakarta.websocket ServerContainer
+     */
     @Bean
-    public ThreadPoolTaskScheduler heartBeatTaskScheduler() {
-        ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
-        taskScheduler.setPoolSize(1);
-        taskScheduler.setThreadNamePrefix("wss-heartbeat-");
-        taskScheduler.initialize();
-        return taskScheduler;
+    public ServletServerContainerFactoryBean webSocketContainer() {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxTextMessageBufferSize(transportProperties.getTextBufferSize());
+        container.setMaxBinaryMessageBufferSize(transportProperties.getBinaryBufferSize());
+        container.setAsyncSendTimeout((long) transportProperties.getSendTimeLimitMs());
+        container.setMaxSessionIdleTimeout(transportProperties.getIdleTimeoutMs());
+        return container;
     }
-}
\ No newline at end of file
+}
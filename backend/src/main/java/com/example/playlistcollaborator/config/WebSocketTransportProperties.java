@@ -0,0 +1,29 @@
+// Purpose: WebSocket container and STOMP transport limits, bound from "playlist.websocket.*" properties.
+
+package com.example.playlistcollaborator.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "playlist.websocket")
+public class WebSocketTransportProperties {
+
+    // Negotiate RFC 7692 compression on the native endpoint when the client offers it. Off by default:
+    // room frames are a few hundred bytes, and deflating them per session costs more CPU than it saves
+    private boolean permessageDeflate = false;
+
+    // Largest inbound STOMP message; room commands are a few hundred bytes
+    private int messageSizeLimit = 16 * 1024;
+
+    // Container read buffers: a whole inbound frame must fit, so keep them >= messageSizeLimit
+    private int textBufferSize = 16 * 1024;
+    private int binaryBufferSize = 16 * 1024;
+
+    // A session whose pending sends exceed either limit is closed instead of slowing the others
+    private int sendTimeLimitMs = 10_000;
+    private int sendBufferSizeLimit = 512 * 1024;
+
+    // Native sessions with no traffic at all (not even heartbeats) for this long are closed by the container
+    private long idleTimeoutMs = 60_000;
+}
@@ -3,19 +3,28 @@
 package com.example.playlistcollaborator.controller;
 
 import com.example.playlistcollaborator.dto.AddSongRequest;
+import com.example.playlistcollaborator.dto.CommandRejectedDto;
 import com.example.playlistcollaborator.dto.NextSongMessageDto;
 import com.example.playlistcollaborator.dto.PlaybackStateDto;
 import com.example.playlistcollaborator.dto.PlaylistSongDto;
+import com.example.playlistcollaborator.dto.RoomLeaderDto;
 import com.example.playlistcollaborator.dto.RemoveSongRequest;
 import com.example.playlistcollaborator.dto.SongRemovedResponse;
+import com.example.playlistcollaborator.exception.NotRoomLeaderException;
+import com.example.playlistcollaborator.service.AutoAdvanceService;
+import com.example.playlistcollaborator.service.RoomPresenceService;
 import com.example.playlistcollaborator.service.RoomService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.stereotype.Controller;
 import com.example.playlistcollaborator.dto.NextSongRequestDto;
 
@@ -25,6 +34,11 @@ import com.example.playlistcollaborator.dto.NextSongRequestDto;
 public class PlaylistController {
 
     private final RoomService roomService;
+    private final RoomPresenceService presenceService;
+    private final AutoAdvanceService autoAdvanceService;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private static final String ERRORS_DESTINATION = "/queue/errors";
 
     /**
      * Handles requests to add a song to a specific room's playlist.
@@ -44,14 +58,12 @@ public class PlaylistController {
             @DestinationVariable String publicId, 
             @Payload AddSongRequest request) throws Exception { 
 
-        log.info("PlaylistController received AddSongRequest: {}", request.toString()); 
-
         log.info("Received request to add song {} - {} (VideoID: {}) to room {} by user {}",
                 request.getTitle(), request.getArtist(), request.getYoutubeVideoId(), publicId, request.getUsername());
 
         PlaylistSongDto addedSong = roomService.addSongToRoom(publicId, request);
 
-        log.info("Broadcasting added song {} to /topic/room/{}/songs", addedSong.getId(), publicId);
+        log.debug("Broadcasting added song {} to /topic/room/{}/songs", addedSong.getId(), publicId);
         return addedSong;
     }
 
@@ -69,7 +81,7 @@ public class PlaylistController {
             throw e;
         }
 
-        log.info("Broadcasting removed song ID {} to /topic/room/{}/songRemoved", request.getSongId(), publicId);
+        log.debug("Broadcasting removed song ID {} to /topic/room/{}/songRemoved", request.getSongId(), publicId);
         return new SongRemovedResponse(request.getSongId());
     }
 
@@ -80,21 +92,73 @@ public class PlaylistController {
             @Payload PlaybackStateDto playbackState,
             SimpMessageHeaderAccessor headerAccessor) { // For getting session attributes/user info
 
+        requireLeader(publicId, headerAccessor);
+        autoAdvanceService.onPlaybackState(publicId, playbackState); // play/seek re-arm, pause disarms
         log.debug("Broadcasting playback state for room {}: {}", publicId, playbackState);
         return playbackState; // broadcast the received state to all subscribers
     }
 
     @MessageMapping("/room/{publicId}/nextSong")
     @SendTo("/topic/room/{publicId}/nextSong")
-    public NextSongMessageDto nextSong(@DestinationVariable String publicId, @Payload NextSongMessageDto message) {
-        log.info("Relaying nextSong event for room {}", publicId);
+    public NextSongMessageDto nextSong(
+            @DestinationVariable String publicId,
+            @Payload NextSongMessageDto message,
+            SimpMessageHeaderAccessor headerAccessor) {
+        requireLeader(publicId, headerAccessor);
+        log.debug("Relaying nextSong event for room {}", publicId);
         return message;
     }
 
     @MessageMapping("/room/{publicId}/requestNextSong")
     public void requestNextSong(
             @DestinationVariable String publicId,
-            @Payload NextSongRequestDto request) {
-        roomService.advanceToNextSong(publicId, request.getUsername());
+            @Payload NextSongRequestDto request,
+            SimpMessageHeaderAccessor headerAccessor) {
+        requireLeader(publicId, headerAccessor);
+        autoAdvanceService.advance(publicId, request.getUsername(), request.getSongId());
+    }
+
+    /**
+     * Replies once, straight to the subscribing session, with the room's current leader.
+     * Clients subscribe to "/app/room/{publicId}/leader" after their "/topic/room/{publicId}/**"
+     * subscriptions. The leader broadcast sent when they join can arrive before the broker has
+     * registered their "/topic/room/{publicId}/leader" subscription, so they may miss it.
+     *
+     * @param publicId The public ID of the room from the destination path.
+     * @return The current leader and listener count.
+     */
+    @SubscribeMapping("/room/{publicId}/leader")
+    public RoomLeaderDto currentLeader(@DestinationVariable String publicId) {
+        return presenceService.getLeader(publicId);
+    }
+
+    /**
+     * Playback commands from sessions that are not the room's elected leader are
+     * dropped here instead of being broadcast, so a stale client cannot fight the DJ.
+     * The sender alone is told on "/user/queue/errors", as with rate-limited commands.
+     */
+    @MessageExceptionHandler(NotRoomLeaderException.class)
+    public void handleNotRoomLeader(NotRoomLeaderException e, SimpMessageHeaderAccessor headerAccessor) {
+        log.debug("Rejected playback command: {}", e.getMessage());
+        String sessionId = headerAccessor.getSessionId();
+        String destination = headerAccessor.getDestination();
+        if (sessionId == null || destination == null) {
+            return;
+        }
+        // Addressing "/user/{sessionId}/..." with the session id header set delivers to that session only
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(sessionId);
+        headers.setLeaveMutable(true);
+        String command = destination.substring(destination.lastIndexOf('/') + 1); // e.g. "playbackState"
+        CommandRejectedDto rejection = new CommandRejectedDto(command, e.getPublicId(), "Only the DJ can do this");
+        messagingTemplate.convertAndSendToUser(sessionId, ERRORS_DESTINATION, rejection, headers.getMessageHeaders());
+    }
+
+    // --- Helper Methods ---
+    private void requireLeader(String publicId, SimpMessageHeaderAccessor headerAccessor) {
+        String sessionId = headerAccessor.getSessionId();
+        if (!presenceService.isLeader(publicId, sessionId)) {
+            throw new NotRoomLeaderException(publicId, sessionId);
+        }
     }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@
 
 package com.example.playlistcollaborator.controller;
 
+import com.example.playlistcollaborator.datasource.ReplicaReadPolicy;
 import com.example.playlistcollaborator.dto.CreateRoomDto;
 import com.example.playlistcollaborator.dto.RoomDto;
 import com.example.playlistcollaborator.exception.RoomNotFoundException;
@@ -19,6 +20,7 @@ import org.springframework.web.bind.annotation.*;
 public class RoomController {
 
     private final RoomService roomService; 
+    private final ReplicaReadPolicy replicaReadPolicy;
 
     /**
      * POST /api/rooms
@@ -28,10 +30,10 @@ public class RoomController {
      */
     @PostMapping
     public ResponseEntity<RoomDto> createRoom(@RequestBody(required = false) CreateRoomDto createRoomDto) {
-        log.info("RoomController: createRoom - START"); // Or System.out.println
+        log.debug("RoomController: createRoom - START");
         CreateRoomDto request = (createRoomDto != null) ? createRoomDto : new CreateRoomDto();
         RoomDto newRoom = roomService.createRoom(request);
-        log.info("RoomController: createRoom - END, newRoom.publicId: " + newRoom.getPublicId());
+        log.info("Created room {}", newRoom.getPublicId());
         return new ResponseEntity<>(newRoom, HttpStatus.CREATED);
     }
 
@@ -39,11 +41,15 @@ public class RoomController {
      * GET /api/rooms/{publicId}
      * Retrieves the details of a specific room, including its playlist.
      * @param publicId The public identifier of the room from the URL path.
+     * @param lastWriteAgeMillis X-Last-Write-Age-Ms header: how long ago this client last changed the room, if it did.
+     *                           A recent write keeps the read off the replica, whichever instance took the write.
      * @return ResponseEntity containing the RoomDto if found, or throws RoomNotFoundException (handled by @ResponseStatus).
      */
     @GetMapping("/{publicId}")
-    public ResponseEntity<RoomDto> getRoomByPublicId(@PathVariable String publicId) {
-        return roomService.findRoomByPublicId(publicId)
+    public ResponseEntity<RoomDto> getRoomByPublicId(
+            @PathVariable String publicId,
+            @RequestHeader(value = "X-Last-Write-Age-Ms", required = false) Long lastWriteAgeMillis) {
+        return replicaReadPolicy.readAfterClientWrite(lastWriteAgeMillis, () -> roomService.findRoomByPublicId(publicId))
                 .map(ResponseEntity::ok) // If found, return 200 OK with the RoomDto
                 .orElseThrow(() -> new RoomNotFoundException(publicId)); // If not found, throw exception (results in 404)
 
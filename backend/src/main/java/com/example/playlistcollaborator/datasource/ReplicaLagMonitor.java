@@ -0,0 +1,74 @@
+// Purpose: Periodically measures how far the read replica is behind the primary.
+
+package com.example.playlistcollaborator.datasource;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs on its own thread rather than the shared @Scheduled one. When the replica is
+ * down, borrowing a connection can wait for the replica pool's full connection timeout,
+ * and that must not hold up unrelated scheduled work such as command log checkpoints.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    // 0 when the replica has replayed everything it received; otherwise the age of the
+    // last replayed transaction. An idle primary therefore does not look like lag.
+    private static final String LAG_QUERY =
+            "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+                    + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+
+    private final DataSource replicaDataSource;
+    private final ReplicaReadPolicy readPolicy;
+    private final int queryTimeoutSeconds;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param replicaDataSource The replica pool.
+     * @param readPolicy Receives each measurement.
+     * @param intervalMillis Delay between the end of one check and the start of the next.
+     * @param queryTimeoutMillis Longest a lag query may run; rounded up to whole seconds for JDBC.
+     */
+    public ReplicaLagMonitor(DataSource replicaDataSource, ReplicaReadPolicy readPolicy,
+                             long intervalMillis, long queryTimeoutMillis) {
+        this.replicaDataSource = replicaDataSource;
+        this.readPolicy = readPolicy;
+        this.queryTimeoutSeconds = (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(queryTimeoutMillis + 999));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("replica-lag-"));
+        scheduler.scheduleWithFixedDelay(this::checkLag, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void checkLag() {
+        try (Connection connection = replicaDataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(queryTimeoutSeconds);
+            try (ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+                resultSet.next();
+                readPolicy.updateReplicaLag(resultSet.getLong(1));
+            }
+        } catch (SQLException e) {
+            log.debug("Replica lag check failed: {}", e.getMessage());
+            readPolicy.markReplicaUnavailable();
+        } catch (RuntimeException e) {
+            // Keep the schedule alive; an exception would cancel further checks
+            log.warn("Replica lag check failed unexpectedly", e);
+            readPolicy.markReplicaUnavailable();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
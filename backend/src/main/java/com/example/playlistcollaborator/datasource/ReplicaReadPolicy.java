@@ -0,0 +1,193 @@
+// Purpose: Decides whether a read-only transaction may use the replica (lag-aware, read-your-writes).
+
+package com.example.playlistcollaborator.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Routing state shared by {@link ReplicaRoutingDataSource} and the services.
+ *
+ * Writes to a room are recorded when their transaction commits. For a short window
+ * afterwards (the configured read-your-writes window plus the replica's current lag)
+ * reads of that room made through {@link #read} are pinned to the primary, so the
+ * client that just added a song never reloads the room from a replica that has not
+ * replayed it yet. If the replica falls further behind than max-lag-ms, or the lag
+ * check fails, every read goes to the primary until it recovers.
+ *
+ * Recorded writes live in this JVM only, so {@link #read} covers writes handled by this
+ * instance. With several backend instances a client's next request can land on another
+ * one, so clients also report how long ago they last wrote to the room (measured on
+ * their own clock, so no clocks need to agree) and {@link #readAfterClientWrite} pins
+ * the request to the primary on any instance.
+ *
+ * When no replica URL is configured all of this is a no-op.
+ */
+@Component
+@Slf4j
+public class ReplicaReadPolicy {
+
+    private static final ThreadLocal<Boolean> PRIMARY_PINNED = new ThreadLocal<>();
+
+    private final boolean replicaConfigured;
+    private final long readYourWritesWindowNanos;
+    private final long maxLagMillis;
+    private final ConcurrentHashMap<String, Long> lastWriteNanos = new ConcurrentHashMap<>();
+    private volatile long replicaLagMillis;
+    private volatile boolean replicaAvailable = true;
+
+    public ReplicaReadPolicy(
+            @Value("${playlist.datasource.replica.url:}") String replicaUrl,
+            @Value("${playlist.datasource.replica.read-your-writes-window-ms:2000}") long readYourWritesWindowMillis,
+            @Value("${playlist.datasource.replica.max-lag-ms:5000}") long maxLagMillis,
+            MeterRegistry meterRegistry) {
+        this.replicaConfigured = !replicaUrl.isBlank();
+        this.readYourWritesWindowNanos = TimeUnit.MILLISECONDS.toNanos(readYourWritesWindowMillis);
+        this.maxLagMillis = maxLagMillis;
+        if (replicaConfigured) {
+            Gauge.builder("playlist.datasource.replica.lag", this, policy -> policy.replicaLagMillis)
+                    .baseUnit("milliseconds")
+                    .description("Replay lag of the read replica as last measured")
+                    .register(meterRegistry);
+            Gauge.builder("playlist.datasource.replica.available", this, policy -> policy.isReplicaUsable() ? 1 : 0)
+                    .description("1 if read-only transactions are currently routed to the replica")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Records a write to the given key (a room's publicId). Takes effect when the
+     * surrounding transaction commits, or immediately if there is none.
+     * @param key The room that was written.
+     */
+    public void recordWrite(String key) {
+        if (!replicaConfigured || key == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    lastWriteNanos.put(key, System.nanoTime());
+                }
+            });
+        } else {
+            lastWriteNanos.put(key, System.nanoTime());
+        }
+    }
+
+    /**
+     * Runs a read of the given key, pinned to the primary if the key was written recently.
+     * Must be called inside the read-only transaction but before its first query, which
+     * is when the lazy connection proxy picks a target.
+     * @param key The room being read.
+     * @param reader The read to perform.
+     * @return The reader's result.
+     */
+    public <T> T read(String key, Supplier<T> reader) {
+        if (!replicaConfigured || !recentlyWritten(key)) {
+            return reader.get();
+        }
+        return onPrimary(reader);
+    }
+
+    /**
+     * Runs a read pinned to the primary if the client says it wrote within the window,
+     * whichever instance handled that write.
+     * @param clientWriteAgeMillis Milliseconds since the client's last write, as it reported them; null if none.
+     * @param reader The read to perform.
+     * @return The reader's result.
+     */
+    public <T> T readAfterClientWrite(Long clientWriteAgeMillis, Supplier<T> reader) {
+        if (!replicaConfigured || clientWriteAgeMillis == null
+                || TimeUnit.MILLISECONDS.toNanos(Math.max(clientWriteAgeMillis, 0)) >= windowNanos()) {
+            return reader.get();
+        }
+        return onPrimary(reader);
+    }
+
+    /**
+     * @return true if a read-only transaction on this thread may use the replica.
+     */
+    public boolean shouldUseReplica() {
+        return PRIMARY_PINNED.get() == null && isReplicaUsable();
+    }
+
+    /**
+     * Called by the lag monitor after each successful measurement.
+     * @param lagMillis The replica's current replay lag.
+     */
+    public void updateReplicaLag(long lagMillis) {
+        boolean wasUsable = isReplicaUsable();
+        replicaLagMillis = lagMillis;
+        replicaAvailable = true;
+        logTransition(wasUsable);
+    }
+
+    /**
+     * Called by the lag monitor when the replica cannot be reached.
+     */
+    public void markReplicaUnavailable() {
+        boolean wasUsable = isReplicaUsable();
+        replicaAvailable = false;
+        logTransition(wasUsable);
+    }
+
+    /**
+     * Forgets writes that are older than any window we could still need.
+     */
+    @Scheduled(fixedDelayString = "${playlist.datasource.replica.sweep-interval-ms:60000}")
+    public void evictExpiredWrites() {
+        if (replicaConfigured) {
+            long now = System.nanoTime();
+            lastWriteNanos.values().removeIf(writtenAt -> now - writtenAt > windowNanos());
+        }
+    }
+
+    // --- Helper Methods ---
+
+    private static <T> T onPrimary(Supplier<T> reader) {
+        Boolean previous = PRIMARY_PINNED.get();
+        PRIMARY_PINNED.set(Boolean.TRUE);
+        try {
+            return reader.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY_PINNED.remove();
+            }
+        }
+    }
+
+    private boolean isReplicaUsable() {
+        return replicaAvailable && replicaLagMillis <= maxLagMillis;
+    }
+
+    private boolean recentlyWritten(String key) {
+        Long writtenAt = key != null ? lastWriteNanos.get(key) : null;
+        return writtenAt != null && System.nanoTime() - writtenAt < windowNanos();
+    }
+
+    private long windowNanos() {
+        return readYourWritesWindowNanos + TimeUnit.MILLISECONDS.toNanos(replicaLagMillis);
+    }
+
+    private void logTransition(boolean wasUsable) {
+        boolean usable = isReplicaUsable();
+        if (wasUsable && !usable) {
+            log.warn("Read replica unusable (available={}, lag={} ms, max={} ms); routing reads to primary",
+                    replicaAvailable, replicaLagMillis, maxLagMillis);
+        } else if (!wasUsable && usable) {
+            log.info("Read replica caught up (lag={} ms); routing read-only transactions to replica", replicaLagMillis);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+// Purpose: Routes read-only transactions to the replica pool and everything else to the primary pool.
+
+package com.example.playlistcollaborator.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Must be wrapped in a LazyConnectionDataSourceProxy: the transaction's read-only flag
+ * is only bound after the transaction manager has asked for a connection, so the real
+ * connection has to be fetched lazily, at the first statement.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target { PRIMARY, REPLICA }
+
+    private final ReplicaReadPolicy readPolicy;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaReadPolicy readPolicy) {
+        this.readPolicy = readPolicy;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && readPolicy.shouldUseReplica()) {
+            return Target.REPLICA;
+        }
+        return Target.PRIMARY;
+    }
+}
@@ -14,4 +14,5 @@ public class AddSongRequest {
     private String title;
     private String artist;
     private String username;
+    private Integer durationSeconds; // Optional; with title and artist, the YouTube lookup is skipped
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+// Purpose: DTO sent to a single session on "/user/queue/errors" when one of its room commands is rejected.
+
+package com.example.playlistcollaborator.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommandRejectedDto {
+    private String command; // Command type that was rejected, e.g. "addSong"
+    private String roomId; // Public id of the room the command was sent to
+    private String reason; // Human-readable reason, e.g. "Rate limit exceeded (session)"
+}
@@ -3,8 +3,11 @@ package com.example.playlistcollaborator.dto;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.UUID;
+
 @Data
 @NoArgsConstructor
 public class NextSongRequestDto {
   private String username;
+  private UUID songId; // The song the client believes is playing; the advance is skipped if it has already moved on
 }
\ No newline at end of file
@@ -18,4 +18,5 @@ public class PlaylistSongDto {
     private LocalDateTime addedAt;
     private String addedByUsername;
     private String youtubeVideoId;
+    private Integer durationSeconds;
 }
\ No newline at end of file
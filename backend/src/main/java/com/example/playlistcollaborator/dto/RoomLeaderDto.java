@@ -0,0 +1,16 @@
+// Purpose: DTO broadcast to a room whenever its playback leader or listener count changes.
+
+package com.example.playlistcollaborator.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomLeaderDto {
+    private String leaderUsername; // Username of the session currently holding the DJ role (null if room is empty)
+    private String leaderConnectionId; // Connection id the leader's client sent on CONNECT; clients compare their own to it
+    private int listenerCount; // Number of distinct sessions subscribed to the room
+}
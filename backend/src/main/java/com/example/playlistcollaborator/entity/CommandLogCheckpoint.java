@@ -0,0 +1,23 @@
+// Purpose: JPA Entity holding the highest command-log sequence already applied to the database.
+
+package com.example.playlistcollaborator.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Entity
+@Table(name = "command_log_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommandLogCheckpoint {
+
+    @Id
+    @Column(name = "log_id", length = 36)
+    private String logId; // One row per command log directory, see SegmentedCommandLog.readOrCreateLogId
+
+    @Column(name = "last_sequence", nullable = false)
+    private Long lastSequence;
+}
@@ -42,6 +42,9 @@ public class PlaylistSong {
     @Column(name = "added_by_username", nullable = true) // Or false if username is always required
     private String addedByUsername;
 
+    @Column(name = "duration_seconds", nullable = true) // From YouTube contentDetails; null if unknown
+    private Integer durationSeconds;
+
     @PrePersist
     protected void onAdd() {
         this.addedAt = LocalDateTime.now();
@@ -0,0 +1,14 @@
+// Purpose: Raised when the command log holds a damaged record anywhere other than its tail.
+
+package com.example.playlistcollaborator.exception;
+
+public class CommandLogCorruptedException extends RuntimeException {
+
+    public CommandLogCorruptedException(String message) {
+        super(message);
+    }
+
+    public CommandLogCorruptedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
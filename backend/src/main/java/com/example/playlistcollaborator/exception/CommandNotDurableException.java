@@ -0,0 +1,14 @@
+// Purpose: Raised when a logged room command is not confirmed on disk in time, so the caller must not treat it as saved.
+
+package com.example.playlistcollaborator.exception;
+
+public class CommandNotDurableException extends RuntimeException {
+
+    public CommandNotDurableException(String message) {
+        super(message);
+    }
+
+    public CommandNotDurableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,24 @@
+// Purpose: Custom exception for playback commands sent by a session that is not the room's leader.
+
+package com.example.playlistcollaborator.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.FORBIDDEN)
+public class NotRoomLeaderException extends RuntimeException {
+
+    private final String publicId;
+
+    public NotRoomLeaderException(String publicId, String sessionId) {
+        super("Session " + sessionId + " is not the leader of room: " + publicId);
+        this.publicId = publicId;
+    }
+
+    /**
+     * @return The public id of the room the command was sent to.
+     */
+    public String getPublicId() {
+        return publicId;
+    }
+}
@@ -0,0 +1,53 @@
+// Purpose: Flight recorder event for one room broadcast handed to its subscribers.
+
+package com.example.playlistcollaborator.flightrecorder;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("playlist.Broadcast")
+@Label("Room Broadcast")
+@Description("Framing a room broadcast and queueing it for every subscribed session")
+public class BroadcastEvent extends PlaylistEvent {
+
+    @Label("Destination")
+    String destination;
+
+    @Label("Sessions")
+    int sessions;
+
+    @Label("Frames Encoded")
+    int framesEncoded;
+
+    @Label("Frame Bytes")
+    @Description("Bytes of STOMP frames encoded, shared by every session that receives them")
+    @DataAmount
+    long frameBytes;
+
+    /**
+     * @param destination The room topic.
+     * @param payloadBytes Size of the already serialized payload, added to the thread's serialized bytes.
+     */
+    public BroadcastEvent(String destination, int payloadBytes) {
+        this.destination = destination;
+        start(isEnabled() ? roomIdOf(destination) : null);
+        OperationTrace.current().addSerializedBytes(payloadBytes);
+    }
+
+    public void delivered(int sessions, int framesEncoded, long frameBytes) {
+        this.sessions = sessions;
+        this.framesEncoded = framesEncoded;
+        this.frameBytes = frameBytes;
+    }
+
+    // --- Helper Methods ---
+
+    // "/topic/room/{publicId}/..." -> publicId
+    private static String roomIdOf(String destination) {
+        int start = "/topic/room/".length();
+        int end = destination.indexOf('/', start);
+        return end > start ? destination.substring(start, end) : null;
+    }
+}
@@ -0,0 +1,25 @@
+// Purpose: Flight recorder event for one inbound STOMP command, from handler entry to the end of its broadcast.
+
+package com.example.playlistcollaborator.flightrecorder;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("playlist.Command")
+@Label("Playlist Command")
+@Description("A PlaylistController command, including the room service work and broadcasts it triggered")
+public class CommandEvent extends PlaylistEvent {
+
+    @Label("Command")
+    String command;
+
+    @Label("Session")
+    String sessionId;
+
+    CommandEvent(String roomId, String command, String sessionId) {
+        this.command = command;
+        this.sessionId = sessionId;
+        start(roomId);
+    }
+}
@@ -0,0 +1,71 @@
+// Purpose: Records a flight recorder event around every room command handled from the clientInboundChannel.
+
+package com.example.playlistcollaborator.flightrecorder;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.annotation.support.SimpAnnotationMethodMessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+/**
+ * beforeHandle and afterMessageHandled run on the inbound pool thread, around the
+ * @MessageMapping method and everything it does synchronously: the room service, the
+ * return value's JSON conversion and the broker channel send that broadcasts it. So a
+ * {@link CommandEvent} spans the whole command, and the room id set here lets nested
+ * events (a YouTube call, a broadcast) name the room without being told.
+ *
+ * The channel calls these hooks once per subscriber (the annotation handler, the broker
+ * and the user destination handler), so only the pass through the annotation handler,
+ * which runs the @MessageMapping method, is recorded.
+ *
+ * Frames rejected by admission control never reach this point and are not recorded.
+ */
+@Component
+public class CommandRecordingInterceptor implements ExecutorChannelInterceptor {
+
+    private static final String APP_ROOM_PREFIX = "/app/room/";
+
+    // One command at a time per inbound thread
+    private final ThreadLocal<CommandEvent> activeCommand = new ThreadLocal<>();
+
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        if (!(handler instanceof SimpAnnotationMethodMessageHandler)) {
+            return message;
+        }
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return message;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination == null || !destination.startsWith(APP_ROOM_PREFIX)) {
+            return message;
+        }
+        int commandStart = destination.indexOf('/', APP_ROOM_PREFIX.length());
+        if (commandStart < 0) {
+            return message;
+        }
+        String publicId = destination.substring(APP_ROOM_PREFIX.length(), commandStart);
+        OperationTrace.current().enterRoom(publicId);
+        activeCommand.set(new CommandEvent(publicId, destination.substring(commandStart + 1),
+                SimpMessageHeaderAccessor.getSessionId(message.getHeaders())));
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        if (!(handler instanceof SimpAnnotationMethodMessageHandler)) {
+            return;
+        }
+        CommandEvent event = activeCommand.get();
+        if (event == null) {
+            return;
+        }
+        activeCommand.remove();
+        event.finish();
+        OperationTrace.current().leaveRoom();
+    }
+}
@@ -0,0 +1,75 @@
+// Purpose: Keeps a bounded, always-on flight recording that includes the playlist events.
+
+package com.example.playlistcollaborator.flightrecorder;
+
+import jakarta.annotation.PostConstruct;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+
+/**
+ * Starts a recording named {@value #RECORDING_NAME} with the JDK's "default" settings
+ * (the low-overhead profile meant for production) plus every playlist.* event. The
+ * recording lives in the JFR repository on disk and only keeps the last max-age /
+ * max-size of data, so it can run indefinitely.
+ *
+ * It is written to playlist.jfr.dump-path when the JVM exits; a live copy
+ * can be taken at any time with
+ * {@code jcmd <pid> JFR.dump name=playlist-continuous filename=recording.jfr}.
+ * FlightRecordingReport summarizes either.
+ */
+@Component
+@ConditionalOnProperty(name = "playlist.jfr.continuous.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class ContinuousFlightRecording {
+
+    static final String RECORDING_NAME = "playlist-continuous";
+
+    private final String settings;
+    private final Duration maxAge;
+    private final long maxSizeBytes;
+    private final Path dumpPath;
+
+    public ContinuousFlightRecording(
+            @Value("${playlist.jfr.continuous.settings:default}") String settings,
+            @Value("${playlist.jfr.continuous.max-age:6h}") Duration maxAge,
+            @Value("${playlist.jfr.continuous.max-size-bytes:268435456}") long maxSizeBytes,
+            @Value("${playlist.jfr.dump-path:./data/jfr/playlist.jfr}") String dumpPath) {
+        this.settings = settings;
+        this.maxAge = maxAge;
+        this.maxSizeBytes = maxSizeBytes;
+        this.dumpPath = Paths.get(dumpPath);
+    }
+
+    @PostConstruct
+    public void start() throws IOException, ParseException {
+        Recording recording = new Recording(Configuration.getConfiguration(settings));
+        recording.setName(RECORDING_NAME);
+        recording.setToDisk(true);
+        recording.setMaxAge(maxAge);
+        recording.setMaxSize(maxSizeBytes);
+        // Written by the JDK's own shutdown hook; a Spring @PreDestroy would race it for the repository files
+        if (dumpPath.getParent() != null) {
+            Files.createDirectories(dumpPath.getParent());
+        }
+        recording.setDestination(dumpPath);
+        recording.setDumpOnExit(true);
+        recording.enable(CommandEvent.class);
+        recording.enable(RoomOperationEvent.class);
+        recording.enable(YouTubeCallEvent.class);
+        recording.enable(BroadcastEvent.class);
+        recording.start();
+        log.info("Continuous flight recording '{}' started (settings={}, max-age={}, max-size={} bytes)",
+                RECORDING_NAME, settings, maxAge, maxSizeBytes);
+    }
+}
@@ -0,0 +1,91 @@
+// Purpose: DataSource wrapper that adds time spent in JDBC statements and commits to the thread's OperationTrace.
+
+package com.example.playlistcollaborator.flightrecorder;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Times what actually waits on the database: Statement execute* calls (which, with the
+ * PostgreSQL driver's default fetch size, include reading the rows) and Connection
+ * commit/rollback. Borrowing a connection from the pool is not counted; Hikari reports
+ * that itself as hikaricp.connections.acquire.
+ *
+ * Connections and statements are wrapped in JDK proxies; the cost is one reflective call
+ * per JDBC method, which is small next to a network round trip to Postgres.
+ */
+public class DatabaseTimingDataSource extends DelegatingDataSource {
+
+    public DatabaseTimingDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return timed(Connection.class, super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return timed(Connection.class, super.getConnection(username, password));
+    }
+
+    // --- Helper Methods ---
+
+    private static <T> T timed(Class<T> type, T target) {
+        return type.cast(Proxy.newProxyInstance(DatabaseTimingDataSource.class.getClassLoader(),
+                new Class<?>[] { type }, new TimingHandler(target)));
+    }
+
+    private static final class TimingHandler implements InvocationHandler {
+        private final Object target;
+
+        TimingHandler(Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("equals")) {
+                return proxy == args[0];
+            }
+            if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            boolean waitsOnDatabase = name.startsWith("execute") || name.equals("commit") || name.equals("rollback");
+            long start = waitsOnDatabase ? System.nanoTime() : 0;
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            } finally {
+                if (waitsOnDatabase) {
+                    OperationTrace.current().addDbTime(System.nanoTime() - start);
+                }
+            }
+            // Statements are created from the connection, so wrap them as they are handed out
+            if (result instanceof CallableStatement && method.getReturnType() == CallableStatement.class) {
+                return timed(CallableStatement.class, (CallableStatement) result);
+            }
+            if (result instanceof PreparedStatement && method.getReturnType() == PreparedStatement.class) {
+                return timed(PreparedStatement.class, (PreparedStatement) result);
+            }
+            if (result instanceof Statement && method.getReturnType() == Statement.class) {
+                return timed(Statement.class, (Statement) result);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+// Purpose: Wraps the application's DataSource so JDBC time is attributed to flight recorder events.
+
+package com.example.playlistcollaborator.flightrecorder;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Only the bean named "dataSource" is wrapped: that is the one JPA uses, both for Spring
+ * Boot's single pool and for the routing proxy in DataSourceRoutingConfig. The pools
+ * behind the routing proxy are left alone so each statement is timed once. Pool metrics
+ * still find the Hikari pool, since Spring Boot unwraps DelegatingDataSource.
+ */
+@Component
+public class DatabaseTimingPostProcessor implements BeanPostProcessor {
+
+    private static final String DATA_SOURCE_BEAN = "dataSource";
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (DATA_SOURCE_BEAN.equals(beanName) && bean instanceof DataSource && !(bean instanceof DatabaseTimingDataSource)) {
+            return new DatabaseTimingDataSource((DataSource) bean);
+        }
+        return bean;
+    }
+}
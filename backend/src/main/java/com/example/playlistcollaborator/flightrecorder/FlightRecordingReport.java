@@ -0,0 +1,288 @@
+// Purpose: Offline summary of the playlist events in a flight recording: slowest operations, rooms and single events.
+
+package com.example.playlistcollaborator.flightrecorder;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Only uses the JDK, so it runs straight from source against a dump copied off a server:
+ * <pre>
+ * java backend/src/main/java/com/example/playlistcollaborator/flightrecorder/FlightRecordingReport.java recording.jfr [top]
+ * </pre>
+ * Three tables:
+ * <ul>
+ *   <li>operations (command, room service method, YouTube call, broadcast topic) by p99 duration;</li>
+ *   <li>rooms by total time, counting only top-level events, i.e. commands and the service
+ *       work not nested in a command on the same thread (auto-advance), so nothing is counted twice;</li>
+ *   <li>the slowest single events, with their DB, external-call and serialization breakdown.</li>
+ * </ul>
+ */
+public class FlightRecordingReport {
+
+    static final String COMMAND = "playlist.Command";
+    static final String ROOM_OPERATION = "playlist.RoomOperation";
+    static final String YOUTUBE_CALL = "playlist.YouTubeCall";
+    static final String BROADCAST = "playlist.Broadcast";
+
+    private static final int DEFAULT_TOP = 10;
+
+    private final List<Sample> samples;
+
+    /**
+     * @param events Events read from a recording; anything that is not a playlist event is ignored.
+     */
+    public FlightRecordingReport(List<RecordedEvent> events) {
+        this.samples = new ArrayList<>();
+        for (RecordedEvent event : events) {
+            String type = event.getEventType().getName();
+            if (type.equals(COMMAND) || type.equals(ROOM_OPERATION) || type.equals(YOUTUBE_CALL) || type.equals(BROADCAST)) {
+                samples.add(new Sample(event));
+            }
+        }
+        markNested(samples);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: FlightRecordingReport <recording.jfr> [top]");
+            System.exit(2);
+        }
+        Path path = Paths.get(args[0]);
+        int top = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_TOP;
+        FlightRecordingReport report = new FlightRecordingReport(RecordingFile.readAllEvents(path));
+        System.out.printf("%s: %,d playlist events%n", path, report.samples.size());
+        report.print(System.out, top);
+    }
+
+    /**
+     * @return Per-operation statistics, slowest p99 first.
+     */
+    public List<Stats> operations() {
+        Map<String, Stats> byOperation = new HashMap<>();
+        for (Sample sample : samples) {
+            byOperation.computeIfAbsent(sample.operation, Stats::new).add(sample);
+        }
+        return sorted(byOperation, Comparator.comparing(Stats::p99).reversed());
+    }
+
+    /**
+     * @return Per-room statistics over top-level events, most total time first.
+     */
+    public List<Stats> rooms() {
+        Map<String, Stats> byRoom = new HashMap<>();
+        for (Sample sample : samples) {
+            if (!sample.nested && sample.roomId != null) {
+                byRoom.computeIfAbsent(sample.roomId, Stats::new).add(sample);
+            }
+        }
+        return sorted(byRoom, Comparator.comparing(Stats::total).reversed());
+    }
+
+    /**
+     * @return Every playlist event, slowest first.
+     */
+    public List<Sample> slowest() {
+        List<Sample> slowest = new ArrayList<>(samples);
+        slowest.sort(Comparator.comparing((Sample sample) -> sample.duration).reversed());
+        return slowest;
+    }
+
+    public void print(PrintStream out, int top) {
+        out.printf("%nSlowest operations (by p99)%n");
+        out.printf("%-40s %8s %10s %10s %10s %10s %10s %10s%n",
+                "Operation", "Count", "p50", "p99", "Max", "Avg DB", "Avg ext", "Avg bytes");
+        for (Stats stats : limit(operations(), top)) {
+            out.printf("%-40s %,8d %10s %10s %10s %10s %10s %,10d%n", stats.key, stats.count(),
+                    millis(stats.percentile(0.50)), millis(stats.p99()), millis(stats.max()),
+                    millis(stats.db.dividedBy(stats.count())), millis(stats.external.dividedBy(stats.count())),
+                    stats.bytes / stats.count());
+        }
+
+        out.printf("%nSlowest rooms (by total time in commands and unprompted room operations)%n");
+        out.printf("%-20s %8s %10s %10s %10s %10s %12s %10s%n",
+                "Room", "Events", "Total", "Max", "DB", "External", "Bytes", "Max queue");
+        for (Stats stats : limit(rooms(), top)) {
+            out.printf("%-20s %,8d %10s %10s %10s %10s %,12d %10s%n", stats.key, stats.count(),
+                    millis(stats.total()), millis(stats.max()), millis(stats.db), millis(stats.external),
+                    stats.bytes, stats.maxQueueSize < 0 ? "-" : String.valueOf(stats.maxQueueSize));
+        }
+
+        out.printf("%nSlowest events%n");
+        out.printf("%-30s %-40s %-20s %10s %10s %10s %10s %6s%n",
+                "Start", "Operation", "Room", "Duration", "DB", "External", "Bytes", "Queue");
+        for (Sample sample : limit(slowest(), top)) {
+            out.printf("%-30s %-40s %-20s %10s %10s %10s %,10d %6s%n", sample.start, sample.operation,
+                    sample.roomId != null ? sample.roomId : "-", millis(sample.duration), millis(sample.db),
+                    millis(sample.external), sample.bytes, sample.queueSize < 0 ? "-" : String.valueOf(sample.queueSize));
+        }
+    }
+
+    // --- Helper Methods ---
+
+    // An event is nested if a command or room operation on the same thread was running for all of it.
+    // Spans on one thread do not partially overlap, so one sweep per thread with a stack of open spans finds them.
+    private static void markNested(List<Sample> samples) {
+        Map<Long, List<Sample>> byThread = new HashMap<>();
+        for (Sample sample : samples) {
+            byThread.computeIfAbsent(sample.threadId, id -> new ArrayList<>()).add(sample);
+        }
+        Comparator<Sample> outermostFirst = Comparator.comparing((Sample sample) -> sample.start)
+                .thenComparing(sample -> sample.duration, Comparator.reverseOrder())
+                .thenComparing(sample -> !sample.type.equals(COMMAND));
+        for (List<Sample> thread : byThread.values()) {
+            thread.sort(outermostFirst);
+            Deque<Sample> open = new ArrayDeque<>();
+            for (Sample sample : thread) {
+                while (!open.isEmpty() && open.peek().end.isBefore(sample.end)) {
+                    open.pop();
+                }
+                sample.nested = !open.isEmpty();
+                if (sample.type.equals(COMMAND) || sample.type.equals(ROOM_OPERATION)) {
+                    open.push(sample);
+                }
+            }
+        }
+    }
+
+    private static List<Stats> sorted(Map<String, Stats> stats, Comparator<Stats> order) {
+        List<Stats> list = new ArrayList<>(stats.values());
+        list.sort(order);
+        return list;
+    }
+
+    private static <T> List<T> limit(List<T> list, int top) {
+        return list.subList(0, Math.min(top, list.size()));
+    }
+
+    private static String millis(Duration duration) {
+        return String.format("%.2f ms", duration.toNanos() / 1_000_000.0);
+    }
+
+    /**
+     * One playlist event, flattened.
+     */
+    public static final class Sample {
+        final String type;
+        final String operation;
+        final String roomId;
+        final long threadId;
+        final Instant start;
+        final Instant end;
+        final Duration duration;
+        final Duration db;
+        final Duration external;
+        final long bytes;
+        final int queueSize;
+        boolean nested;
+
+        Sample(RecordedEvent event) {
+            this.type = event.getEventType().getName();
+            this.operation = operationOf(event);
+            this.roomId = event.getString("roomId");
+            this.threadId = event.getThread() != null ? event.getThread().getJavaThreadId() : -1;
+            this.start = event.getStartTime();
+            this.end = event.getEndTime();
+            this.duration = event.getDuration();
+            this.db = event.getDuration("dbTime");
+            this.external = event.getDuration("externalTime");
+            this.bytes = event.getLong("serializedBytes");
+            this.queueSize = event.getInt("queueSize");
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public String getRoomId() {
+            return roomId;
+        }
+
+        public Duration getDuration() {
+            return duration;
+        }
+
+        private static String operationOf(RecordedEvent event) {
+            switch (event.getEventType().getName()) {
+                case COMMAND:
+                    return "command " + event.getString("command");
+                case ROOM_OPERATION:
+                    return "room service " + event.getString("operation");
+                case BROADCAST:
+                    String destination = event.getString("destination");
+                    return "broadcast " + destination.substring(destination.lastIndexOf('/') + 1);
+                default:
+                    return "youtube videos.list";
+            }
+        }
+    }
+
+    /**
+     * Aggregate over the samples sharing an operation or a room.
+     */
+    public static final class Stats {
+        final String key;
+        private final List<Duration> durations = new ArrayList<>();
+        private Duration db = Duration.ZERO;
+        private Duration external = Duration.ZERO;
+        private long bytes;
+        private int maxQueueSize = -1;
+        private boolean sorted;
+
+        Stats(String key) {
+            this.key = key;
+        }
+
+        void add(Sample sample) {
+            durations.add(sample.duration);
+            db = db.plus(sample.db);
+            external = external.plus(sample.external);
+            bytes += sample.bytes;
+            maxQueueSize = Math.max(maxQueueSize, sample.queueSize);
+            sorted = false;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public int count() {
+            return durations.size();
+        }
+
+        public Duration total() {
+            return durations.stream().reduce(Duration.ZERO, Duration::plus);
+        }
+
+        public Duration max() {
+            return percentile(1.0);
+        }
+
+        public Duration p99() {
+            return percentile(0.99);
+        }
+
+        Duration percentile(double fraction) {
+            if (!sorted) {
+                durations.sort(null);
+                sorted = true;
+            }
+            int index = (int) Math.ceil(fraction * durations.size()) - 1;
+            return durations.get(Math.max(0, Math.min(index, durations.size() - 1)));
+        }
+    }
+}
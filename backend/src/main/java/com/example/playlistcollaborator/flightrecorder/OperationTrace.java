@@ -0,0 +1,88 @@
+// Purpose: Per-thread running totals that let flight recorder events attribute DB, external-call and serialization cost.
+
+package com.example.playlistcollaborator.flightrecorder;
+
+/**
+ * A STOMP command runs entirely on one inbound-channel thread: the controller, the room
+ * service and its JDBC statements, the YouTube call, JSON conversion and the broadcast.
+ * Each of those adds what it spent here, and every event takes the difference between
+ * the totals at its start and end. Nested events (an operation inside a command) each
+ * see exactly the work done inside their own span, without any begin/end pairing.
+ *
+ * Totals only ever grow, so there is nothing to reset and nothing to leak between
+ * commands on a pooled thread; the current room is the only piece of context and is
+ * set and cleared by {@link CommandRecordingInterceptor}.
+ */
+public final class OperationTrace {
+
+    static final int UNKNOWN_QUEUE_SIZE = -1;
+
+    private static final ThreadLocal<OperationTrace> CURRENT = ThreadLocal.withInitial(OperationTrace::new);
+
+    private long dbNanos;
+    private long externalNanos;
+    private long serializedBytes;
+    private String roomId;
+    private int queueSize = UNKNOWN_QUEUE_SIZE;
+    private long queueSizeUpdates;
+
+    private OperationTrace() {
+    }
+
+    public static OperationTrace current() {
+        return CURRENT.get();
+    }
+
+    public void addDbTime(long nanos) {
+        dbNanos += nanos;
+    }
+
+    public void addExternalTime(long nanos) {
+        externalNanos += nanos;
+    }
+
+    public void addSerializedBytes(long bytes) {
+        serializedBytes += bytes;
+    }
+
+    /**
+     * Records the length of a room's queue as last seen by the code running on this thread.
+     * @param size Number of songs in the queue.
+     */
+    public void queueSize(int size) {
+        queueSize = size;
+        queueSizeUpdates++;
+    }
+
+    long dbNanos() {
+        return dbNanos;
+    }
+
+    long externalNanos() {
+        return externalNanos;
+    }
+
+    long serializedBytes() {
+        return serializedBytes;
+    }
+
+    String roomId() {
+        return roomId;
+    }
+
+    int queueSize() {
+        return queueSize;
+    }
+
+    long queueSizeUpdates() {
+        return queueSizeUpdates;
+    }
+
+    void enterRoom(String roomId) {
+        this.roomId = roomId;
+    }
+
+    void leaveRoom() {
+        this.roomId = null;
+    }
+}
@@ -0,0 +1,90 @@
+// Purpose: Fields and start/finish bookkeeping shared by every playlist flight recorder event.
+
+package com.example.playlistcollaborator.flightrecorder;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Stack traces are off: they are by far the most expensive part of an event, and the
+ * event name plus operation already say where it came from. With that, an event that
+ * is not being recorded costs a field check, and a recorded one a few hundred
+ * nanoseconds, which is what lets the continuous recording stay on in production.
+ */
+@Category("Playlist Collaborator")
+@StackTrace(false)
+public abstract class PlaylistEvent extends Event {
+
+    @Label("Room")
+    protected String roomId;
+
+    @Label("Queue Size")
+    @Description("Songs in the room's queue, as last seen during the event; -1 if it was not loaded")
+    protected int queueSize = OperationTrace.UNKNOWN_QUEUE_SIZE;
+
+    @Label("Database Time")
+    @Description("Time spent executing JDBC statements and commits")
+    @Timespan(Timespan.NANOSECONDS)
+    protected long dbTime;
+
+    @Label("External Call Time")
+    @Description("Time spent waiting on the YouTube Data API")
+    @Timespan(Timespan.NANOSECONDS)
+    protected long externalTime;
+
+    @Label("Serialized Bytes")
+    @Description("Bytes of message payload serialized for broadcasts")
+    @DataAmount
+    protected long serializedBytes;
+
+    // Trace totals when the event started; transient fields are not recorded
+    private transient long dbStart;
+    private transient long externalStart;
+    private transient long bytesStart;
+    private transient long queueSizeUpdatesStart;
+
+    /**
+     * Begins timing and remembers the current thread's trace totals.
+     * @param roomId The room this event is about, or null to take the one being handled on this thread.
+     */
+    protected void start(String roomId) {
+        OperationTrace trace = OperationTrace.current();
+        this.roomId = roomId != null ? roomId : trace.roomId();
+        this.dbStart = trace.dbNanos();
+        this.externalStart = trace.externalNanos();
+        this.bytesStart = trace.serializedBytes();
+        this.queueSizeUpdatesStart = trace.queueSizeUpdates();
+        begin();
+    }
+
+    /**
+     * Ends timing and commits the event with everything the trace accumulated since {@link #start(String)}.
+     */
+    public void finish() {
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+        OperationTrace trace = OperationTrace.current();
+        dbTime = trace.dbNanos() - dbStart;
+        externalTime = trace.externalNanos() - externalStart;
+        serializedBytes = trace.serializedBytes() - bytesStart;
+        if (queueSize == OperationTrace.UNKNOWN_QUEUE_SIZE && trace.queueSizeUpdates() != queueSizeUpdatesStart) {
+            queueSize = trace.queueSize();
+        }
+        commit();
+    }
+
+    /**
+     * @param size Number of songs in the room's queue; also visible to enclosing events.
+     */
+    public void queueSize(int size) {
+        this.queueSize = size;
+        OperationTrace.current().queueSize(size);
+    }
+}
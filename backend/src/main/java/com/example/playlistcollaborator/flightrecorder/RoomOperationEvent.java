@@ -0,0 +1,77 @@
+// Purpose: Flight recorder event for one RoomService operation, including its transaction commit or log fsync.
+
+package com.example.playlistcollaborator.flightrecorder;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@Name("playlist.RoomOperation")
+@Label("Room Service Operation")
+@Description("A RoomService operation, from method entry to the end of its transaction or command log fsync")
+public class RoomOperationEvent extends PlaylistEvent {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Committed")
+    @Description("The transaction committed, or the logged command was confirmed durable")
+    boolean committed;
+
+    private RoomOperationEvent(String operation, String roomId) {
+        this.operation = operation;
+        start(roomId);
+    }
+
+    /**
+     * Starts an event that ends when the current transaction completes, so database time
+     * includes the flush and commit that happen after the method returns. Outside a
+     * transaction nothing is recorded.
+     * @param operation The RoomService method name.
+     * @param roomId The room's public id, or null if it is not known yet.
+     * @return The event, for {@link #queueSize(int)} and {@link #roomId(String)}. Callers with
+     *         neither to report may ignore it: the transaction ends the event either way.
+     */
+    public static RoomOperationEvent start(String operation, String roomId) {
+        RoomOperationEvent event = new RoomOperationEvent(operation, roomId);
+        if (event.isEnabled() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    event.committed = status == STATUS_COMMITTED;
+                    event.finish();
+                }
+            });
+        }
+        return event;
+    }
+
+    /**
+     * Starts an event for an operation that runs without a transaction, such as a
+     * LoggedRoomService mutation. The caller ends it with {@link #complete(boolean)}.
+     * @param operation The RoomService method name.
+     * @param roomId The room's public id.
+     * @return The event.
+     */
+    public static RoomOperationEvent startWithoutTransaction(String operation, String roomId) {
+        return new RoomOperationEvent(operation, roomId);
+    }
+
+    /**
+     * Ends an event from {@link #startWithoutTransaction(String, String)}.
+     * @param committed true if the operation took effect.
+     */
+    public void complete(boolean committed) {
+        this.committed = committed;
+        finish();
+    }
+
+    /**
+     * @param roomId The room's public id, for operations that create it.
+     */
+    public void roomId(String roomId) {
+        this.roomId = roomId;
+    }
+}
@@ -0,0 +1,47 @@
+// Purpose: Flight recorder event for one YouTube Data API request.
+
+package com.example.playlistcollaborator.flightrecorder;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("playlist.YouTubeCall")
+@Label("YouTube API Call")
+@Description("A videos.list request to the YouTube Data API; its whole duration counts as external time")
+public class YouTubeCallEvent extends PlaylistEvent {
+
+    @Label("Video Id")
+    String videoId;
+
+    @Label("Found")
+    boolean found;
+
+    @Label("Error")
+    String error;
+
+    private transient long startNanos;
+
+    public YouTubeCallEvent(String videoId) {
+        this.videoId = videoId;
+        this.startNanos = System.nanoTime();
+        start(null);
+    }
+
+    public void found(boolean found) {
+        this.found = found;
+    }
+
+    public void error(Exception error) {
+        this.error = error.getClass().getSimpleName() + ": " + error.getMessage();
+    }
+
+    /**
+     * Adds the call's duration to the thread's external time, then commits.
+     */
+    @Override
+    public void finish() {
+        OperationTrace.current().addExternalTime(System.nanoTime() - startNanos);
+        super.finish();
+    }
+}
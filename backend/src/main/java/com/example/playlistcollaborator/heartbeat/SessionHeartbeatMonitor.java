@@ -0,0 +1,331 @@
+// Purpose: STOMP heartbeats and idle-connection reaping for every WebSocket session, driven by a hashed timing wheel.
+
+package com.example.playlistcollaborator.heartbeat;
+
+import com.example.playlistcollaborator.broadcast.BroadcastSessionRegistry;
+import com.example.playlistcollaborator.service.RoomPresenceService;
+import com.example.playlistcollaborator.util.HashedWheelTimer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replaces the simple broker's heartbeat task, which wakes up every heartbeat interval
+ * and walks every session on one scheduler thread. Here each session has two timeouts
+ * on a {@link HashedWheelTimer}: one for when it next owes the client a heartbeat and
+ * one for when it must have heard from the client. A wheel tick only touches the
+ * timeouts due in that tick, so idle sessions that are not due cost nothing.
+ *
+ * Timeouts are re-armed lazily: a write check that finds recent traffic just moves
+ * itself to lastWrite + interval, so busy sessions never get a heartbeat and never
+ * need a timer update on the send path. First deadlines are jittered, which spreads
+ * sessions that connected together (e.g., after a deploy) across ticks.
+ *
+ * A session that has sent nothing for three read intervals is reaped: it is removed
+ * from room presence right away and its socket is closed, which also clears its
+ * broker subscriptions and send wrapper. A heartbeat that fails to write reaps the
+ * session immediately instead of waiting for the read deadline.
+ *
+ * Installed as the outermost WebSocket handler decorator, so it sees every inbound
+ * frame and, through {@link TrackingSession}, every outbound one, including shared
+ * broadcast frames. Heartbeats are written through the {@link BroadcastSessionRegistry}
+ * send wrapper, serialized with all other sends.
+ */
+@Component
+@Slf4j
+public class SessionHeartbeatMonitor implements WebSocketHandlerDecoratorFactory, ChannelInterceptor {
+
+    // A STOMP heartbeat is a bare EOL; TextMessage is immutable, so one instance serves every session
+    private static final TextMessage HEARTBEAT = new TextMessage("\n");
+    private static final int READ_TIMEOUT_MULTIPLIER = 3; // Same tolerance as the simple broker
+
+    private final BroadcastSessionRegistry sessionRegistry;
+    private final ObjectProvider<RoomPresenceService> presenceProvider;
+    private final long serverSendMillis;
+    private final long serverReceiveMillis;
+    private final long tickMillis;
+    private final HashedWheelTimer wheel;
+    private final ExecutorService senders;
+    private final Counter heartbeatsSent;
+    private final Counter sessionsReaped;
+    private final ConcurrentHashMap<String, SessionHeartbeat> sessions = new ConcurrentHashMap<>();
+
+    public SessionHeartbeatMonitor(
+            BroadcastSessionRegistry sessionRegistry,
+            ObjectProvider<RoomPresenceService> presenceProvider,
+            @Value("${playlist.heartbeat.server-send-ms:10000}") long serverSendMillis,
+            @Value("${playlist.heartbeat.server-receive-ms:10000}") long serverReceiveMillis,
+            @Value("${playlist.heartbeat.tick-ms:100}") long tickMillis,
+            @Value("${playlist.heartbeat.ticks-per-wheel:1024}") int ticksPerWheel,
+            @Value("${playlist.heartbeat.sender-threads:2}") int senderThreads,
+            MeterRegistry meterRegistry) {
+        this.sessionRegistry = sessionRegistry;
+        this.presenceProvider = presenceProvider;
+        this.serverSendMillis = serverSendMillis;
+        this.serverReceiveMillis = serverReceiveMillis;
+        this.tickMillis = tickMillis;
+        // Checks only compare timestamps and re-arm, so they run on the wheel thread;
+        // the heartbeats and reaps they trigger go to the sender threads
+        this.wheel = new HashedWheelTimer("stomp-heartbeat-wheel", tickMillis, TimeUnit.MILLISECONDS,
+                ticksPerWheel, Runnable::run);
+        this.senders = Executors.newFixedThreadPool(Math.max(senderThreads, 1),
+                new CustomizableThreadFactory("stomp-heartbeat-"));
+        this.heartbeatsSent = Counter.builder("playlist.heartbeat.sent")
+                .description("STOMP heartbeats written to idle sessions").register(meterRegistry);
+        this.sessionsReaped = Counter.builder("playlist.heartbeat.reaped")
+                .description("Sessions closed for silence or a failed heartbeat").register(meterRegistry);
+        Gauge.builder("playlist.heartbeat.sessions", sessions, ConcurrentHashMap::size)
+                .description("WebSocket sessions with heartbeat tracking").register(meterRegistry);
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                SessionHeartbeat heartbeat = new SessionHeartbeat(session.getId(), System.currentTimeMillis());
+                sessions.put(session.getId(), heartbeat);
+                super.afterConnectionEstablished(new TrackingSession(session, heartbeat));
+            }
+
+            @Override
+            public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
+                SessionHeartbeat heartbeat = sessions.get(session.getId());
+                if (heartbeat != null) {
+                    heartbeat.lastRead = System.currentTimeMillis();
+                }
+                super.handleMessage(session, message);
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                SessionHeartbeat heartbeat = sessions.remove(session.getId());
+                if (heartbeat != null) {
+                    heartbeat.stop();
+                }
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    /**
+     * Intercepts the broker's CONNECT_ACK on the client outbound channel. The CONNECTED
+     * frame built from it advertises this server's heartbeat values, and the session's
+     * timers are armed with the intervals negotiated against the client's CONNECT.
+     */
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.CONNECT_ACK) {
+            return message;
+        }
+        Message<?> connect = (Message<?>) message.getHeaders().get(SimpMessageHeaderAccessor.CONNECT_MESSAGE_HEADER);
+        long[] clientHeartbeat = connect != null ? SimpMessageHeaderAccessor.getHeartbeat(connect.getHeaders()) : null;
+        arm(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()), clientHeartbeat);
+
+        SimpMessageHeaderAccessor connectAck = SimpMessageHeaderAccessor.wrap(message);
+        connectAck.setHeader(SimpMessageHeaderAccessor.HEART_BEAT_HEADER, new long[] { serverSendMillis, serverReceiveMillis });
+        return MessageBuilder.createMessage(message.getPayload(), connectAck.getMessageHeaders());
+    }
+
+    /**
+     * Starts heartbeat and idle tracking for a session that completed its STOMP CONNECT.
+     * @param sessionId The WebSocket (and STOMP) session id.
+     * @param clientHeartbeat The client's heart-beat header: [can send every ms, wants to receive every ms].
+     */
+    void arm(String sessionId, long[] clientHeartbeat) {
+        SessionHeartbeat heartbeat = sessionId != null ? sessions.get(sessionId) : null;
+        if (heartbeat == null || clientHeartbeat == null || clientHeartbeat.length != 2) {
+            return;
+        }
+        // STOMP 1.2 negotiation: each side uses the larger of what one offers and the other asks for
+        long writeInterval = serverSendMillis > 0 && clientHeartbeat[1] > 0 ? Math.max(serverSendMillis, clientHeartbeat[1]) : 0;
+        long readInterval = serverReceiveMillis > 0 && clientHeartbeat[0] > 0 ? Math.max(serverReceiveMillis, clientHeartbeat[0]) : 0;
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (writeInterval > 0) {
+            heartbeat.writeInterval = writeInterval;
+            // Earlier than necessary is allowed for heartbeats we send
+            heartbeat.rearmWrite(writeInterval - random.nextLong(writeInterval / 4 + 1));
+        }
+        if (readInterval > 0) {
+            heartbeat.readTimeout = readInterval * READ_TIMEOUT_MULTIPLIER;
+            // Later than necessary is allowed for the deadline we enforce
+            heartbeat.rearmRead(heartbeat.readTimeout + random.nextLong(readInterval / 4 + 1));
+        }
+    }
+
+    /**
+     * @return Number of open sessions being tracked.
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        wheel.stop();
+        senders.shutdown();
+    }
+
+    // --- Helper Methods ---
+
+    /**
+     * Runs on a sender thread, never the wheel thread: leaving room presence takes the
+     * room locks and may broadcast a new leader, and closing writes to the socket.
+     */
+    private void reap(SessionHeartbeat heartbeat, String reason) {
+        if (!heartbeat.stop()) {
+            return;
+        }
+        sessions.remove(heartbeat.sessionId, heartbeat);
+        sessionsReaped.increment();
+        log.info("Closing session {}: {}", heartbeat.sessionId, reason);
+
+        // Room presence (and any leadership) is released now, not when the close handshake completes
+        RoomPresenceService presence = presenceProvider.getIfAvailable();
+        if (presence != null) {
+            presence.disconnect(heartbeat.sessionId);
+        }
+        WebSocketSession session = sessionRegistry.getSession(heartbeat.sessionId);
+        if (session != null) {
+            try {
+                session.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException | RuntimeException e) {
+                log.debug("Closing session {} failed: {}", heartbeat.sessionId, e.getMessage());
+            }
+        }
+    }
+
+    private void sendHeartbeat(SessionHeartbeat heartbeat) {
+        WebSocketSession session = sessionRegistry.getSession(heartbeat.sessionId);
+        if (session == null || !session.isOpen()) {
+            return;
+        }
+        try {
+            session.sendMessage(HEARTBEAT);
+            heartbeatsSent.increment();
+        } catch (IOException e) {
+            reap(heartbeat, "heartbeat write failed: " + e.getMessage());
+        } catch (RuntimeException e) {
+            // Send-limit overflow: the session's send wrapper closes it
+            log.debug("Heartbeat to session {} failed: {}", heartbeat.sessionId, e.getMessage());
+        }
+    }
+
+    /**
+     * Per-session timestamps and timers. Timestamps are written by I/O threads and read
+     * by the wheel thread; timeouts are only replaced by the wheel thread (or by arm()).
+     */
+    private final class SessionHeartbeat {
+        final String sessionId;
+        volatile long lastRead;
+        volatile long lastWrite;
+        volatile long writeInterval;
+        volatile long readTimeout;
+        private volatile HashedWheelTimer.Timeout writeCheck;
+        private volatile HashedWheelTimer.Timeout readCheck;
+        private volatile boolean stopped;
+
+        SessionHeartbeat(String sessionId, long now) {
+            this.sessionId = sessionId;
+            this.lastRead = now;
+            this.lastWrite = now;
+        }
+
+        void rearmWrite(long delayMillis) {
+            if (!stopped) {
+                writeCheck = wheel.newTimeout(this::checkWrite, delayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        void rearmRead(long delayMillis) {
+            if (!stopped) {
+                readCheck = wheel.newTimeout(this::checkRead, delayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void checkWrite() {
+            long idle = System.currentTimeMillis() - lastWrite;
+            if (idle >= writeInterval - tickMillis) {
+                senders.execute(() -> sendHeartbeat(this));
+                rearmWrite(writeInterval);
+            } else {
+                rearmWrite(writeInterval - idle);
+            }
+        }
+
+        private void checkRead() {
+            long idle = System.currentTimeMillis() - lastRead;
+            if (idle >= readTimeout) {
+                String reason = "nothing received for " + idle + " ms";
+                senders.execute(() -> reap(this, reason));
+            } else {
+                rearmRead(readTimeout - idle);
+            }
+        }
+
+        /**
+         * @return true if this call stopped the timers, false if they were already stopped.
+         */
+        synchronized boolean stop() {
+            if (stopped) {
+                return false;
+            }
+            stopped = true;
+            HashedWheelTimer.Timeout write = writeCheck;
+            HashedWheelTimer.Timeout read = readCheck;
+            if (write != null) {
+                write.cancel();
+            }
+            if (read != null) {
+                read.cancel();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Records the time of every frame that is actually written to the client.
+     */
+    private static final class TrackingSession extends WebSocketSessionDecorator {
+        private final SessionHeartbeat heartbeat;
+
+        TrackingSession(WebSocketSession delegate, SessionHeartbeat heartbeat) {
+            super(delegate);
+            this.heartbeat = heartbeat;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            super.sendMessage(message);
+            heartbeat.lastWrite = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+// Purpose: Rate-limits inbound room commands per session and per room before any @MessageMapping handler runs.
+
+package com.example.playlistcollaborator.interceptor;
+
+import com.example.playlistcollaborator.config.AdmissionControlProperties;
+import com.example.playlistcollaborator.dto.CommandRejectedDto;
+import com.example.playlistcollaborator.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Admission layer on the clientInboundChannel. preSend runs on the WebSocket I/O
+ * thread before the frame is queued for the handler pool, so a rejected frame
+ * costs one map lookup and one CAS: no payload conversion, no DB, no YouTube call.
+ *
+ * Each SEND to "/app/room/{publicId}/{command}" must take a token from both the
+ * sending session's bucket and the room's bucket for that command type. Both are
+ * checked before either is consumed, so a frame the room rejects does not cost the
+ * session a token. A rejected frame is dropped (preSend returns null) and the sender
+ * alone is told on "/user/queue/errors". Throwing instead would make Spring send a
+ * STOMP ERROR frame, which always closes the connection, and log an ERROR per frame.
+ */
+@Component
+@Slf4j
+public class AdmissionControlInterceptor implements ChannelInterceptor {
+
+    private static final String APP_ROOM_PREFIX = "/app/room/";
+    static final String ERRORS_DESTINATION = "/queue/errors";
+
+    private final AdmissionControlProperties properties;
+    private final ObjectProvider<SimpMessagingTemplate> messagingTemplate;
+    private final ConcurrentHashMap<String, TokenBucket[]> sessionBuckets = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, TokenBucket[]> roomBuckets = new ConcurrentHashMap<>();
+    private final Counter[] admittedCounters = new Counter[CommandType.values().length];
+    private final Counter[] sessionRejectedCounters = new Counter[CommandType.values().length];
+    private final Counter[] roomRejectedCounters = new Counter[CommandType.values().length];
+
+    // The messaging template is built from the channels this interceptor is registered on, so it is looked up lazily
+    public AdmissionControlInterceptor(AdmissionControlProperties properties,
+                                       ObjectProvider<SimpMessagingTemplate> messagingTemplate,
+                                       MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.messagingTemplate = messagingTemplate;
+        for (CommandType type : CommandType.values()) {
+            admittedCounters[type.ordinal()] = Counter.builder("playlist.admission.admitted")
+                    .tag("command", type.command).register(meterRegistry);
+            sessionRejectedCounters[type.ordinal()] = Counter.builder("playlist.admission.rejected")
+                    .tag("command", type.command).tag("scope", "session").register(meterRegistry);
+            roomRejectedCounters[type.ordinal()] = Counter.builder("playlist.admission.rejected")
+                    .tag("command", type.command).tag("scope", "room").register(meterRegistry);
+        }
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageType messageType = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (messageType == SimpMessageType.DISCONNECT) {
+            if (sessionId != null) {
+                sessionBuckets.remove(sessionId);
+            }
+            return message;
+        }
+        if (messageType != SimpMessageType.MESSAGE || !properties.isEnabled() || sessionId == null) {
+            return message;
+        }
+
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination == null || !destination.startsWith(APP_ROOM_PREFIX)) {
+            return message;
+        }
+        int commandStart = destination.indexOf('/', APP_ROOM_PREFIX.length());
+        if (commandStart < 0) {
+            return message;
+        }
+        String publicId = destination.substring(APP_ROOM_PREFIX.length(), commandStart);
+        CommandType type = CommandType.fromCommand(destination.substring(commandStart + 1));
+        int index = type.ordinal();
+
+        // A session's frames arrive one at a time on its own connection, so only this thread takes from
+        // its bucket: a permit seen here is still there after the (shared, contended) room bucket is charged
+        TokenBucket[] forSession = sessionBuckets.computeIfAbsent(sessionId, id -> newBuckets(properties.getSession()));
+        if (!forSession[index].hasPermit()) {
+            sessionRejectedCounters[index].increment();
+            log.debug("Session {} over its {} budget in room {}", sessionId, type.command, publicId);
+            return reject(sessionId, type, publicId, "session");
+        }
+        TokenBucket[] forRoom = roomBuckets.computeIfAbsent(publicId, id -> newBuckets(properties.getRoom()));
+        if (!forRoom[index].tryAcquire()) {
+            roomRejectedCounters[index].increment();
+            log.debug("Room {} over its {} budget (session {})", publicId, type.command, sessionId);
+            return reject(sessionId, type, publicId, "room");
+        }
+        forSession[index].tryAcquire();
+        admittedCounters[index].increment();
+        return message;
+    }
+
+    /**
+     * Drops room buckets that have refilled completely; an idle room needs no state.
+     * Session buckets are dropped on DISCONNECT.
+     */
+    @Scheduled(fixedDelayString = "${playlist.admission.sweep-interval-ms:60000}")
+    public void evictIdleRoomBuckets() {
+        roomBuckets.values().removeIf(AdmissionControlInterceptor::allFull);
+    }
+
+    // --- Helper Methods ---
+
+    // Addressing "/user/{sessionId}/..." with the session id header set delivers to that session only, without a Principal
+    private Message<?> reject(String sessionId, CommandType type, String publicId, String scope) {
+        SimpMessagingTemplate template = messagingTemplate.getIfAvailable();
+        if (template != null) {
+            SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            headers.setSessionId(sessionId);
+            headers.setLeaveMutable(true);
+            CommandRejectedDto rejection = new CommandRejectedDto(type.command, publicId, "Rate limit exceeded (" + scope + ")");
+            template.convertAndSendToUser(sessionId, ERRORS_DESTINATION, rejection, headers.getMessageHeaders());
+        }
+        return null;
+    }
+
+    private static TokenBucket[] newBuckets(AdmissionControlProperties.Budgets budgets) {
+        TokenBucket[] buckets = new TokenBucket[CommandType.values().length];
+        for (CommandType type : CommandType.values()) {
+            AdmissionControlProperties.Budget budget = type.budget(budgets);
+            buckets[type.ordinal()] = new TokenBucket(budget.getCapacity(), budget.getRefillPerSecond());
+        }
+        return buckets;
+    }
+
+    private static boolean allFull(TokenBucket[] buckets) {
+        for (TokenBucket bucket : buckets) {
+            if (!bucket.isFull()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Destination types with separate budgets. nextSong and requestNextSong share one.
+     */
+    enum CommandType {
+        ADD_SONG("addSong"),
+        REMOVE_SONG("removeSong"),
+        PLAYBACK_STATE("playbackState"),
+        NEXT_SONG("nextSong"),
+        OTHER("other");
+
+        final String command;
+
+        CommandType(String command) {
+            this.command = command;
+        }
+
+        static CommandType fromCommand(String command) {
+            switch (command) {
+                case "addSong": return ADD_SONG;
+                case "removeSong": return REMOVE_SONG;
+                case "playbackState": return PLAYBACK_STATE;
+                case "nextSong":
+                case "requestNextSong": return NEXT_SONG;
+                default: return OTHER;
+            }
+        }
+
+        AdmissionControlProperties.Budget budget(AdmissionControlProperties.Budgets budgets) {
+            switch (this) {
+                case ADD_SONG: return budgets.getAddSong();
+                case REMOVE_SONG: return budgets.getRemoveSong();
+                case PLAYBACK_STATE: return budgets.getPlaybackState();
+                case NEXT_SONG: return budgets.getNextSong();
+                default: return budgets.getOther();
+            }
+        }
+    }
+}
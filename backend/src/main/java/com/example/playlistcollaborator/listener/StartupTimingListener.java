@@ -0,0 +1,56 @@
+// Purpose: Records how long a replica takes from JVM launch to ready and to its first STOMP session.
+
+package com.example.playlistcollaborator.listener;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exposes "playlist.startup.ready" and "playlist.startup.first-message" (JVM uptime
+ * in ms at each point) so scale-out time can be tracked per deploy. The first-message
+ * time is taken when the first client's STOMP CONNECT is acknowledged, which is the
+ * earliest point a new replica is actually useful to a room.
+ */
+@Component
+@Slf4j
+public class StartupTimingListener {
+
+    private final AtomicLong readyMillis = new AtomicLong(-1);
+    private final AtomicLong firstMessageMillis = new AtomicLong(-1);
+
+    public StartupTimingListener(MeterRegistry meterRegistry) {
+        TimeGauge.builder("playlist.startup.ready", readyMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("JVM uptime when the application context became ready")
+                .register(meterRegistry);
+        TimeGauge.builder("playlist.startup.first-message", firstMessageMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("JVM uptime when the first STOMP session was connected")
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void handleApplicationReady(ApplicationReadyEvent event) {
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        readyMillis.set(uptime);
+        log.info("Startup: application ready {} ms after JVM launch", uptime);
+    }
+
+    @EventListener
+    public void handleSessionConnected(SessionConnectedEvent event) {
+        if (firstMessageMillis.get() >= 0) {
+            return;
+        }
+        long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+        if (firstMessageMillis.compareAndSet(-1, uptime)) {
+            log.info("Startup: first STOMP session connected {} ms after JVM launch", uptime);
+        }
+    }
+}
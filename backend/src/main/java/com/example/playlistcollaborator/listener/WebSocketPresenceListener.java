@@ -0,0 +1,51 @@
+// Purpose: Feeds STOMP session lifecycle events into the RoomPresenceService.
+
+package com.example.playlistcollaborator.listener;
+
+import com.example.playlistcollaborator.service.RoomPresenceService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WebSocketPresenceListener {
+
+    // Native headers clients set on their CONNECT frame to identify themselves
+    private static final String USERNAME_HEADER = "username";
+    private static final String CONNECTION_ID_HEADER = "connection-id";
+
+    private final RoomPresenceService presenceService;
+
+    @EventListener
+    public void handleSessionConnect(SessionConnectEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        presenceService.registerSession(accessor.getSessionId(),
+                accessor.getFirstNativeHeader(USERNAME_HEADER), accessor.getFirstNativeHeader(CONNECTION_ID_HEADER));
+    }
+
+    @EventListener
+    public void handleSessionSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        presenceService.subscribe(accessor.getSessionId(), accessor.getSubscriptionId(), accessor.getDestination());
+    }
+
+    @EventListener
+    public void handleSessionUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        presenceService.unsubscribe(accessor.getSessionId(), accessor.getSubscriptionId());
+    }
+
+    @EventListener
+    public void handleSessionDisconnect(SessionDisconnectEvent event) {
+        log.debug("Session {} disconnected with status {}", event.getSessionId(), event.getCloseStatus());
+        presenceService.disconnect(event.getSessionId());
+    }
+}
@@ -0,0 +1,56 @@
+// Purpose: Publishes how much the production logging setup is dropping or buffering.
+
+package com.example.playlistcollaborator.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+
+/**
+ * Sampling and a non-blocking appender both lose log lines on purpose, so the loss has
+ * to be visible somewhere else:
+ * - playlist.logging.suppressed counts lines dropped by {@link PerMessageLogRateLimiter};
+ * - playlist.logging.async.queue-remaining is the free space in each AsyncAppender's
+ *   buffer. Near zero means INFO and below are being discarded.
+ *
+ * Registers nothing when the active logging configuration has neither (the default profile).
+ */
+@Component
+public class LoggingMetrics {
+
+    public LoggingMetrics(MeterRegistry meterRegistry) {
+        if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext)) {
+            return;
+        }
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        for (TurboFilter filter : context.getTurboFilterList()) {
+            if (filter instanceof PerMessageLogRateLimiter) {
+                FunctionCounter.builder("playlist.logging.suppressed", (PerMessageLogRateLimiter) filter,
+                                PerMessageLogRateLimiter::getSuppressedCount)
+                        .description("Log lines dropped by per-message rate limiting")
+                        .register(meterRegistry);
+            }
+        }
+        Iterator<Appender<ILoggingEvent>> appenders = context.getLogger(Logger.ROOT_LOGGER_NAME).iteratorForAppenders();
+        while (appenders.hasNext()) {
+            Appender<ILoggingEvent> appender = appenders.next();
+            if (appender instanceof AsyncAppender) {
+                Gauge.builder("playlist.logging.async.queue-remaining", (AsyncAppender) appender,
+                                AsyncAppender::getRemainingCapacity)
+                        .description("Free slots in the async log appender's buffer")
+                        .tag("appender", appender.getName())
+                        .register(meterRegistry);
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+// Purpose: Logback turbo filter that rate-limits INFO-and-below log lines on the per-message code paths.
+
+package com.example.playlistcollaborator.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import com.example.playlistcollaborator.util.TokenBucket;
+import org.slf4j.Marker;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Every STOMP frame runs through the controller and room service, so their INFO lines
+ * scale with traffic. This filter gives each distinct message template (the format
+ * string, e.g. "Received request to add song {} ...") under the configured logger
+ * prefixes its own {@link TokenBucket}: bursts up to capacity are logged in full, and
+ * beyond the refill rate further lines of that template are dropped before any
+ * formatting or appender work happens. WARN and ERROR always pass.
+ *
+ * Configured from logback-spring.xml:
+ * <pre>
+ * &lt;turboFilter class="com.example.playlistcollaborator.logging.PerMessageLogRateLimiter"&gt;
+ *     &lt;loggers&gt;com.example.playlistcollaborator.controller,com.example.playlistcollaborator.service&lt;/loggers&gt;
+ *     &lt;capacity&gt;20&lt;/capacity&gt;
+ *     &lt;refillPerSecond&gt;5&lt;/refillPerSecond&gt;
+ * &lt;/turboFilter&gt;
+ * </pre>
+ */
+public class PerMessageLogRateLimiter extends TurboFilter {
+
+    // Templates are string literals in the code; past this many, share one bucket per logger instead
+    private static final int MAX_TEMPLATES = 1024;
+
+    private final List<String> loggerPrefixes = new ArrayList<>();
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong suppressed = new AtomicLong();
+    private int capacity = 20;
+    private double refillPerSecond = 5;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // A null format is an isInfoEnabled()-style check, not a log line
+        if (!isStarted() || format == null || level.isGreaterOrEqual(Level.WARN)) {
+            return FilterReply.NEUTRAL;
+        }
+        // Disabled levels are rejected later anyway; do not spend tokens on them
+        if (!level.isGreaterOrEqual(logger.getEffectiveLevel()) || !matches(logger.getName())) {
+            return FilterReply.NEUTRAL;
+        }
+        String key = buckets.size() < MAX_TEMPLATES || buckets.containsKey(format) ? format : logger.getName();
+        TokenBucket bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(capacity, refillPerSecond));
+        if (bucket.tryAcquire()) {
+            return FilterReply.NEUTRAL;
+        }
+        suppressed.incrementAndGet();
+        return FilterReply.DENY;
+    }
+
+    /**
+     * @return Log lines dropped by this filter since it started.
+     */
+    public long getSuppressedCount() {
+        return suppressed.get();
+    }
+
+    /**
+     * @param loggers Comma-separated logger name prefixes to rate-limit.
+     */
+    public void setLoggers(String loggers) {
+        loggerPrefixes.clear();
+        for (String prefix : loggers.split(",")) {
+            if (!prefix.isBlank()) {
+                loggerPrefixes.add(prefix.trim());
+            }
+        }
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public void setRefillPerSecond(double refillPerSecond) {
+        this.refillPerSecond = refillPerSecond;
+    }
+
+    // --- Helper Methods ---
+
+    private boolean matches(String loggerName) {
+        for (String prefix : loggerPrefixes) {
+            if (loggerName.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
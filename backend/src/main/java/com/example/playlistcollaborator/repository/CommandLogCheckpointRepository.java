@@ -0,0 +1,11 @@
+// Purpose: Spring Data JPA repository interface for CommandLogCheckpoint entities.
+
+package com.example.playlistcollaborator.repository;
+
+import com.example.playlistcollaborator.entity.CommandLogCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface CommandLogCheckpointRepository extends JpaRepository<CommandLogCheckpoint, String> {
+}
@@ -6,10 +6,12 @@ import com.example.playlistcollaborator.entity.PlaylistSong;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface PlaylistSongRepository extends JpaRepository<PlaylistSong, UUID> { // Entity: PlaylistSong, PK: UUID
 
+    // The head of a room's queue, i.e. the song currently playing
+    Optional<PlaylistSong> findFirstByRoom_PublicIdOrderByAddedAtAsc(String publicId);
 }
\ No newline at end of file
@@ -3,7 +3,11 @@
 package com.example.playlistcollaborator.repository;
 
 import com.example.playlistcollaborator.entity.Room;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -16,6 +20,11 @@ public interface RoomRepository extends JpaRepository<Room, UUID> { // Entity ty
     // Finds a Room by its publicId field. Returns Optional to handle cases where it's not found.
     Optional<Room> findByPublicId(String publicId);
 
+    // Same, but takes a row lock (SELECT ... FOR UPDATE) held until the transaction ends
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from Room r where r.publicId = :publicId")
+    Optional<Room> findByPublicIdForUpdate(@Param("publicId") String publicId);
+
     // Optional: Method to check if a publicId already exists
     boolean existsByPublicId(String publicId);
 }
\ No newline at end of file
@@ -0,0 +1,211 @@
+// Purpose: Advances each room's queue on the server when the current song's duration elapses.
+
+package com.example.playlistcollaborator.service;
+
+import com.example.playlistcollaborator.dto.PlaybackStateDto;
+import com.example.playlistcollaborator.dto.PlaylistSongDto;
+import com.example.playlistcollaborator.exception.RoomNotFoundException;
+import com.example.playlistcollaborator.util.HashedWheelTimer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps one timer per room on a {@link HashedWheelTimer}, so a single timer thread
+ * can track hundreds of thousands of rooms. The timer is (re)armed from the leader's
+ * play/seek events and after every advance, and disarmed on pause. When it fires,
+ * the room advances through {@link RoomService#advanceToNextSong} exactly as if a
+ * client had asked, so no browser tab has to be open for the queue to move on.
+ *
+ * Every timer remembers the song it was armed for and passes it as the expected
+ * song, which makes a late timer (or a client's own "ended" request racing it) a no-op.
+ * The song stays with the room while it is paused, or has no known duration, so the
+ * leader's next play or seek of it needs no RoomService lookup. Only a video other than
+ * the held one (or a room with none) is looked up as the queue's current song.
+ */
+@Service
+@Slf4j
+public class AutoAdvanceService {
+
+    static final String SERVER_USERNAME = "server";
+
+    private final RoomService roomService;
+    private final long graceMillis;
+    private final ExecutorService advanceExecutor;
+    private final HashedWheelTimer timer;
+
+    // room publicId -> timer for that room's current song, armed or not
+    private final ConcurrentHashMap<String, SongTimer> timers = new ConcurrentHashMap<>();
+
+    public AutoAdvanceService(
+            RoomService roomService,
+            @Value("${playback.auto-advance.tick-ms:100}") long tickMillis,
+            @Value("${playback.auto-advance.wheel-size:1024}") int wheelSize,
+            @Value("${playback.auto-advance.grace-ms:2000}") long graceMillis,
+            @Value("${playback.auto-advance.threads:2}") int threads) {
+        this.roomService = roomService;
+        this.graceMillis = graceMillis;
+        this.advanceExecutor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("auto-advance-"));
+        this.timer = new HashedWheelTimer("auto-advance-timer", tickMillis, TimeUnit.MILLISECONDS, wheelSize, advanceExecutor);
+    }
+
+    /**
+     * Re-arms or disarms the room's timer from a leader's playback event.
+     * "play" and "seek" re-arm, "pause" (or any non-playing state, or one without a
+     * video) disarms, and periodic "sync" messages only arm a timer if none is running,
+     * e.g. after a restart.
+     * @param publicId The public identifier of the room.
+     * @param state The playback state broadcast by the leader.
+     */
+    public void onPlaybackState(String publicId, PlaybackStateDto state) {
+        if (!state.isPlaying() || state.getVideoId() == null) {
+            disarm(publicId);
+            return;
+        }
+        SongTimer current = timers.get(publicId);
+        boolean sameVideo = current != null && state.getVideoId().equals(current.videoId);
+        if ("sync".equals(state.getEventType()) && sameVideo && current.isArmed()) {
+            return;
+        }
+
+        PlaylistSongDto song;
+        if (sameVideo) {
+            song = current.song;
+        } else {
+            // The head may have changed through a remove or add, which this service does not see
+            song = roomService.findCurrentSong(publicId).orElse(null);
+            if (song == null || !state.getVideoId().equals(song.getYoutubeVideoId())) {
+                return; // Stale event for a song that is no longer at the head of the queue
+            }
+        }
+        hold(publicId, song, remainingMillis(song, state.getCurrentTime()));
+    }
+
+    /**
+     * Advances the room now (skip or client-detected end) and arms the timer for the next song.
+     * @param publicId The public identifier of the room.
+     * @param username The user requesting the advance.
+     * @param expectedSongId The song the requester believes is playing, or null to advance unconditionally.
+     */
+    public void advance(String publicId, String username, UUID expectedSongId) {
+        Optional<PlaylistSongDto> next = roomService.advanceToNextSong(publicId, username, expectedSongId);
+        if (next.isPresent()) {
+            hold(publicId, next.get(), remainingMillis(next.get(), 0));
+        } else {
+            // Queue emptied, or the advance was a no-op for a song that already moved on
+            timers.computeIfPresent(publicId, (key, existing) -> {
+                if (expectedSongId == null || expectedSongId.equals(existing.song.getId())) {
+                    existing.disarm();
+                    return null;
+                }
+                return existing;
+            });
+        }
+    }
+
+    /**
+     * Disarms the room's timer and forgets its song, if any.
+     * @param publicId The public identifier of the room.
+     */
+    public void cancel(String publicId) {
+        SongTimer removed = timers.remove(publicId);
+        if (removed != null) {
+            removed.disarm();
+        }
+    }
+
+    /**
+     * @return Number of rooms with an armed auto-advance timer.
+     */
+    public long getScheduledRoomCount() {
+        return timer.pendingTimeouts();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.stop();
+        advanceExecutor.shutdown();
+    }
+
+    // --- Helper Methods ---
+
+    /**
+     * Makes the song the room's held song and arms its timer, unless delayMillis is negative.
+     */
+    private void hold(String publicId, PlaylistSongDto song, long delayMillis) {
+        timers.compute(publicId, (key, existing) -> {
+            if (existing != null) {
+                existing.disarm();
+            }
+            SongTimer songTimer = new SongTimer(song);
+            if (delayMillis >= 0) {
+                songTimer.timeout = timer.newTimeout(() -> fire(publicId, songTimer), delayMillis, TimeUnit.MILLISECONDS);
+            }
+            return songTimer;
+        });
+        if (delayMillis >= 0) {
+            log.debug("Auto-advance for room {} armed in {} ms (song {})", publicId, delayMillis, song.getId());
+        }
+    }
+
+    private void disarm(String publicId) {
+        SongTimer current = timers.get(publicId);
+        if (current != null) {
+            current.disarm(); // The song stays held for the next play
+        }
+    }
+
+    private void fire(String publicId, SongTimer songTimer) {
+        // Only the timer still registered for the room may advance it
+        if (!timers.remove(publicId, songTimer)) {
+            return;
+        }
+        try {
+            advance(publicId, SERVER_USERNAME, songTimer.song.getId());
+        } catch (RoomNotFoundException e) {
+            log.warn("Auto-advance skipped: {}", e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Auto-advance failed for room {}: {}", publicId, e.getMessage(), e);
+        }
+    }
+
+    private long remainingMillis(PlaylistSongDto song, double currentTimeSeconds) {
+        if (song.getDurationSeconds() == null) {
+            return -1; // Unknown duration: fall back to the leader's "ended" request
+        }
+        long elapsedMillis = (long) (Math.max(currentTimeSeconds, 0) * 1000);
+        return Math.max(song.getDurationSeconds() * 1000L - elapsedMillis, 0) + graceMillis;
+    }
+
+    private static final class SongTimer {
+        final PlaylistSongDto song;
+        final String videoId;
+        volatile HashedWheelTimer.Timeout timeout; // null if the song has no known duration
+
+        SongTimer(PlaylistSongDto song) {
+            this.song = song;
+            this.videoId = song.getYoutubeVideoId();
+        }
+
+        boolean isArmed() {
+            HashedWheelTimer.Timeout current = timeout;
+            return current != null && !current.isCancelled();
+        }
+
+        void disarm() {
+            HashedWheelTimer.Timeout current = timeout;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,345 @@
+// Purpose: RoomService that keeps room queues in memory and makes mutations durable through the local command log.
+
+package com.example.playlistcollaborator.service;
+
+import com.example.playlistcollaborator.commandlog.CommandLogCheckpointer;
+import com.example.playlistcollaborator.commandlog.RoomCommand;
+import com.example.playlistcollaborator.commandlog.RoomState;
+import com.example.playlistcollaborator.commandlog.SegmentedCommandLog;
+import com.example.playlistcollaborator.dto.AddSongRequest;
+import com.example.playlistcollaborator.dto.CreateRoomDto;
+import com.example.playlistcollaborator.dto.PlaylistSongDto;
+import com.example.playlistcollaborator.dto.RoomDto;
+import com.example.playlistcollaborator.dto.SongRemovedResponse;
+import com.example.playlistcollaborator.entity.PlaylistSong;
+import com.example.playlistcollaborator.exception.CommandNotDurableException;
+import com.example.playlistcollaborator.exception.PlaylistSongNotFoundException;
+import com.example.playlistcollaborator.exception.RoomNotFoundException;
+import com.example.playlistcollaborator.flightrecorder.RoomOperationEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataAccessException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.ZoneId;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Durability mode for room mutations, enabled with playlist.command-log.enabled=true.
+ *
+ * A mutation appends one command to the {@link SegmentedCommandLog}, waits for the
+ * next group commit, and only then applies it to the room's in-memory {@link RoomState};
+ * no database round trip is on the request path. If the commit is not confirmed in time
+ * the room is left unchanged, the inverse command is logged to cancel the original in
+ * the database, and the caller gets an error. The checkpointer copies commands to
+ * Postgres in batches every checkpoint interval, after which fully checkpointed log
+ * segments are deleted.
+ *
+ * Room creation still goes straight to the database, and rooms that have never been
+ * mutated (or have been idle and fully checkpointed for evict-after-ms) are read
+ * through RoomServiceImpl as before.
+ *
+ * Adds, removes and advances each record a RoomOperationEvent that runs until the
+ * command's fsync is confirmed (committed) or given up on (not committed).
+ */
+@Service
+@Primary
+@ConditionalOnProperty(prefix = "playlist.command-log", name = "enabled", havingValue = "true")
+@Slf4j
+public class LoggedRoomService implements RoomService {
+
+    private final RoomServiceImpl database;
+    private final SongDetailsResolver songDetailsResolver;
+    private final SegmentedCommandLog commandLog;
+    private final CommandLogCheckpointer checkpointer;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final boolean awaitFsync;
+    private final long ackTimeoutMillis;
+    private final long evictAfterMillis;
+
+    // room publicId -> live queue; only present for rooms mutated since they were loaded
+    private final ConcurrentHashMap<String, RoomState> rooms = new ConcurrentHashMap<>();
+
+    public LoggedRoomService(
+            RoomServiceImpl database,
+            SongDetailsResolver songDetailsResolver,
+            SegmentedCommandLog commandLog,
+            CommandLogCheckpointer checkpointer,
+            SimpMessagingTemplate messagingTemplate,
+            @Value("${playlist.command-log.await-fsync:true}") boolean awaitFsync,
+            @Value("${playlist.command-log.ack-timeout-ms:1000}") long ackTimeoutMillis,
+            @Value("${playlist.command-log.evict-after-ms:600000}") long evictAfterMillis) {
+        this.database = database;
+        this.songDetailsResolver = songDetailsResolver;
+        this.commandLog = commandLog;
+        this.checkpointer = checkpointer;
+        this.messagingTemplate = messagingTemplate;
+        this.awaitFsync = awaitFsync;
+        this.ackTimeoutMillis = ackTimeoutMillis;
+        this.evictAfterMillis = evictAfterMillis;
+    }
+
+    @Override
+    public RoomDto createRoom(CreateRoomDto createRoomDto) {
+        return database.createRoom(createRoomDto);
+    }
+
+    @Override
+    public Optional<RoomDto> findRoomByPublicId(String publicId) {
+        RoomState state = rooms.get(publicId);
+        if (state != null) {
+            synchronized (state) {
+                if (!state.isEvicted()) {
+                    return Optional.of(state.toRoomDto());
+                }
+            }
+        }
+        return database.findRoomByPublicId(publicId);
+    }
+
+    @Override
+    public PlaylistSongDto addSongToRoom(String publicId, AddSongRequest addSongRequest) {
+        log.debug("Attempting to add song: {} by {} (user: {}) to room: {}",
+                addSongRequest.getTitle(), addSongRequest.getArtist(), addSongRequest.getUsername(), publicId);
+        RoomOperationEvent event = RoomOperationEvent.startWithoutTransaction("addSongToRoom", publicId);
+        boolean committed = false;
+        RoomCommand command;
+        try {
+            loadState(publicId); // Fail fast on an unknown room before calling YouTube
+
+            PlaylistSong song = songDetailsResolver.resolve(addSongRequest);
+            command = RoomCommand.addSong(publicId, UUID.randomUUID(), song.getYoutubeVideoId(),
+                    song.getTitle(), song.getArtist(), song.getAddedByUsername(), song.getDurationSeconds(), 0);
+            mutate(publicId, state -> {
+                // Stamped under the room lock so addedAt follows queue order, which is how the
+                // database orders the queue when an evicted room is reloaded
+                command.setAddedAtEpochMillis(System.currentTimeMillis());
+                appendAndApply(state, command, RoomCommand.removeSong(publicId, command.getSongId()));
+                event.queueSize(state.size());
+                return null;
+            });
+            committed = true;
+        } finally {
+            event.complete(committed);
+        }
+
+        log.info("Song added successfully with ID: {} by user: {}", command.getSongId(), command.getAddedByUsername());
+        return RoomState.toSongDto(command);
+    }
+
+    @Override
+    public void removeSongFromRoom(String publicId, UUID songId) {
+        log.debug("Attempting to remove song ID: {} from room: {}", songId, publicId);
+        RoomOperationEvent event = RoomOperationEvent.startWithoutTransaction("removeSongFromRoom", publicId);
+        boolean committed = false;
+        try {
+            mutate(publicId, state -> {
+                PlaylistSongDto song = state.findSong(songId).orElseThrow(() -> {
+                    log.warn("Song ID: {} not found in room: {} during remove attempt", songId, publicId);
+                    return new PlaylistSongNotFoundException(songId, publicId);
+                });
+                appendAndApply(state, RoomCommand.removeSong(publicId, songId), readdCommand(publicId, song));
+                event.queueSize(state.size());
+                return null;
+            });
+            committed = true;
+        } finally {
+            event.complete(committed);
+        }
+        log.info("Song ID: {} successfully removed from room's collection: {}", songId, publicId);
+    }
+
+    @Override
+    public Optional<PlaylistSongDto> findCurrentSong(String publicId) {
+        RoomState state = rooms.get(publicId);
+        if (state != null) {
+            synchronized (state) {
+                if (!state.isEvicted()) {
+                    return state.head();
+                }
+            }
+        }
+        return database.findCurrentSong(publicId);
+    }
+
+    @Override
+    public Optional<PlaylistSongDto> advanceToNextSong(String publicId, String username, UUID expectedSongId) {
+        log.debug("Received request to advance to next song in room {} from user {}", publicId, username);
+        RoomOperationEvent event = RoomOperationEvent.startWithoutTransaction("advanceToNextSong", publicId);
+        boolean committed = false;
+        Advance advance;
+        try {
+            advance = mutate(publicId, state -> {
+                event.queueSize(state.size());
+                Optional<PlaylistSongDto> current = state.head();
+                if (current.isEmpty()) {
+                    log.warn("Cannot advance song in room {}: playlist is empty.", publicId);
+                    return null;
+                }
+                UUID finishedSongId = current.get().getId();
+                if (expectedSongId != null && !expectedSongId.equals(finishedSongId)) {
+                    log.info("Ignoring advance in room {}: song {} is no longer playing (current is {})",
+                            publicId, expectedSongId, finishedSongId);
+                    return null;
+                }
+                appendAndApply(state, RoomCommand.removeSong(publicId, finishedSongId), readdCommand(publicId, current.get()));
+                return new Advance(finishedSongId, state.head());
+            });
+            committed = true;
+        } finally {
+            event.complete(committed);
+        }
+        if (advance == null) {
+            return Optional.empty();
+        }
+
+        String songRemovedTopic = "/topic/room/" + publicId + "/songRemoved";
+        messagingTemplate.convertAndSend(songRemovedTopic, new SongRemovedResponse(advance.finishedSongId));
+        log.debug("Broadcasted songRemoved for songId {} to {}", advance.finishedSongId, songRemovedTopic);
+        return advance.next;
+    }
+
+    /**
+     * Copies logged commands to Postgres, deletes log segments that are fully
+     * checkpointed, and drops idle room state that no longer holds anything the
+     * database lacks. A failed batch is retried on the next run.
+     */
+    @Scheduled(fixedDelayString = "${playlist.command-log.checkpoint-interval-ms:1000}")
+    public void checkpoint() {
+        try {
+            while (checkpointer.checkpointBatch() > 0) {
+                // Keep going until the backlog is drained, one transaction per batch
+            }
+        } catch (DataAccessException e) {
+            log.warn("Command log checkpoint failed, {} command(s) pending: {}",
+                    checkpointer.getPendingCount(), e.getMessage());
+            return;
+        }
+        long checkpointed = checkpointer.getCheckpointedSequence();
+        commandLog.compact(checkpointed);
+
+        long idleSince = System.currentTimeMillis() - evictAfterMillis;
+        rooms.values().removeIf(state -> {
+            synchronized (state) {
+                return state.evictIfIdle(idleSince, checkpointed);
+            }
+        });
+    }
+
+    /**
+     * @return Number of rooms whose queue is currently held in memory.
+     */
+    public int getLoadedRoomCount() {
+        return rooms.size();
+    }
+
+    // --- Helper Methods ---
+
+    /**
+     * Runs a mutation against the room's state under its lock, so log order and
+     * in-memory order agree. Retries if the state was evicted in the meantime.
+     */
+    private <T> T mutate(String publicId, Function<RoomState, T> mutation) {
+        while (true) {
+            RoomState state = loadState(publicId);
+            synchronized (state) {
+                if (!state.isEvicted()) {
+                    return mutation.apply(state);
+                }
+            }
+        }
+    }
+
+    private RoomState loadState(String publicId) {
+        RoomState state = rooms.get(publicId);
+        if (state != null) {
+            return state;
+        }
+        // Loaded outside computeIfAbsent to keep the DB call off the map's lock; a
+        // concurrent loader reads the same rows, and the first one stored wins.
+        RoomDto room = database.findRoomOnPrimary(publicId).orElseThrow(() -> {
+            log.warn("Room not found with publicId: {}", publicId);
+            return new RoomNotFoundException(publicId);
+        });
+        RoomState loaded = new RoomState(room);
+        RoomState existing = rooms.putIfAbsent(publicId, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    /**
+     * Logs the command and applies it to the room once it is durable. Runs under the
+     * room's lock, so the room's next command waits for this one's group commit and log
+     * order and memory order stay the same.
+     *
+     * A command whose fsync is not confirmed is never applied, but it is already in the
+     * log and may still reach the disk, so the inverse command is logged after it. The
+     * checkpointer then writes both and the database ends up unchanged too. The inverse
+     * is not waited for: if the process dies before it is flushed while the original was,
+     * the original survives, as a lost acknowledgement from a database commit would.
+     */
+    private void appendAndApply(RoomState state, RoomCommand command, RoomCommand inverse) {
+        CompletableFuture<Long> ack = commandLog.append(command);
+        try {
+            awaitDurable(ack);
+        } catch (CommandNotDurableException e) {
+            state.skip(command);
+            try {
+                commandLog.append(inverse);
+                state.skip(inverse);
+            } catch (RuntimeException appendFailure) {
+                e.addSuppressed(appendFailure);
+            }
+            throw e;
+        }
+        state.apply(command);
+    }
+
+    /**
+     * @return A command that puts the song back where it was: the database orders the queue by addedAt.
+     */
+    private static RoomCommand readdCommand(String publicId, PlaylistSongDto song) {
+        long addedAtMillis = song.getAddedAt() != null
+                ? song.getAddedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : System.currentTimeMillis();
+        return RoomCommand.addSong(publicId, song.getId(), song.getYoutubeVideoId(), song.getTitle(), song.getArtist(),
+                song.getAddedByUsername(), song.getDurationSeconds(), addedAtMillis);
+    }
+
+    private void awaitDurable(CompletableFuture<Long> ack) {
+        if (!awaitFsync) {
+            return;
+        }
+        try {
+            ack.get(ackTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Command log fsync did not complete within {} ms", ackTimeoutMillis);
+            throw new CommandNotDurableException("Command log fsync did not complete within " + ackTimeoutMillis + " ms");
+        } catch (ExecutionException e) {
+            throw new CommandNotDurableException("Command log flush failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommandNotDurableException("Interrupted while waiting for the command log fsync", e);
+        }
+    }
+
+    private static final class Advance {
+        final UUID finishedSongId;
+        final Optional<PlaylistSongDto> next;
+
+        Advance(UUID finishedSongId, Optional<PlaylistSongDto> next) {
+            this.finishedSongId = finishedSongId;
+            this.next = next;
+        }
+    }
+}
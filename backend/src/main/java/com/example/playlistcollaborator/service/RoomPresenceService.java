@@ -0,0 +1,274 @@
+// Purpose: Tracks which STOMP sessions are listening to each room and elects one playback leader per room.
+
+package com.example.playlistcollaborator.service;
+
+import com.example.playlistcollaborator.dto.RoomLeaderDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory presence registry driven by STOMP subscribe/unsubscribe/disconnect events.
+ *
+ * Rooms live in a ConcurrentHashMap, so membership changes for different rooms
+ * only contend when they hash to the same bin, and every mutation of a single room
+ * runs inside {@link ConcurrentHashMap#compute} so joins, leaves and leader
+ * hand-off for that room are atomic. Reads ({@link #getListenerCount},
+ * {@link #isLeader}) never lock.
+ *
+ * The leader is the longest-present session in the room. When the leader leaves,
+ * the next-oldest session is promoted immediately and the room is notified on
+ * "/topic/room/{publicId}/leader". A joining session may not have its subscription to
+ * that topic in place yet when its join is broadcast, so it asks for the current
+ * leader directly instead (see {@link #getLeader}).
+ *
+ * Only sessions seen in a CONNECT are tracked. Subscribe events can be handled after
+ * the session's DISCONNECT; those are dropped, so a closed session never joins a room.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RoomPresenceService {
+
+    private static final String ROOM_TOPIC_PREFIX = "/topic/room/";
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private final ConcurrentHashMap<String, RoomPresence> rooms = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, SessionPresence> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong joinSequence = new AtomicLong();
+
+    /**
+     * Records the username and connection id a session announced in its CONNECT frame.
+     * Usernames are not unique, so clients recognize themselves as leader by the connection id.
+     * @param sessionId The STOMP session id.
+     * @param username The username supplied by the client (may be null).
+     * @param connectionId The per-connection id generated by the client (may be null).
+     */
+    public void registerSession(String sessionId, String username, String connectionId) {
+        SessionPresence session = sessions.computeIfAbsent(sessionId, id -> new SessionPresence());
+        session.username = username;
+        session.connectionId = connectionId;
+    }
+
+    /**
+     * Handles a SUBSCRIBE frame. Subscriptions to anything other than a room topic are ignored.
+     * @param sessionId The STOMP session id.
+     * @param subscriptionId The client-side subscription id.
+     * @param destination The subscribed destination, e.g. "/topic/room/abc123/songs".
+     */
+    public void subscribe(String sessionId, String subscriptionId, String destination) {
+        String publicId = extractRoomId(destination);
+        if (publicId == null || subscriptionId == null) {
+            return;
+        }
+        SessionPresence session = sessions.get(sessionId);
+        if (session == null) {
+            log.debug("Ignoring subscription {} from unknown or disconnected session {}", subscriptionId, sessionId);
+            return;
+        }
+
+        boolean[] joined = new boolean[1];
+        RoomPresence room;
+        // Holding the session's lock orders this join against disconnect(), which marks the session closed
+        synchronized (session) {
+            if (session.disconnected) {
+                return;
+            }
+            session.subscriptions.put(subscriptionId, publicId);
+            long sequence = joinSequence.incrementAndGet();
+            room = rooms.compute(publicId, (key, existing) -> {
+                RoomPresence presence = existing != null ? existing : new RoomPresence();
+                if (presence.members.putIfAbsent(sessionId, sequence) == null) {
+                    joined[0] = true;
+                    if (presence.leaderSessionId == null) {
+                        presence.leaderSessionId = sessionId;
+                    }
+                }
+                return presence;
+            });
+        }
+        if (joined[0]) {
+            log.debug("Session {} joined room {} ({} listeners)", sessionId, publicId, room.members.size());
+            broadcastLeader(publicId, room);
+        }
+    }
+
+    /**
+     * Handles an UNSUBSCRIBE frame. The session leaves the room once it holds no other
+     * subscription to that room's topics.
+     * @param sessionId The STOMP session id.
+     * @param subscriptionId The client-side subscription id being cancelled.
+     */
+    public void unsubscribe(String sessionId, String subscriptionId) {
+        SessionPresence session = sessions.get(sessionId);
+        if (session == null || subscriptionId == null) {
+            return;
+        }
+        String publicId = session.subscriptions.remove(subscriptionId);
+        if (publicId != null && !session.subscriptions.containsValue(publicId)) {
+            leaveRoom(publicId, sessionId);
+        }
+    }
+
+    /**
+     * Handles a DISCONNECT (or transport close). Removes the session from every room it was in.
+     * @param sessionId The STOMP session id.
+     */
+    public void disconnect(String sessionId) {
+        SessionPresence session = sessions.remove(sessionId);
+        if (session == null) {
+            return;
+        }
+        Set<String> joinedRooms;
+        synchronized (session) {
+            session.disconnected = true;
+            joinedRooms = Set.copyOf(session.subscriptions.values());
+        }
+        for (String publicId : joinedRooms) {
+            leaveRoom(publicId, sessionId);
+        }
+    }
+
+    /**
+     * @param publicId The public identifier of the room.
+     * @return The number of distinct sessions currently subscribed to the room.
+     */
+    public int getListenerCount(String publicId) {
+        RoomPresence room = rooms.get(publicId);
+        return room != null ? room.members.size() : 0;
+    }
+
+    /**
+     * @param publicId The public identifier of the room.
+     * @param sessionId The STOMP session id to check.
+     * @return true if the session currently holds the room's leader role.
+     */
+    public boolean isLeader(String publicId, String sessionId) {
+        RoomPresence room = rooms.get(publicId);
+        return room != null && sessionId != null && sessionId.equals(room.leaderSessionId);
+    }
+
+    /**
+     * @param publicId The public identifier of the room.
+     * @return The username of the room's current leader, or null if the room is empty.
+     */
+    public String getLeaderUsername(String publicId) {
+        RoomPresence room = rooms.get(publicId);
+        return room != null ? usernameOf(room.leaderSessionId) : null;
+    }
+
+    /**
+     * @param publicId The public identifier of the room.
+     * @return The room's current leader and listener count, as broadcast on the leader topic.
+     */
+    public RoomLeaderDto getLeader(String publicId) {
+        RoomPresence room = rooms.get(publicId);
+        return room != null ? leaderOf(room) : new RoomLeaderDto(null, null, 0);
+    }
+
+    /**
+     * @param sessionId The STOMP session id.
+     * @return The public ids of the rooms the session is currently subscribed to.
+     */
+    public Set<String> getRoomsForSession(String sessionId) {
+        SessionPresence session = sessions.get(sessionId);
+        return session != null ? Set.copyOf(session.subscriptions.values()) : Collections.emptySet();
+    }
+
+    /**
+     * @return The public ids of all rooms with at least one listener.
+     */
+    public List<String> getActiveRoomIds() {
+        return new ArrayList<>(rooms.keySet());
+    }
+
+    // --- Helper Methods ---
+
+    private void leaveRoom(String publicId, String sessionId) {
+        boolean[] changed = new boolean[1];
+        RoomPresence room = rooms.computeIfPresent(publicId, (key, presence) -> {
+            if (presence.members.remove(sessionId) == null) {
+                return presence;
+            }
+            changed[0] = true;
+            if (sessionId.equals(presence.leaderSessionId)) {
+                presence.leaderSessionId = oldestMember(presence.members);
+                log.info("Leader session {} left room {}; promoted session {}", sessionId, publicId, presence.leaderSessionId);
+            }
+            return presence.members.isEmpty() ? null : presence;
+        });
+        if (changed[0] && room != null) {
+            broadcastLeader(publicId, room);
+        }
+    }
+
+    private static String oldestMember(Map<String, Long> members) {
+        String oldest = null;
+        long oldestSequence = Long.MAX_VALUE;
+        for (Map.Entry<String, Long> entry : members.entrySet()) {
+            if (entry.getValue() < oldestSequence) {
+                oldestSequence = entry.getValue();
+                oldest = entry.getKey();
+            }
+        }
+        return oldest;
+    }
+
+    private void broadcastLeader(String publicId, RoomPresence room) {
+        messagingTemplate.convertAndSend(ROOM_TOPIC_PREFIX + publicId + "/leader", leaderOf(room));
+    }
+
+    private RoomLeaderDto leaderOf(RoomPresence room) {
+        SessionPresence leader = room.leaderSessionId != null ? sessions.get(room.leaderSessionId) : null;
+        return leader != null
+                ? new RoomLeaderDto(leader.username, leader.connectionId, room.members.size())
+                : new RoomLeaderDto(null, null, room.members.size());
+    }
+
+    private String usernameOf(String sessionId) {
+        if (sessionId == null) {
+            return null;
+        }
+        SessionPresence session = sessions.get(sessionId);
+        return session != null ? session.username : null;
+    }
+
+    /**
+     * Extracts the room's public id from a destination such as "/topic/room/{publicId}/songs".
+     * @param destination The STOMP destination.
+     * @return The public id, or null if the destination is not a room topic.
+     */
+    static String extractRoomId(String destination) {
+        if (destination == null || !destination.startsWith(ROOM_TOPIC_PREFIX)) {
+            return null;
+        }
+        int start = ROOM_TOPIC_PREFIX.length();
+        int end = destination.indexOf('/', start);
+        String publicId = end < 0 ? destination.substring(start) : destination.substring(start, end);
+        return publicId.isEmpty() ? null : publicId;
+    }
+
+    private static final class RoomPresence {
+        // sessionId -> join sequence; the lowest sequence is the longest-present member
+        final ConcurrentHashMap<String, Long> members = new ConcurrentHashMap<>();
+        volatile String leaderSessionId;
+    }
+
+    private static final class SessionPresence {
+        // subscriptionId -> room publicId
+        final ConcurrentHashMap<String, String> subscriptions = new ConcurrentHashMap<>();
+        volatile String username;
+        volatile String connectionId;
+        boolean disconnected; // Guarded by the SessionPresence itself
+    }
+}
@@ -45,11 +45,22 @@ public interface RoomService {
      */
     void removeSongFromRoom(String publicId, UUID songId);
 
+    /**
+     * Finds the song at the head of the room's queue, i.e. the one currently playing.
+     * @param publicId The public identifier of the room.
+     * @return An Optional containing the current song, or empty if the queue is empty.
+     */
+    Optional<PlaylistSongDto> findCurrentSong(String publicId);
+
     /**
      * Advances to the next song in the room's playlist.
      * @param publicId The public identifier of the room.
-     * @param username The username of the user requesting the next song.
+     * @param username The username of the user (or "server") requesting the next song.
+     * @param expectedSongId The song the caller believes is playing. If non-null and the
+     *                       queue has already moved past it, nothing happens, so the
+     *                       server timer and a client's "ended" event cannot double-advance.
+     * @return The new head of the queue, or empty if the queue is now empty or nothing advanced.
      */
-    void advanceToNextSong(String publicId, String username);
+    Optional<PlaylistSongDto> advanceToNextSong(String publicId, String username, UUID expectedSongId);
 
 }
\ No newline at end of file
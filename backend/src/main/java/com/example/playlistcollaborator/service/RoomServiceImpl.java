@@ -2,6 +2,7 @@
 
 package com.example.playlistcollaborator.service;
 
+import com.example.playlistcollaborator.datasource.ReplicaReadPolicy;
 import com.example.playlistcollaborator.dto.AddSongRequest;
 import com.example.playlistcollaborator.dto.CreateRoomDto;
 import com.example.playlistcollaborator.dto.PlaylistSongDto;
@@ -11,12 +12,16 @@ import com.example.playlistcollaborator.entity.PlaylistSong;
 import com.example.playlistcollaborator.entity.Room;
 import com.example.playlistcollaborator.exception.PlaylistSongNotFoundException;
 import com.example.playlistcollaborator.exception.RoomNotFoundException;
+import com.example.playlistcollaborator.flightrecorder.RoomOperationEvent;
 import com.example.playlistcollaborator.repository.PlaylistSongRepository;
 import com.example.playlistcollaborator.repository.RoomRepository;
 import lombok.RequiredArgsConstructor; 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional; 
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 
 import java.util.Collections;
@@ -32,66 +37,63 @@ public class RoomServiceImpl implements RoomService {
 
     private final RoomRepository roomRepository;
     private final PlaylistSongRepository playlistSongRepository; 
-    private final YouTubeApiService youtubeApiService;
+    private final SongDetailsResolver songDetailsResolver;
     private final SimpMessagingTemplate messagingTemplate;
+    private final ReplicaReadPolicy replicaReadPolicy;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
     @Transactional 
     public RoomDto createRoom(CreateRoomDto createRoomDto) {
-        log.info("RoomService: createRoom - START");
+        log.debug("RoomService: createRoom - START");
+        RoomOperationEvent event = RoomOperationEvent.start("createRoom", null);
         Room newRoom = new Room();
         newRoom.setName(createRoomDto.getName());
         newRoom.setPublicId(generateUniquePublicId()); 
 
 
         Room savedRoom = roomRepository.save(newRoom);
-        log.info("RoomService: createRoom - END, savedRoom.publicId: " + savedRoom.getPublicId());
+        replicaReadPolicy.recordWrite(savedRoom.getPublicId());
+        event.roomId(savedRoom.getPublicId());
+        event.queueSize(0);
+        log.debug("RoomService: createRoom - END, savedRoom.publicId: {}", savedRoom.getPublicId());
         return convertToRoomDto(savedRoom);
     }
 
     @Override
     @Transactional(readOnly = true)
     public Optional<RoomDto> findRoomByPublicId(String publicId) {
-        return roomRepository.findByPublicId(publicId)
-                .map(this::convertToRoomDto); 
+        RoomOperationEvent event = RoomOperationEvent.start("findRoomByPublicId", publicId);
+        // Served by the read replica when one is configured, unless this room was just written
+        Optional<RoomDto> room = replicaReadPolicy.read(publicId, () -> roomRepository.findByPublicId(publicId)
+                .map(this::convertToRoomDto));
+        room.ifPresent(found -> event.queueSize(found.getPlaylistSongs().size()));
+        return room;
     }
 
+    /**
+     * Not @Transactional: the YouTube lookup runs first, so no pooled connection is held
+     * across the HTTP call. Only the room lookup and insert run in the transaction.
+     */
     @Override
-    @Transactional
     public PlaylistSongDto addSongToRoom(String publicId, AddSongRequest addSongRequest) {
-        log.info("Attempting to add song: {} by {} (user: {}) to room: {}",
+        log.debug("Attempting to add song: {} by {} (user: {}) to room: {}",
                 addSongRequest.getTitle(), addSongRequest.getArtist(), addSongRequest.getUsername(), publicId);
-
-        Room room = roomRepository.findByPublicId(publicId)
-                .orElseThrow(() -> {
-                    log.warn("Room not found with publicId: {} during addSongToRoom", publicId);
-                    return new RoomNotFoundException(publicId);
-                });
-
-        PlaylistSong newSong = new PlaylistSong();
-        newSong.setYoutubeVideoId(addSongRequest.getYoutubeVideoId());
-
-        String title = addSongRequest.getTitle();
-        String artist = addSongRequest.getArtist();
-
-        // Fetch from YouTube if title/artist are missing and videoId is present
-        if ((title == null || title.isEmpty() || artist == null || artist.isEmpty()) &&
-                addSongRequest.getYoutubeVideoId() != null && !addSongRequest.getYoutubeVideoId().isEmpty()) {
-            YouTubeVideoDetails details = youtubeApiService.getVideoDetails(addSongRequest.getYoutubeVideoId());
-            if (details != null) {
-                title = (title == null || title.isEmpty()) ? details.getTitle() : title;
-                artist = (artist == null || artist.isEmpty()) ? details.getChannelTitle() : artist;
-            }
-        }
-
-        // Set title and artist using fetched data or defaults
-        newSong.setTitle((title != null && !title.isEmpty()) ? title : "YouTube Video");
-        newSong.setArtist((artist != null && !artist.isEmpty()) ? artist : "Various Artists");
-
-        newSong.setRoom(room);
-        newSong.setAddedByUsername(addSongRequest.getUsername());
-
-        PlaylistSong savedSong = playlistSongRepository.save(newSong);
+        PlaylistSong newSong = songDetailsResolver.resolve(addSongRequest);
+
+        PlaylistSong savedSong = transactionTemplate.execute(status -> {
+            // The queue is not loaded, so the event has no size to report and is ended by the transaction alone
+            RoomOperationEvent.start("addSongToRoom", publicId);
+            Room room = roomRepository.findByPublicId(publicId)
+                    .orElseThrow(() -> {
+                        log.warn("Room not found with publicId: {} during addSongToRoom", publicId);
+                        return new RoomNotFoundException(publicId);
+                    });
+            newSong.setRoom(room);
+            PlaylistSong saved = playlistSongRepository.save(newSong);
+            replicaReadPolicy.recordWrite(publicId);
+            return saved;
+        });
         log.info("Song added successfully with ID: {} by user: {}", savedSong.getId(), savedSong.getAddedByUsername());
 
         return convertToPlaylistSongDto(savedSong);
@@ -100,7 +102,8 @@ public class RoomServiceImpl implements RoomService {
     @Override
     @Transactional
     public void removeSongFromRoom(String publicId, UUID songId) {
-        log.info("Attempting to remove song ID: {} from room: {}", songId, publicId);
+        log.debug("Attempting to remove song ID: {} from room: {}", songId, publicId);
+        RoomOperationEvent event = RoomOperationEvent.start("removeSongFromRoom", publicId);
 
         Room room = roomRepository.findByPublicId(publicId)
                 .orElseThrow(() -> {
@@ -117,42 +120,95 @@ public class RoomServiceImpl implements RoomService {
                 });
 
         room.getPlaylistSongs().remove(songToRemove);
+        event.queueSize(room.getPlaylistSongs().size());
         roomRepository.save(room); // This will persist the change to the room's song collection
+        replicaReadPolicy.recordWrite(publicId);
 
         log.info("Song ID: {} successfully removed from room's collection: {}", songId, publicId);
     }
 
+    /**
+     * Loads a room from the primary regardless of replica routing, for callers that go on
+     * to keep their own copy of it and so cannot tolerate replica lag.
+     * @param publicId The public identifier of the room.
+     * @return An Optional containing the RoomDto if found, otherwise empty.
+     */
+    @Transactional
+    public Optional<RoomDto> findRoomOnPrimary(String publicId) {
+        RoomOperationEvent event = RoomOperationEvent.start("findRoomOnPrimary", publicId);
+        Optional<RoomDto> room = roomRepository.findByPublicId(publicId).map(this::convertToRoomDto);
+        room.ifPresent(found -> event.queueSize(found.getPlaylistSongs().size()));
+        return room;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<PlaylistSongDto> findCurrentSong(String publicId) {
+        RoomOperationEvent.start("findCurrentSong", publicId); // Only the head is read, so the queue size stays unknown
+        return replicaReadPolicy.read(publicId, () -> playlistSongRepository
+                .findFirstByRoom_PublicIdOrderByAddedAtAsc(publicId)
+                .map(this::convertToPlaylistSongDto));
+    }
+
     @Override
     @Transactional
-    public void advanceToNextSong(String publicId, String username) {
-        log.info("Received request to advance to next song in room {} from user {}", publicId, username);
-        Room room = roomRepository.findByPublicId(publicId).orElseThrow(() -> new RoomNotFoundException(publicId));
+    public Optional<PlaylistSongDto> advanceToNextSong(String publicId, String username, UUID expectedSongId) {
+        log.debug("Received request to advance to next song in room {} from user {}", publicId, username);
+        RoomOperationEvent event = RoomOperationEvent.start("advanceToNextSong", publicId);
+        // Row lock: a concurrent advance with the same expectedSongId waits here, then sees the new head and stops
+        Room room = roomRepository.findByPublicIdForUpdate(publicId).orElseThrow(() -> new RoomNotFoundException(publicId));
 
         List<PlaylistSong> currentPlaylist = room.getPlaylistSongs();
+        event.queueSize(currentPlaylist.size());
         if (currentPlaylist.isEmpty()) {
             log.warn("Cannot advance song in room {}: playlist is empty.", publicId);
-            return; 
+            return Optional.empty();
         }
 
         PlaylistSong finishedSong = currentPlaylist.get(0);
         UUID finishedSongId = finishedSong.getId();
 
+        if (expectedSongId != null && !expectedSongId.equals(finishedSongId)) {
+            log.info("Ignoring advance in room {}: song {} is no longer playing (current is {})",
+                    publicId, expectedSongId, finishedSongId);
+            return Optional.empty();
+        }
+
         room.getPlaylistSongs().remove(finishedSong);
+        event.queueSize(currentPlaylist.size());
         
         PlaylistSong nextSong = currentPlaylist.isEmpty() ? null : currentPlaylist.get(0);
 
         roomRepository.save(room);
+        replicaReadPolicy.recordWrite(publicId);
 
         // --- BROADCAST UPDATES TO ALL CLIENTS ---
 
-        // 1. Tell everyone the old song was removed from the queue.
+        // 1. Tell everyone the old song was removed from the queue, once the removal has committed.
         // All clients (leader and followers) will listen to this and update their UI.
         String songRemovedTopic = "/topic/room/" + publicId + "/songRemoved";
-        messagingTemplate.convertAndSend(songRemovedTopic, new SongRemovedResponse(finishedSongId));
-        log.info("Broadcasted songRemoved for songId {} to {}", finishedSongId, songRemovedTopic);
+        afterCommit(() -> {
+            messagingTemplate.convertAndSend(songRemovedTopic, new SongRemovedResponse(finishedSongId));
+            log.debug("Broadcasted songRemoved for songId {} to {}", finishedSongId, songRemovedTopic);
+        });
+
+        return Optional.ofNullable(nextSong).map(this::convertToPlaylistSongDto);
     }
 
     // --- Helper Methods ---
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
     private String generateUniquePublicId() {
         return UUID.randomUUID().toString().substring(0, 8);
     }
@@ -186,7 +242,8 @@ public class RoomServiceImpl implements RoomService {
                 song.getArtist(),
                 song.getAddedAt(),
                 song.getAddedByUsername(),
-                song.getYoutubeVideoId()
+                song.getYoutubeVideoId(),
+                song.getDurationSeconds()
         );
     }
 }
\ No newline at end of file
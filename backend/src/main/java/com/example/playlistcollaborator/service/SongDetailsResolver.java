@@ -0,0 +1,62 @@
+// Purpose: Builds a new PlaylistSong from an add request, filling gaps from the YouTube API.
+
+package com.example.playlistcollaborator.service;
+
+import com.example.playlistcollaborator.dto.AddSongRequest;
+import com.example.playlistcollaborator.entity.PlaylistSong;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Shared by every RoomService implementation so database-backed and command-log-backed
+ * rooms resolve titles, artists and durations identically.
+ */
+@Component
+@RequiredArgsConstructor
+public class SongDetailsResolver {
+
+    private final YouTubeApiService youtubeApiService;
+
+    /**
+     * @param addSongRequest The client's request.
+     * @return An unsaved song with everything but its id, room and addedAt set.
+     */
+    public PlaylistSong resolve(AddSongRequest addSongRequest) {
+        PlaylistSong newSong = new PlaylistSong();
+        newSong.setYoutubeVideoId(addSongRequest.getYoutubeVideoId());
+
+        String title = addSongRequest.getTitle();
+        String artist = addSongRequest.getArtist();
+
+        Integer durationSeconds = addSongRequest.getDurationSeconds();
+        newSong.setDurationSeconds(durationSeconds != null && durationSeconds > 0 ? durationSeconds : null);
+
+        // Fetch from YouTube when a videoId is present and the client left anything out: the
+        // duration drives server-side auto-advance, and title/artist fill in missing text
+        if (addSongRequest.getYoutubeVideoId() != null && !addSongRequest.getYoutubeVideoId().isEmpty()
+                && !isComplete(addSongRequest)) {
+            YouTubeVideoDetails details = youtubeApiService.getVideoDetails(addSongRequest.getYoutubeVideoId());
+            if (details != null) {
+                title = (title == null || title.isEmpty()) ? details.getTitle() : title;
+                artist = (artist == null || artist.isEmpty()) ? details.getChannelTitle() : artist;
+                if (newSong.getDurationSeconds() == null) {
+                    newSong.setDurationSeconds(details.getDurationSeconds());
+                }
+            }
+        }
+
+        // Set title and artist using fetched data or defaults
+        newSong.setTitle((title != null && !title.isEmpty()) ? title : "YouTube Video");
+        newSong.setArtist((artist != null && !artist.isEmpty()) ? artist : "Various Artists");
+        newSong.setAddedByUsername(addSongRequest.getUsername());
+        return newSong;
+    }
+
+    // --- Helper Methods ---
+
+    private static boolean isComplete(AddSongRequest addSongRequest) {
+        return addSongRequest.getTitle() != null && !addSongRequest.getTitle().isEmpty()
+                && addSongRequest.getArtist() != null && !addSongRequest.getArtist().isEmpty()
+                && addSongRequest.getDurationSeconds() != null && addSongRequest.getDurationSeconds() > 0;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.playlistcollaborator.service;
 
+import com.example.playlistcollaborator.flightrecorder.YouTubeCallEvent;
 import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
 import com.google.api.client.json.jackson2.JacksonFactory;
 import com.google.api.services.youtube.YouTube;
@@ -11,17 +12,21 @@ import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
-import java.util.Collections;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.List;
 
 // Simple DTO for returning details
 class YouTubeVideoDetails {
   private String title;
   private String channelTitle; // Artist
+  private Integer durationSeconds; // null if unknown (e.g. live streams)
 
-  public YouTubeVideoDetails(String title, String channelTitle) {
+  public YouTubeVideoDetails(String title, String channelTitle, Integer durationSeconds) {
     this.title = title;
     this.channelTitle = channelTitle;
+    this.durationSeconds = durationSeconds;
   }
 
   public String getTitle() {
@@ -31,6 +36,10 @@ class YouTubeVideoDetails {
   public String getChannelTitle() {
     return channelTitle;
   }
+
+  public Integer getDurationSeconds() {
+    return durationSeconds;
+  }
 }
 
 @Service
@@ -40,15 +49,36 @@ public class YouTubeApiService {
   @Value("${youtube.apikey}")
   private String apiKey;
 
+  // Bounds how long an add request can wait on YouTube
+  @Value("${youtube.connect-timeout-ms:2000}")
+  private int connectTimeoutMillis;
+
+  @Value("${youtube.read-timeout-ms:3000}")
+  private int readTimeoutMillis;
+
   private static final String APPLICATION_NAME = "PlaylistCollaborator";
-  private final YouTube youtubeService;
-
-  public YouTubeApiService() throws GeneralSecurityException, IOException {
-    this.youtubeService = new YouTube.Builder(
-        GoogleNetHttpTransport.newTrustedTransport(),
-        JacksonFactory.getDefaultInstance(),
-        null // HttpRequestInitializer - not needed for API key auth
-    ).setApplicationName(APPLICATION_NAME).build();
+
+  // Built on first use rather than at startup: creating the trusted transport loads the
+  // JDK trust store and the Google client classes, which is not needed to serve the first
+  // room page or WebSocket frame.
+  private volatile YouTube youtubeService;
+
+  private YouTube youtube() throws GeneralSecurityException, IOException {
+    YouTube service = youtubeService;
+    if (service == null) {
+      synchronized (this) {
+        service = youtubeService;
+        if (service == null) {
+          service = new YouTube.Builder(
+              GoogleNetHttpTransport.newTrustedTransport(),
+              JacksonFactory.getDefaultInstance(),
+              request -> request.setConnectTimeout(connectTimeoutMillis).setReadTimeout(readTimeoutMillis)
+          ).setApplicationName(APPLICATION_NAME).build();
+          youtubeService = service;
+        }
+      }
+    }
+    return service;
   }
 
   public YouTubeVideoDetails getVideoDetails(String videoId) {
@@ -56,29 +86,59 @@ public class YouTubeApiService {
       log.warn("Attempted to get video details for null or empty videoId.");
       return null;
     }
+    YouTubeCallEvent event = new YouTubeCallEvent(videoId);
     try {
-      YouTube.Videos.List request = youtubeService.videos()
-          .list(Collections.singletonList("snippet")); // Parts to retrieve
+      YouTube.Videos.List request = youtube().videos()
+          .list(Arrays.asList("snippet", "contentDetails")); // contentDetails carries the duration
       request.setKey(apiKey);
-      request.setId(Collections.singletonList(videoId));
+      request.setId(List.of(videoId));
 
       VideoListResponse response = request.execute();
       List<Video> videos = response.getItems();
 
+      event.found(videos != null && !videos.isEmpty());
       if (videos != null && !videos.isEmpty()) {
         Video video = videos.get(0);
         String title = video.getSnippet().getTitle();
         String channelTitle = video.getSnippet().getChannelTitle();
-        log.info("Fetched YouTube details for videoId {}: Title='{}', Channel='{}'", videoId, title, channelTitle);
-        return new YouTubeVideoDetails(title, channelTitle);
+        Integer durationSeconds = video.getContentDetails() != null
+            ? parseDurationSeconds(video.getContentDetails().getDuration())
+            : null;
+        log.info("Fetched YouTube details for videoId {}: Title='{}', Channel='{}', Duration={}s", videoId, title,
+            channelTitle, durationSeconds);
+        return new YouTubeVideoDetails(title, channelTitle, durationSeconds);
       } else {
         log.warn("No video details found for videoId: {}", videoId);
         return null;
       }
     } catch (IOException e) {
+      event.error(e);
       log.error("IOException while fetching video details for {}: {}", videoId, e.getMessage());
       // Consider specific exception handling or rethrowing custom exception
       return null;
+    } catch (GeneralSecurityException e) {
+      event.error(e);
+      log.error("Could not create YouTube transport while fetching {}: {}", videoId, e.getMessage());
+      return null;
+    } finally {
+      event.finish();
+    }
+  }
+
+  /**
+   * Parses an ISO-8601 duration as returned by contentDetails.duration (e.g. "PT4M13S").
+   * Live streams report "P0D", which is treated as unknown.
+   */
+  static Integer parseDurationSeconds(String isoDuration) {
+    if (isoDuration == null || isoDuration.isEmpty()) {
+      return null;
+    }
+    try {
+      long seconds = Duration.parse(isoDuration).getSeconds();
+      return seconds > 0 ? (int) seconds : null;
+    } catch (DateTimeParseException e) {
+      log.warn("Could not parse YouTube duration '{}'", isoDuration);
+      return null;
     }
   }
 }
\ No newline at end of file
@@ -0,0 +1,279 @@
+// Purpose: Single-threaded hashed timing wheel for scheduling very large numbers of coarse-grained timeouts.
+
+package com.example.playlistcollaborator.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A hashed timing wheel (Varghese &amp; Lauck). Scheduling and cancelling are O(1)
+ * and lock-free for callers: new and cancelled timeouts are handed to the worker
+ * thread through MPSC queues, and only the worker ever touches the buckets.
+ * Each tick the worker walks a single bucket, so the cost per tick is
+ * proportional to the timeouts in that bucket rather than to everything scheduled.
+ *
+ * Timeouts fire with tick-duration accuracy. Tasks run on the supplied executor so
+ * slow work never stalls the wheel.
+ */
+@Slf4j
+public class HashedWheelTimer {
+
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Executor taskExecutor;
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicLong scheduledCount = new AtomicLong();
+    private final Thread workerThread;
+    private final long startTime;
+    private volatile boolean running = true;
+    private long tick;
+
+    /**
+     * @param threadName Name of the worker thread.
+     * @param tickDuration Duration of a single tick; the timer's resolution.
+     * @param unit Unit of tickDuration.
+     * @param ticksPerWheel Number of buckets; rounded up to a power of two.
+     * @param taskExecutor Executor that runs expired tasks.
+     */
+    public HashedWheelTimer(String threadName, long tickDuration, TimeUnit unit, int ticksPerWheel, Executor taskExecutor) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be positive: " + tickDuration);
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 30)) {
+            throw new IllegalArgumentException("ticksPerWheel must be in (0, 2^30]: " + ticksPerWheel);
+        }
+        int size = Integer.highestOneBit(ticksPerWheel - 1) << 1;
+        size = Math.max(size, 1);
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.taskExecutor = taskExecutor;
+        this.startTime = System.nanoTime();
+        this.workerThread = new Thread(this::runWorker, threadName);
+        this.workerThread.setDaemon(true);
+        this.workerThread.start();
+    }
+
+    /**
+     * Schedules a task to run once after the given delay.
+     * @param task The task to run.
+     * @param delay Delay before the task runs.
+     * @param unit Unit of delay.
+     * @return A handle that can be used to cancel the task.
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        if (!running) {
+            throw new IllegalStateException("Timer has been stopped");
+        }
+        long deadline = System.nanoTime() - startTime + unit.toNanos(Math.max(delay, 0));
+        Timeout timeout = new Timeout(this, task, deadline);
+        scheduledCount.incrementAndGet();
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * @return Number of timeouts that are scheduled and have neither fired nor been cancelled.
+     */
+    public long pendingTimeouts() {
+        return scheduledCount.get();
+    }
+
+    /**
+     * Stops the worker thread. Timeouts that have not fired are discarded.
+     */
+    public void stop() {
+        running = false;
+        workerThread.interrupt();
+    }
+
+    // --- Worker ---
+
+    private void runWorker() {
+        while (running) {
+            if (!waitForNextTick()) {
+                break;
+            }
+            processCancelled();
+            transferPending();
+            wheel[(int) (tick & mask)].expire();
+            tick++;
+        }
+    }
+
+    private boolean waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        while (true) {
+            long now = System.nanoTime() - startTime;
+            long sleepMillis = (deadline - now + 999_999) / 1_000_000;
+            if (sleepMillis <= 0) {
+                return true;
+            }
+            try {
+                Thread.sleep(sleepMillis);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    private void transferPending() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Timeout timeout = pendingTimeouts.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.state.get() != Timeout.ST_INIT) {
+                continue;
+            }
+            long calculated = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+            // Never schedule into the past; a late timeout fires on the current tick
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private void processCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void run(Timeout timeout) {
+        try {
+            taskExecutor.execute(timeout.task);
+        } catch (Throwable t) {
+            log.warn("Timer task {} could not be executed", timeout.task, t);
+        }
+    }
+
+    /**
+     * Handle to a scheduled task.
+     */
+    public static final class Timeout {
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(ST_INIT);
+
+        // Only touched by the worker thread
+        private long remainingRounds;
+        private Timeout next;
+        private Timeout prev;
+        private Bucket bucket;
+
+        private Timeout(HashedWheelTimer timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the task if it has not fired yet.
+         * @return true if this call cancelled the task.
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            timer.scheduledCount.decrementAndGet();
+            timer.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == ST_CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == ST_EXPIRED;
+        }
+
+        private void expire() {
+            if (state.compareAndSet(ST_INIT, ST_EXPIRED)) {
+                timer.scheduledCount.decrementAndGet();
+                timer.run(this);
+            }
+        }
+    }
+
+    /**
+     * Doubly-linked list of timeouts sharing a wheel slot. Only accessed by the worker thread.
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void expire() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    timeout.expire();
+                } else if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
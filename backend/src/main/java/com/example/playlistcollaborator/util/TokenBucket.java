@@ -0,0 +1,78 @@
+// Purpose: Lock-free token bucket used to rate-limit inbound WebSocket frames.
+
+package com.example.playlistcollaborator.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket implemented as the Generic Cell Rate Algorithm: instead of a token
+ * count plus a refill timestamp, the whole state is a single "theoretical arrival time"
+ * held in an AtomicLong, so {@link #tryAcquire()} is one CAS in the common case and
+ * never blocks.
+ *
+ * A bucket with capacity C and refill rate R admits bursts of up to C requests and
+ * a sustained rate of R requests per second.
+ */
+public class TokenBucket {
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final AtomicLong theoreticalArrivalTime;
+
+    /**
+     * @param capacity Maximum burst size; must be at least 1.
+     * @param refillPerSecond Sustained number of permits per second; must be positive.
+     */
+    public TokenBucket(int capacity, double refillPerSecond) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+        }
+        if (refillPerSecond <= 0) {
+            throw new IllegalArgumentException("refillPerSecond must be positive: " + refillPerSecond);
+        }
+        this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / refillPerSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * (capacity - 1);
+        this.theoreticalArrivalTime = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Takes one permit if available.
+     * @return true if the request is admitted, false if the bucket is empty.
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(System.nanoTime());
+    }
+
+    boolean tryAcquire(long nowNanos) {
+        while (true) {
+            long tat = theoreticalArrivalTime.get();
+            long newTat = Math.max(tat, nowNanos) + emissionIntervalNanos;
+            if (newTat - nowNanos > burstToleranceNanos + emissionIntervalNanos) {
+                return false;
+            }
+            if (theoreticalArrivalTime.compareAndSet(tat, newTat)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Checks for a permit without taking it.
+     * @return true if {@link #tryAcquire()} would succeed right now, barring a concurrent caller.
+     */
+    public boolean hasPermit() {
+        return hasPermit(System.nanoTime());
+    }
+
+    boolean hasPermit(long nowNanos) {
+        return Math.max(theoreticalArrivalTime.get(), nowNanos) - nowNanos <= burstToleranceNanos;
+    }
+
+    /**
+     * @return true if the bucket has refilled completely, i.e. it holds no state worth keeping.
+     */
+    public boolean isFull() {
+        return theoreticalArrivalTime.get() - System.nanoTime() <= 0;
+    }
+}
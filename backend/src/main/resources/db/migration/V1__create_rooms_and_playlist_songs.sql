@@ -0,0 +1,19 @@
+-- Baseline schema, matching what Hibernate's ddl-auto=update produced for Room and PlaylistSong.
+-- IF NOT EXISTS keeps this safe for databases that were created by ddl-auto before migrations existed.
+
+CREATE TABLE IF NOT EXISTS rooms (
+    id          UUID         NOT NULL PRIMARY KEY,
+    public_id   VARCHAR(255) NOT NULL UNIQUE,
+    name        VARCHAR(255),
+    created_at  TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS playlist_songs (
+    id                 UUID         NOT NULL PRIMARY KEY,
+    title              VARCHAR(255) NOT NULL,
+    artist             VARCHAR(255) NOT NULL,
+    added_at           TIMESTAMP(6) NOT NULL,
+    room_id            UUID         NOT NULL REFERENCES rooms (id),
+    youtube_video_id   VARCHAR(255),
+    added_by_username  VARCHAR(255)
+);
@@ -0,0 +1,3 @@
+-- Song duration from the YouTube Data API, used by server-side auto-advance.
+
+ALTER TABLE playlist_songs ADD COLUMN IF NOT EXISTS duration_seconds INTEGER;
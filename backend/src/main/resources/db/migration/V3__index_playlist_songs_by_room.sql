@@ -0,0 +1,3 @@
+-- Room queues are always read in insertion order (Room.playlistSongs @OrderBy, findFirstByRoom...OrderByAddedAtAsc).
+
+CREATE INDEX IF NOT EXISTS idx_playlist_songs_room_added_at ON playlist_songs (room_id, added_at);
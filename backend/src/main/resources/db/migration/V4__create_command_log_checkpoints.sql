@@ -0,0 +1,7 @@
+-- Highest command-log sequence applied to playlist_songs, per command log (the id in its directory's log-id file);
+-- only used when playlist.command-log.enabled=true.
+
+CREATE TABLE IF NOT EXISTS command_log_checkpoints (
+    log_id        VARCHAR(36) NOT NULL PRIMARY KEY,
+    last_sequence BIGINT      NOT NULL
+);
@@ -0,0 +1,231 @@
+package com.example.playlistcollaborator.benchmark;
+
+import com.example.playlistcollaborator.broadcast.BroadcastSessionRegistry;
+import com.example.playlistcollaborator.broadcast.OutboundSessionLanes;
+import com.example.playlistcollaborator.broadcast.SharedFrameBroadcaster;
+import com.example.playlistcollaborator.dto.PlaylistSongDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.socket.messaging.StompSubProtocolHandler;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.security.Principal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bytes allocated per room broadcast, by subscriber count, for the stock path
+ * (SimpleBrokerMessageHandler + StompSubProtocolHandler, one encode per subscriber)
+ * versus {@link SharedFrameBroadcaster} (one encode per broadcast, shared bytes).
+ *
+ * Both variants publish the same PlaylistSongDto through SimpMessagingTemplate, so JSON
+ * serialization is included (once) in both, and both deliver through the client outbound
+ * channel on {@link OutboundSessionLanes}. Sessions are in-memory native WebSocket
+ * sessions behind the same ConcurrentWebSocketSessionDecorator the app uses; they consume
+ * the message like the container would (String for text, ByteBuffer for binary) but do
+ * no I/O. Allocation is summed over all threads, including the outbound pool.
+ *
+ * Not a unit test (surefire only runs *Test classes). Run via benchmark/run-broadcast-benchmark.sh.
+ *
+ * Usage: BroadcastAllocationBenchmark [subscriber counts...]   (default 10 100 1000 10000)
+ */
+public class BroadcastAllocationBenchmark {
+
+	private static final String DESTINATION = "/topic/room/bench123/songs";
+	private static final int MEASURED_BROADCASTS = Integer.getInteger("benchmark.broadcasts", 200);
+
+	public static void main(String[] args) throws Exception {
+		int[] counts = args.length > 0
+				? Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+				: new int[] { 10, 100, 1000, 10000 };
+
+		System.out.printf("%12s %18s %18s %14s %14s%n",
+				"subscribers", "default B/bcast", "shared B/bcast", "default B/sub", "shared B/sub");
+		for (int subscribers : counts) {
+			long stock = measure(subscribers, false);
+			long shared = measure(subscribers, true);
+			System.out.printf("%12d %18d %18d %14d %14d%n",
+					subscribers, stock, shared, stock / subscribers, shared / subscribers);
+		}
+	}
+
+	private static long measure(int subscribers, boolean sharedFrames) throws Exception {
+		Harness harness = new Harness(subscribers, sharedFrames);
+		try {
+			// Warm-up until allocation per broadcast is stable (JIT, escape analysis)
+			for (int i = 0; i < Math.max(200, 2_000_000 / subscribers); i++) {
+				harness.broadcast();
+			}
+			long before = totalAllocatedBytes();
+			for (int i = 0; i < MEASURED_BROADCASTS; i++) {
+				harness.broadcast();
+			}
+			return (totalAllocatedBytes() - before) / MEASURED_BROADCASTS;
+		} finally {
+			harness.close();
+		}
+	}
+
+	private static long totalAllocatedBytes() {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long total = 0;
+		for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+			total += Math.max(allocated, 0);
+		}
+		return total;
+	}
+
+	/**
+	 * The broker-side message flow of the running app, minus the network.
+	 */
+	private static final class Harness {
+		final int subscribers;
+		final AtomicLong delivered = new AtomicLong();
+		final SimpleBrokerMessageHandler broker;
+		final OutboundSessionLanes lanes = new OutboundSessionLanes();
+		final SimpMessagingTemplate template;
+		final PlaylistSongDto song = new PlaylistSongDto(UUID.randomUUID(), "Never Gonna Give You Up", "Rick Astley",
+				LocalDateTime.now(), "alice", "dQw4w9WgXcQ", 212);
+
+		Harness(int subscribers, boolean sharedFrames) throws Exception {
+			this.subscribers = subscribers;
+			ExecutorSubscribableChannel clientInbound = new ExecutorSubscribableChannel();
+			lanes.initialize();
+			ExecutorSubscribableChannel clientOutbound = new ExecutorSubscribableChannel(lanes);
+			clientOutbound.addInterceptor(lanes);
+			ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+
+			BroadcastSessionRegistry sessionRegistry = new BroadcastSessionRegistry(10000, 512 * 1024);
+			WebSocketHandler registering = sessionRegistry.decorate(new AbstractWebSocketHandler() { });
+			Map<String, WebSocketSession> sessions = new HashMap<>();
+
+			// Stock outbound path: what SubProtocolWebSocketHandler does for each message
+			StompSubProtocolHandler stompHandler = new StompSubProtocolHandler();
+			clientOutbound.subscribe((MessageHandler) message -> {
+				String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+				stompHandler.handleMessageToClient(sessions.get(sessionId), message);
+			});
+
+			broker = new SimpleBrokerMessageHandler(clientInbound, clientOutbound, brokerChannel, List.of("/topic"));
+			broker.start();
+
+			if (sharedFrames) {
+				SubProtocolWebSocketHandler webSocketHandler = new SubProtocolWebSocketHandler(clientInbound, clientOutbound);
+				webSocketHandler.addProtocolHandler(stompHandler);
+				StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of(
+						"simpleBrokerMessageHandler", broker, "clientOutboundChannel", clientOutbound,
+						"subProtocolWebSocketHandler", webSocketHandler));
+				SharedFrameBroadcaster broadcaster = new SharedFrameBroadcaster(beans.getBeanProvider(SimpleBrokerMessageHandler.class),
+						beans.getBeanProvider(MessageChannel.class), beans.getBeanProvider(WebSocketHandler.class),
+						true, new SimpleMeterRegistry());
+				broadcaster.afterSingletonsInstantiated(); // Installs the shared-frame encoder on stompHandler
+				brokerChannel.addInterceptor(broadcaster);
+			}
+
+			for (int i = 0; i < subscribers; i++) {
+				String sessionId = "session-" + i;
+				registering.afterConnectionEstablished(new InMemorySession(sessionId, delivered));
+				sessions.put(sessionId, sessionRegistry.getSession(sessionId));
+				broker.handleMessage(brokerMessage(SimpMessageType.CONNECT, sessionId, null, null));
+				broker.handleMessage(brokerMessage(SimpMessageType.SUBSCRIBE, sessionId, "sub-0", DESTINATION));
+			}
+
+			template = new SimpMessagingTemplate(brokerChannel);
+			MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+			converter.setObjectMapper(Jackson2ObjectMapperBuilder.json().build()); // As Boot configures it, with java.time support
+			template.setMessageConverter(converter);
+		}
+
+		void broadcast() throws InterruptedException {
+			long target = delivered.get() + subscribers;
+			template.convertAndSend(DESTINATION, song);
+			while (delivered.get() < target) {
+				Thread.onSpinWait(); // Frames are delivered on the outbound pool
+			}
+		}
+
+		void close() {
+			broker.stop();
+			lanes.shutdown();
+		}
+
+		private static Message<byte[]> brokerMessage(SimpMessageType type, String sessionId, String subscriptionId,
+													 String destination) {
+			SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+			accessor.setSessionId(sessionId);
+			accessor.setSubscriptionId(subscriptionId);
+			accessor.setDestination(destination);
+			return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+		}
+	}
+
+	/**
+	 * A native (non-SockJS) session that consumes messages the way the container does, minus the socket write.
+	 */
+	private static final class InMemorySession implements WebSocketSession {
+		private final String id;
+		private final AtomicLong delivered;
+		private long bytesSeen;
+
+		InMemorySession(String id, AtomicLong delivered) {
+			this.id = id;
+			this.delivered = delivered;
+		}
+
+		@Override
+		public void sendMessage(WebSocketMessage<?> message) {
+			if (message instanceof TextMessage) {
+				bytesSeen += ((TextMessage) message).getPayload().length();
+			} else {
+				bytesSeen += ((ByteBuffer) message.getPayload()).remaining();
+			}
+			delivered.incrementAndGet();
+		}
+
+		@Override public String getId() { return id; }
+		@Override public URI getUri() { return null; }
+		@Override public HttpHeaders getHandshakeHeaders() { return new HttpHeaders(); }
+		@Override public Map<String, Object> getAttributes() { return Collections.emptyMap(); }
+		@Override public Principal getPrincipal() { return null; }
+		@Override public InetSocketAddress getLocalAddress() { return null; }
+		@Override public InetSocketAddress getRemoteAddress() { return null; }
+		@Override public String getAcceptedProtocol() { return "v12.stomp"; }
+		@Override public void setTextMessageSizeLimit(int messageSizeLimit) { }
+		@Override public int getTextMessageSizeLimit() { return 0; }
+		@Override public void setBinaryMessageSizeLimit(int messageSizeLimit) { }
+		@Override public int getBinaryMessageSizeLimit() { return 0; }
+		@Override public List<WebSocketExtension> getExtensions() { return Collections.emptyList(); }
+		@Override public boolean isOpen() { return true; }
+		@Override public void close() { }
+		@Override public void close(CloseStatus status) { }
+	}
+}
@@ -0,0 +1,160 @@
+package com.example.playlistcollaborator.benchmark;
+
+import com.example.playlistcollaborator.broadcast.BroadcastSessionRegistry;
+import com.example.playlistcollaborator.heartbeat.SessionHeartbeatMonitor;
+import com.example.playlistcollaborator.service.RoomPresenceService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CPU time of the {@link SessionHeartbeatMonitor} wheel thread as the number of idle
+ * connections grows. In every run the same 1,000 sessions owe a heartbeat every 200 ms;
+ * only the population of sessions that are not due (60 s heartbeats) changes. With a
+ * timing wheel the CPU should stay roughly flat, where the broker's scan-every-session
+ * heartbeat task grows with the total count.
+ *
+ * Sessions are armed through the monitor's CONNECT_ACK interceptor, as in the app, and
+ * are in-memory sessions that count heartbeats but do no I/O.
+ *
+ * Not a unit test (surefire only runs *Test classes). Run via benchmark/run-heartbeat-wheel-benchmark.sh.
+ *
+ * Usage: HeartbeatWheelBenchmark [idle session counts...]   (default 1000 10000 100000)
+ */
+public class HeartbeatWheelBenchmark {
+
+	private static final String WHEEL_THREAD = "stomp-heartbeat-wheel";
+	private static final int DUE_SESSIONS = 1_000;
+	private static final long MEASURE_MILLIS = Long.getLong("benchmark.measure-ms", 2_000);
+
+	public static void main(String[] args) throws Exception {
+		int[] counts = args.length > 0
+				? Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+				: new int[] { 1_000, 10_000, 100_000 };
+
+		System.out.printf("%,d sessions due every 200 ms, measured over %d ms%n%n", DUE_SESSIONS, MEASURE_MILLIS);
+		System.out.printf("%14s %16s %14s%n", "Idle sessions", "Wheel CPU (us)", "Heartbeats");
+		for (int idle : counts) {
+			run(idle); // Warm-up
+			long[] result = run(idle);
+			System.out.printf("%,14d %,16d %,14d%n", idle, TimeUnit.NANOSECONDS.toMicros(result[0]), result[1]);
+		}
+	}
+
+	// --- Helper Methods ---
+
+	/**
+	 * @return { wheel thread CPU nanos, heartbeats sent } over the measurement window.
+	 */
+	private static long[] run(int idleSessions) throws Exception {
+		BroadcastSessionRegistry sessionRegistry = new BroadcastSessionRegistry(10_000, 512 * 1024);
+		SessionHeartbeatMonitor monitor = new SessionHeartbeatMonitor(sessionRegistry,
+				new StaticListableBeanFactory().getBeanProvider(RoomPresenceService.class),
+				200, 0, 10, 8192, 1, new SimpleMeterRegistry()); // 82 s per wheel rotation
+		// Same order as WebSocketConfig: the monitor wraps the session registry
+		WebSocketHandler handler = monitor.decorate(sessionRegistry.decorate(new AbstractWebSocketHandler() { }));
+		AtomicLong heartbeats = new AtomicLong();
+		try {
+			for (int i = 0; i < DUE_SESSIONS; i++) {
+				connect(handler, monitor, "due-" + i, 200, heartbeats);
+			}
+			for (int i = 0; i < idleSessions; i++) {
+				connect(handler, monitor, "idle-" + i, 60_000, heartbeats);
+			}
+			Thread.sleep(500); // Let the wheel take in the new timeouts
+
+			ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+			long wheelThread = newestWheelThreadId(threads);
+			long heartbeatsBefore = heartbeats.get();
+			long cpuBefore = threads.getThreadCpuTime(wheelThread);
+			Thread.sleep(MEASURE_MILLIS);
+			return new long[] { threads.getThreadCpuTime(wheelThread) - cpuBefore, heartbeats.get() - heartbeatsBefore };
+		} finally {
+			monitor.shutdown();
+		}
+	}
+
+	private static void connect(WebSocketHandler handler, SessionHeartbeatMonitor monitor, String id,
+								long clientReceiveMillis, AtomicLong heartbeats) throws Exception {
+		handler.afterConnectionEstablished(new InMemorySession(id, heartbeats));
+
+		SimpMessageHeaderAccessor connect = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+		connect.setSessionId(id);
+		connect.setHeader(SimpMessageHeaderAccessor.HEART_BEAT_HEADER, new long[] { 0, clientReceiveMillis });
+		SimpMessageHeaderAccessor ack = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT_ACK);
+		ack.setSessionId(id);
+		ack.setHeader(SimpMessageHeaderAccessor.CONNECT_MESSAGE_HEADER,
+				MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()));
+		monitor.preSend(MessageBuilder.createMessage(new byte[0], ack.getMessageHeaders()), null);
+	}
+
+	// The newest live wheel thread belongs to the monitor just created
+	private static long newestWheelThreadId(ThreadMXBean threads) {
+		long newest = -1;
+		for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+			if (info != null && WHEEL_THREAD.equals(info.getThreadName()) && info.getThreadState() != Thread.State.TERMINATED) {
+				newest = Math.max(newest, info.getThreadId());
+			}
+		}
+		return newest;
+	}
+
+	/**
+	 * Counts heartbeats; no I/O.
+	 */
+	private static final class InMemorySession implements WebSocketSession {
+		private final String id;
+		private final AtomicLong heartbeats;
+
+		InMemorySession(String id, AtomicLong heartbeats) {
+			this.id = id;
+			this.heartbeats = heartbeats;
+		}
+
+		@Override
+		public void sendMessage(WebSocketMessage<?> message) {
+			if ("\n".equals(message.getPayload())) {
+				heartbeats.incrementAndGet();
+			}
+		}
+
+		@Override public String getId() { return id; }
+		@Override public URI getUri() { return null; }
+		@Override public HttpHeaders getHandshakeHeaders() { return new HttpHeaders(); }
+		@Override public Map<String, Object> getAttributes() { return Collections.emptyMap(); }
+		@Override public Principal getPrincipal() { return null; }
+		@Override public InetSocketAddress getLocalAddress() { return null; }
+		@Override public InetSocketAddress getRemoteAddress() { return null; }
+		@Override public String getAcceptedProtocol() { return "v12.stomp"; }
+		@Override public void setTextMessageSizeLimit(int messageSizeLimit) { }
+		@Override public int getTextMessageSizeLimit() { return 0; }
+		@Override public void setBinaryMessageSizeLimit(int messageSizeLimit) { }
+		@Override public int getBinaryMessageSizeLimit() { return 0; }
+		@Override public List<WebSocketExtension> getExtensions() { return Collections.emptyList(); }
+		@Override public boolean isOpen() { return true; }
+		@Override public void close() { }
+		@Override public void close(CloseStatus status) { }
+	}
+}
@@ -0,0 +1,190 @@
+package com.example.playlistcollaborator.benchmark;
+
+import ch.qos.logback.classic.LoggerContext;
+import com.example.playlistcollaborator.controller.PlaylistController;
+import com.example.playlistcollaborator.datasource.ReplicaReadPolicy;
+import com.example.playlistcollaborator.dto.AddSongRequest;
+import com.example.playlistcollaborator.entity.PlaylistSong;
+import com.example.playlistcollaborator.entity.Room;
+import com.example.playlistcollaborator.logging.PerMessageLogRateLimiter;
+import com.example.playlistcollaborator.repository.PlaylistSongRepository;
+import com.example.playlistcollaborator.repository.RoomRepository;
+import com.example.playlistcollaborator.service.RoomServiceImpl;
+import com.example.playlistcollaborator.service.SongDetailsResolver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingInitializationContext;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * addSong handler throughput (PlaylistController -> RoomServiceImpl -> SongDetailsResolver)
+ * under each logging setup, initialized from the app's own logback-spring.xml through
+ * Spring Boot's LoggingSystem:
+ * - dev: default profile, synchronous text console appender;
+ * - async-json: prod profile with per-message rate limiting switched off, so every line
+ *   still goes through the async buffer and the JSON encoder;
+ * - prod: prod profile as shipped (async, JSON, rate-limited);
+ * - off: root level OFF.
+ *
+ * Repositories are in-memory proxies and the request has no videoId, so there is no DB or
+ * YouTube time: what is left is the handler's own work plus logging, i.e. the worst case
+ * for logging overhead. Console output goes to a pipe that the run script drains (stdout),
+ * like a container log driver; results are printed to stderr.
+ *
+ * Not a unit test (surefire only runs *Test classes). Run via benchmark/run-logging-benchmark.sh.
+ *
+ * Usage: LoggingThroughputBenchmark <dev|async-json|prod|off> [threads] [seconds]
+ */
+public class LoggingThroughputBenchmark {
+
+	private static final int WARMUP_SECONDS = Integer.getInteger("benchmark.warmup-seconds", 3);
+
+	public static void main(String[] args) throws Exception {
+		String mode = args.length > 0 ? args[0] : "prod";
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+		PrintStream results = System.err;
+		if (System.console() != null) {
+			// Never benchmark against a terminal
+			System.setOut(new PrintStream(new FileOutputStream("/dev/null"), false));
+		}
+
+		initializeLogging(mode);
+		PlaylistController controller = controller();
+
+		measure(controller, threads, WARMUP_SECONDS);
+		long handled = measure(controller, threads, seconds);
+
+		long suppressed = 0;
+		LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		for (var filter : context.getTurboFilterList()) {
+			if (filter instanceof PerMessageLogRateLimiter) {
+				suppressed = ((PerMessageLogRateLimiter) filter).getSuppressedCount();
+			}
+		}
+		context.stop(); // Drains the async appender
+		results.printf("%-12s %8d threads %,14.0f addSong/s %,14d lines rate-limited%n",
+				mode, threads, handled / (double) seconds, suppressed);
+	}
+
+	// --- Helper Methods ---
+
+	private static void initializeLogging(String mode) {
+		StandardEnvironment environment = new StandardEnvironment();
+		if (!mode.equals("dev") && !mode.equals("off")) {
+			environment.setActiveProfiles("prod");
+		}
+		if (mode.equals("async-json")) {
+			environment.getPropertySources().addFirst(new MapPropertySource("benchmark",
+					Map.of("playlist.logging.rate-limit.loggers", "")));
+		}
+		LoggingSystem system = LoggingSystem.get(LoggingThroughputBenchmark.class.getClassLoader());
+		system.beforeInitialize();
+		system.initialize(new LoggingInitializationContext(environment), "classpath:logback-spring.xml", null);
+		system.setLogLevel(LoggingSystem.ROOT_LOGGER_NAME, mode.equals("off") ? LogLevel.OFF : LogLevel.INFO);
+	}
+
+	private static long measure(PlaylistController controller, int threads, int seconds) throws Exception {
+		LongAdder handled = new LongAdder();
+		AtomicBoolean running = new AtomicBoolean(true);
+		CountDownLatch done = new CountDownLatch(threads);
+		List<Thread> workers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			String roomId = "room" + t;
+			AddSongRequest request = new AddSongRequest(null, "Song " + t, "Artist " + t, "user" + t, null);
+			Thread worker = new Thread(() -> {
+				try {
+					while (running.get()) {
+						controller.addSong(roomId, request);
+						handled.increment();
+					}
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				} finally {
+					done.countDown();
+				}
+			}, "handler-" + t);
+			workers.add(worker);
+			worker.start();
+		}
+		TimeUnit.SECONDS.sleep(seconds);
+		running.set(false);
+		done.await();
+		return handled.sum();
+	}
+
+	private static PlaylistController controller() {
+		Room room = new Room();
+		room.setId(UUID.randomUUID());
+		room.setPublicId("bench");
+		room.setName("Benchmark");
+		room.setCreatedAt(LocalDateTime.now());
+		room.setPlaylistSongs(new ArrayList<>());
+
+		RoomRepository rooms = repository(RoomRepository.class, Optional.of(room));
+		PlaylistSongRepository songs = repository(PlaylistSongRepository.class, null);
+		ReplicaReadPolicy replicaReadPolicy = new ReplicaReadPolicy("", 2000, 5000, new SimpleMeterRegistry());
+		RoomServiceImpl roomService = new RoomServiceImpl(rooms, songs, new SongDetailsResolver(null), null, replicaReadPolicy, transactionTemplate());
+		return new PlaylistController(roomService, null, null, null);
+	}
+
+	// No database, so nothing to begin or commit
+	private static TransactionTemplate transactionTemplate() {
+		return new TransactionTemplate(new PlatformTransactionManager() {
+			@Override
+			public TransactionStatus getTransaction(TransactionDefinition definition) {
+				return new SimpleTransactionStatus();
+			}
+
+			@Override
+			public void commit(TransactionStatus status) {
+			}
+
+			@Override
+			public void rollback(TransactionStatus status) {
+			}
+		});
+	}
+
+	// findByPublicId returns the given room; save assigns an id like the database would. Lock-free, unlike a mock.
+	@SuppressWarnings("unchecked")
+	private static <T> T repository(Class<T> type, Optional<Room> room) {
+		return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "findByPublicId":
+					return room;
+				case "save":
+					if (args[0] instanceof PlaylistSong) {
+						PlaylistSong song = (PlaylistSong) args[0];
+						song.setId(UUID.randomUUID());
+						song.setAddedAt(LocalDateTime.now());
+					}
+					return args[0];
+				default:
+					throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+}
@@ -0,0 +1,132 @@
+package com.example.playlistcollaborator.benchmark;
+
+import com.example.playlistcollaborator.commandlog.RoomCommand;
+import com.example.playlistcollaborator.commandlog.RoomState;
+import com.example.playlistcollaborator.commandlog.SongCatalog;
+import com.example.playlistcollaborator.dto.PlaylistSongDto;
+import com.example.playlistcollaborator.dto.RoomDto;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.IntFunction;
+
+/**
+ * Retained heap of 100k in-memory room queues, comparing the previous layout (a list
+ * of PlaylistSongDto per room, each song with its own UUID, LocalDateTime and strings)
+ * with the column layout in {@link RoomState}.
+ *
+ * Each room gets a random number of songs (default 0..20, mean 10) drawn from a catalog
+ * of popular songs with a skewed distribution, the way a real population of rooms
+ * repeats hit songs. Every song is decoded afresh, as it would be from a database row or
+ * a command-log record, so the DTO layout holds its own string copies. Retained size is
+ * the used heap after full GCs with the rooms reachable, minus the baseline before
+ * building them; run with -XX:+UseSerialGC (as the script does) for stable numbers.
+ *
+ * Not a unit test (surefire only runs *Test classes). Run via benchmark/run-room-state-heap-benchmark.sh.
+ *
+ * Usage: RoomStateHeapBenchmark [rooms] [max songs per room]   (default 100000 20)
+ */
+public class RoomStateHeapBenchmark {
+
+	private static final int DISTINCT_SONGS = 20_000;
+	private static final long SEED = 42;
+
+	private static long songsBuilt;
+
+	public static void main(String[] args) throws Exception {
+		int rooms = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+		int maxSongs = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+		System.out.printf("%,d rooms, 0..%d songs each, %,d distinct songs%n%n", rooms, maxSongs, DISTINCT_SONGS);
+		System.out.printf("%-24s %12s %14s %14s%n", "Layout", "Songs", "Retained MB", "Bytes/song");
+
+		Object[] holder = new Object[1];
+		report("List<PlaylistSongDto>", rooms, holder, count -> {
+			List<RoomDto> dtos = new ArrayList<>(count);
+			forEachRoom(count, maxSongs, (room, songs) -> dtos.add(room));
+			return dtos;
+		});
+		report("RoomState (columns)", rooms, holder, count -> {
+			List<RoomState> states = new ArrayList<>(count);
+			forEachRoom(count, maxSongs, (room, songs) -> {
+				RoomState state = new RoomState(new RoomDto(room.getPublicId(), room.getName(), room.getCreatedAt(), null));
+				songs.forEach(state::apply); // Same path as command-log replay
+				states.add(state);
+			});
+			return states;
+		});
+		System.out.printf("%nSongCatalog holds %,d distinct strings%n", SongCatalog.shared().size());
+	}
+
+	// --- Helper Methods ---
+
+	private static void report(String label, int rooms, Object[] holder, IntFunction<Object> build)
+			throws InterruptedException {
+		long before = usedHeapAfterGc();
+		holder[0] = build.apply(rooms);
+		long after = usedHeapAfterGc();
+		long songs = songsBuilt;
+		long retained = after - before;
+		System.out.printf("%-24s %,12d %14.1f %14.1f%n", label, songs, retained / 1024.0 / 1024.0,
+				songs > 0 ? (double) retained / songs : 0.0);
+		holder[0] = null;
+	}
+
+	private interface RoomConsumer {
+		void accept(RoomDto room, List<RoomCommand> songs);
+	}
+
+	// Same seed for both layouts, so both hold exactly the same rooms and songs
+	private static void forEachRoom(int rooms, int maxSongs, RoomConsumer consumer) {
+		Random random = new Random(SEED);
+		songsBuilt = 0;
+		for (int r = 0; r < rooms; r++) {
+			String publicId = Long.toString(0x10000000L + r, 36);
+			int count = random.nextInt(maxSongs + 1);
+			List<PlaylistSongDto> dtos = new ArrayList<>(count);
+			List<RoomCommand> commands = new ArrayList<>(count);
+			for (int s = 0; s < count; s++) {
+				int song = skewed(random);
+				long addedAt = 1_746_000_000_000L + random.nextInt(86_400_000);
+				RoomCommand command = RoomCommand.addSong(publicId, new UUID(random.nextLong(), random.nextLong()),
+						videoId(song), "Song title number " + song, "Artist " + (song % 2_000),
+						"user" + random.nextInt(50_000), 120 + song % 300, addedAt);
+				command.setSequence(s + 1);
+				commands.add(command);
+				dtos.add(RoomState.toSongDto(command));
+			}
+			songsBuilt += count;
+			consumer.accept(new RoomDto(publicId, "Room " + publicId, LocalDateTime.now(), dtos), commands);
+		}
+	}
+
+	// Popular songs are much more likely than the long tail
+	private static int skewed(Random random) {
+		double u = random.nextDouble();
+		return (int) (DISTINCT_SONGS * u * u * u);
+	}
+
+	private static String videoId(int song) {
+		String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+		StringBuilder id = new StringBuilder(11);
+		long bits = song * 0x9E3779B97F4A7C15L;
+		for (int i = 0; i < 10; i++) {
+			id.append(alphabet.charAt((int) (bits >>> (i * 6)) & 0x3F));
+		}
+		return id.append("AEIMQUYcgkosw048".charAt(song & 0xF)).toString();
+	}
+
+	private static long usedHeapAfterGc() throws InterruptedException {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+			Thread.sleep(100);
+		}
+		return memory.getHeapMemoryUsage().getUsed();
+	}
+}
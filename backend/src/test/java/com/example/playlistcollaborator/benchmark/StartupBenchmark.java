@@ -0,0 +1,102 @@
+package com.example.playlistcollaborator.benchmark;
+
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures time-to-first-message for a freshly launched backend: the wall-clock time
+ * from starting the JVM until a STOMP client's CONNECT is acknowledged. Each variant is
+ * a set of JVM flags; every variant is launched several times and min/median reported.
+ *
+ * Not a unit test (surefire only runs *Test classes). Run via benchmark/run-startup-benchmark.sh.
+ *
+ * Usage: StartupBenchmark &lt;app jar&gt; &lt;iterations&gt; &lt;label=jvm flags&gt;...
+ * e.g.   StartupBenchmark target/app.jar 5 "baseline=" "appcds=-XX:SharedArchiveFile=app.jsa"
+ * Extra application arguments can be supplied with -Dbenchmark.appArgs="--spring.profiles.active=..."
+ */
+public class StartupBenchmark {
+
+	private static final int PORT = Integer.getInteger("benchmark.port", 18080);
+	private static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(120);
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 3) {
+			System.err.println("Usage: StartupBenchmark <app jar> <iterations> <label=jvm flags>...");
+			System.exit(1);
+		}
+		String jar = args[0];
+		int iterations = Integer.parseInt(args[1]);
+		List<String> appArgs = splitFlags(System.getProperty("benchmark.appArgs", ""));
+
+		System.out.printf("%-16s %10s %10s %10s%n", "variant", "min(ms)", "median(ms)", "max(ms)");
+		for (int v = 2; v < args.length; v++) {
+			String label = args[v].substring(0, args[v].indexOf('='));
+			List<String> jvmFlags = splitFlags(args[v].substring(args[v].indexOf('=') + 1));
+			List<Long> samples = new ArrayList<>();
+			for (int i = 0; i < iterations; i++) {
+				samples.add(measureOnce(jar, jvmFlags, appArgs));
+			}
+			Collections.sort(samples);
+			System.out.printf("%-16s %10d %10d %10d%n", label, samples.get(0), samples.get(samples.size() / 2),
+					samples.get(samples.size() - 1));
+		}
+	}
+
+	private static long measureOnce(String jar, List<String> jvmFlags, List<String> appArgs) throws Exception {
+		List<String> command = new ArrayList<>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.addAll(jvmFlags);
+		command.add("-jar");
+		command.add(jar);
+		command.add("--server.port=" + PORT);
+		command.addAll(appArgs);
+
+		WebSocketStompClient stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+		long start = System.nanoTime();
+		Process process = new ProcessBuilder(command).redirectErrorStream(true)
+				.redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+		try {
+			while (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < TIMEOUT_MILLIS) {
+				if (!process.isAlive()) {
+					throw new IllegalStateException("Application exited with code " + process.exitValue());
+				}
+				try {
+					StompSession session = stompClient
+							.connectAsync("ws://localhost:" + PORT + "/ws-playlist/websocket", new StompSessionHandlerAdapter() {})
+							.get(5, TimeUnit.SECONDS);
+					long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+					session.disconnect();
+					return elapsed;
+				} catch (Exception notReadyYet) {
+					Thread.sleep(20);
+				}
+			}
+			throw new IllegalStateException("No STOMP session within " + TIMEOUT_MILLIS + " ms");
+		} finally {
+			stompClient.stop();
+			process.destroy();
+			if (!process.waitFor(10, TimeUnit.SECONDS)) {
+				process.destroyForcibly().waitFor();
+			}
+		}
+	}
+
+	private static List<String> splitFlags(String flags) {
+		List<String> result = new ArrayList<>();
+		for (String flag : Arrays.asList(flags.trim().split("\\s+"))) {
+			if (!flag.isEmpty()) {
+				result.add(flag);
+			}
+		}
+		return result;
+	}
+}
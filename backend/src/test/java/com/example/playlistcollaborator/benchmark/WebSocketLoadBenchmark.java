@@ -0,0 +1,299 @@
+package com.example.playlistcollaborator.benchmark;
+
+import com.example.playlistcollaborator.dto.PlaybackStateDto;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.WebSocketClient;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Load harness for the STOMP endpoints: launches the backend jar, connects N clients to
+ * one room, has the room leader publish playback-state messages, and reports delivered
+ * messages per second plus CPU time spent by the server (and by the clients) per
+ * 1,000 deliveries. Variants:
+ * - native:         raw WebSocket on /ws-playlist-native, no compression offered
+ * - native-deflate: same endpoint, client offers permessage-deflate
+ * - sockjs:         SockJS (WebSocket transport) on /ws-playlist
+ *
+ * The leader keeps a bounded window of messages in flight so no session trips the send
+ * buffer limit. Each variant runs a warm-up pass before the measured one.
+ *
+ * Not a unit test (surefire only runs *Test classes). Run via benchmark/run-websocket-load-benchmark.sh.
+ *
+ * Usage: WebSocketLoadBenchmark &lt;app jar&gt; [variants...]   (default native native-deflate sockjs)
+ * Options: -Dbenchmark.clients=500 -Dbenchmark.messages=2000 -Dbenchmark.appArgs="..." -Dbenchmark.serverLog=file
+ */
+public class WebSocketLoadBenchmark {
+
+	private static final int PORT = Integer.getInteger("benchmark.port", 18081);
+	private static final int CLIENTS = Integer.getInteger("benchmark.clients", 500);
+	private static final int MESSAGES = Integer.getInteger("benchmark.messages", 2000);
+	private static final int WINDOW = Integer.getInteger("benchmark.window", 20);
+	private static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(120);
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("Usage: WebSocketLoadBenchmark <app jar> [variants...]");
+			System.exit(1);
+		}
+		List<String> variants = args.length > 1
+				? Arrays.asList(args).subList(1, args.length)
+				: List.of("native", "native-deflate", "sockjs");
+
+		Process server = startServer(args[0]);
+		try {
+			awaitServer(server);
+			System.out.printf("%d clients in one room, %d messages each (%d deliveries per variant)%n",
+					CLIENTS, MESSAGES, (long) CLIENTS * MESSAGES);
+			System.out.printf("%-16s %-20s %14s %18s %18s%n",
+					"variant", "extensions", "deliveries/s", "server CPU us/1k", "client CPU us/1k");
+			for (String variant : variants) {
+				Result result = run(variant, server);
+				System.out.printf("%-16s %-20s %14.0f %18.0f %18.0f%n", variant, result.extensions,
+						result.deliveriesPerSecond, result.serverCpuMicrosPer1k, result.clientCpuMicrosPer1k);
+			}
+		} finally {
+			server.destroy();
+			if (!server.waitFor(10, TimeUnit.SECONDS)) {
+				server.destroyForcibly().waitFor();
+			}
+		}
+	}
+
+	private static Result run(String variant, Process server) throws Exception {
+		RecordingClient transport = new RecordingClient(new StandardWebSocketClient());
+		WebSocketClient client;
+		String url;
+		WebSocketHttpHeaders handshakeHeaders = new WebSocketHttpHeaders();
+		switch (variant) {
+			case "native":
+				client = transport;
+				url = "ws://localhost:" + PORT + "/ws-playlist-native";
+				break;
+			case "native-deflate":
+				client = transport;
+				url = "ws://localhost:" + PORT + "/ws-playlist-native";
+				handshakeHeaders.setSecWebSocketExtensions(List.of(new WebSocketExtension("permessage-deflate")));
+				break;
+			case "sockjs":
+				client = new SockJsClient(List.of(new WebSocketTransport(transport)));
+				url = "http://localhost:" + PORT + "/ws-playlist";
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown variant: " + variant);
+		}
+
+		WebSocketStompClient stompClient = new WebSocketStompClient(client);
+		stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+		stompClient.setInboundMessageSizeLimit(64 * 1024);
+		AtomicLong delivered = new AtomicLong();
+		String room = "loadbench-" + variant; // A fresh room, so leftovers of the previous variant cannot hold the leadership
+		List<StompSession> sessions = new ArrayList<>();
+		try {
+			// The first subscriber becomes the room leader, the only one allowed to publish playback state
+			for (int i = 0; i < CLIENTS; i++) {
+				StompHeaders connectHeaders = new StompHeaders();
+				connectHeaders.add("username", "user" + i);
+				StompSession session = stompClient.connectAsync(URI.create(url), handshakeHeaders, connectHeaders,
+						new StompSessionHandlerAdapter() { }).get(10, TimeUnit.SECONDS);
+				session.subscribe("/topic/room/" + room + "/playbackState", new CountingHandler(delivered));
+				sessions.add(session);
+				if (i == 0) {
+					Thread.sleep(200); // Let the leader election settle before anyone else joins
+				}
+			}
+			StompSession leader = sessions.get(0);
+
+			publish(leader, room, MESSAGES, delivered); // Warm-up, also proves every subscription is registered
+			delivered.set(0);
+
+			long serverCpuBefore = cpuNanos(server);
+			long clientCpuBefore = clientCpuNanos();
+			long start = System.nanoTime();
+			publish(leader, room, MESSAGES, delivered);
+			long elapsed = System.nanoTime() - start;
+			long serverCpu = cpuNanos(server) - serverCpuBefore;
+			long clientCpu = clientCpuNanos() - clientCpuBefore;
+
+			double deliveries = delivered.get();
+			return new Result(transport.extensions(),
+					deliveries / (elapsed / 1e9),
+					serverCpu / 1e3 / (deliveries / 1000),
+					clientCpu / 1e3 / (deliveries / 1000));
+		} finally {
+			for (StompSession session : sessions) {
+				session.disconnect();
+			}
+			stompClient.stop();
+			Thread.sleep(500); // Let the server process the disconnects before the next variant
+		}
+	}
+
+	private static void publish(StompSession leader, String room, int messages, AtomicLong delivered) throws InterruptedException {
+		long base = delivered.get();
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+		for (int i = 0; i < messages; i++) {
+			// Keep at most WINDOW broadcasts in flight
+			while (delivered.get() - base < (long) (i - WINDOW) * CLIENTS) {
+				checkDeadline(deadline, delivered.get() - base);
+				Thread.onSpinWait();
+			}
+			leader.send("/app/room/" + room + "/playbackState",
+					new PlaybackStateDto(false, i, "dQw4w9WgXcQ", "user0", "pause"));
+		}
+		while (delivered.get() - base < (long) messages * CLIENTS) {
+			checkDeadline(deadline, delivered.get() - base);
+			Thread.sleep(1);
+		}
+	}
+
+	private static void checkDeadline(long deadline, long delivered) {
+		if (System.nanoTime() > deadline) {
+			throw new IllegalStateException("Timed out after " + delivered + " deliveries");
+		}
+	}
+
+	// --- Helper Methods ---
+
+	private static Process startServer(String jar) throws Exception {
+		List<String> command = new ArrayList<>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.add("-jar");
+		command.add(jar);
+		command.add("--server.port=" + PORT);
+		command.add("--playlist.admission.enabled=false"); // Measure the transport, not the rate limiter
+		command.add("--playlist.websocket.permessage-deflate=true"); // Accept the offer of the native-deflate variant
+		for (String arg : System.getProperty("benchmark.appArgs", "").trim().split("\\s+")) {
+			if (!arg.isEmpty()) {
+				command.add(arg);
+			}
+		}
+		String serverLog = System.getProperty("benchmark.serverLog");
+		return new ProcessBuilder(command).redirectErrorStream(true)
+				.redirectOutput(serverLog != null ? ProcessBuilder.Redirect.to(new File(serverLog)) : ProcessBuilder.Redirect.DISCARD)
+				.start();
+	}
+
+	private static void awaitServer(Process server) throws Exception {
+		WebSocketStompClient probe = new WebSocketStompClient(new StandardWebSocketClient());
+		long start = System.nanoTime();
+		try {
+			while (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < TIMEOUT_MILLIS) {
+				if (!server.isAlive()) {
+					throw new IllegalStateException("Application exited with code " + server.exitValue());
+				}
+				try {
+					probe.connectAsync("ws://localhost:" + PORT + "/ws-playlist-native", new StompSessionHandlerAdapter() { })
+							.get(5, TimeUnit.SECONDS).disconnect();
+					return;
+				} catch (Exception notReadyYet) {
+					Thread.sleep(100);
+				}
+			}
+			throw new IllegalStateException("Server not ready within " + TIMEOUT_MILLIS + " ms");
+		} finally {
+			probe.stop();
+		}
+	}
+
+	private static long cpuNanos(Process process) {
+		return process.info().totalCpuDuration().map(Duration::toNanos)
+				.orElseThrow(() -> new IllegalStateException("CPU time of the server process is not available"));
+	}
+
+	private static long clientCpuNanos() {
+		return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+	}
+
+	private static final class CountingHandler implements StompFrameHandler {
+		private final AtomicLong delivered;
+
+		CountingHandler(AtomicLong delivered) {
+			this.delivered = delivered;
+		}
+
+		@Override
+		public Type getPayloadType(StompHeaders headers) {
+			return byte[].class; // Count only; skip JSON decoding on the client side
+		}
+
+		@Override
+		public void handleFrame(StompHeaders headers, Object payload) {
+			delivered.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Passes handshakes through and remembers which extensions the server agreed to.
+	 */
+	private static final class RecordingClient implements WebSocketClient {
+		private final WebSocketClient delegate;
+		private final AtomicReference<String> extensions = new AtomicReference<>("-");
+
+		RecordingClient(WebSocketClient delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public CompletableFuture<WebSocketSession> execute(WebSocketHandler handler, String uriTemplate, Object... uriVariables) {
+			return record(delegate.execute(handler, uriTemplate, uriVariables));
+		}
+
+		@Override
+		public CompletableFuture<WebSocketSession> execute(WebSocketHandler handler, WebSocketHttpHeaders headers, URI uri) {
+			return record(delegate.execute(handler, headers, uri));
+		}
+
+		private CompletableFuture<WebSocketSession> record(CompletableFuture<WebSocketSession> future) {
+			return future.thenApply(session -> {
+				if (!session.getExtensions().isEmpty()) {
+					extensions.set(session.getExtensions().stream().map(WebSocketExtension::getName)
+							.collect(Collectors.joining(",")));
+				}
+				return session;
+			});
+		}
+
+		String extensions() {
+			return extensions.get();
+		}
+	}
+
+	private static final class Result {
+		final String extensions;
+		final double deliveriesPerSecond;
+		final double serverCpuMicrosPer1k;
+		final double clientCpuMicrosPer1k;
+
+		Result(String extensions, double deliveriesPerSecond, double serverCpuMicrosPer1k, double clientCpuMicrosPer1k) {
+			this.extensions = extensions;
+			this.deliveriesPerSecond = deliveriesPerSecond;
+			this.serverCpuMicrosPer1k = serverCpuMicrosPer1k;
+			this.clientCpuMicrosPer1k = clientCpuMicrosPer1k;
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package com.example.playlistcollaborator.broadcast;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.broker.OrderedMessageChannelDecorator;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+import org.springframework.web.socket.messaging.StompSubProtocolHandler;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class OutboundSessionLanesTest {
+
+	private OutboundSessionLanes lanes;
+	private ExecutorSubscribableChannel channel;
+
+	@BeforeEach
+	void setUp() {
+		lanes = new OutboundSessionLanes();
+		lanes.setCorePoolSize(4);
+		lanes.initialize();
+		channel = new ExecutorSubscribableChannel(lanes);
+		channel.addInterceptor(lanes);
+	}
+
+	@AfterEach
+	void tearDown() {
+		lanes.shutdown();
+	}
+
+	@Test
+	void eachSessionIsHandledInPublishOrderAcrossPoolThreads() throws Exception {
+		Map<String, List<Integer>> handled = new ConcurrentHashMap<>();
+		AtomicInteger count = new AtomicInteger();
+		channel.subscribe(message -> {
+			if (ThreadLocalRandom.current().nextInt(10) == 0) {
+				Thread.yield(); // Let other pool threads overtake this one if nothing stops them
+			}
+			String[] parts = new String(((byte[]) message.getPayload()), StandardCharsets.UTF_8).split(":");
+			handled.computeIfAbsent(parts[0], id -> Collections.synchronizedList(new ArrayList<>())).add(Integer.parseInt(parts[1]));
+			count.incrementAndGet();
+		});
+
+		for (int i = 0; i < 500; i++) {
+			for (String session : List.of("a", "b", "c")) {
+				channel.send(message(session, session + ":" + i));
+			}
+		}
+
+		awaitTrue(() -> count.get() == 1500 && lanes.getActiveLaneCount() == 0);
+		List<Integer> expected = IntStream.range(0, 500).boxed().collect(Collectors.toList());
+		assertEquals(expected, handled.get("a"));
+		assertEquals(expected, handled.get("b"));
+		assertEquals(expected, handled.get("c"));
+	}
+
+	@Test
+	void messagesWithoutASessionSkipTheLanes() throws Exception {
+		CountDownLatch handled = new CountDownLatch(1);
+		channel.subscribe(message -> handled.countDown());
+
+		StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+		channel.send(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+
+		assertTrue(handled.await(5, TimeUnit.SECONDS));
+		assertEquals(0, lanes.getActiveLaneCount());
+	}
+
+	@Test
+	void taggedMessagesCarryTheTaskStompSubProtocolHandlerLooksFor() {
+		Message<?> tagged = lanes.preSend(message("a", "x"), channel);
+
+		assertNotNull(OrderedMessageChannelDecorator.getNextMessageTask(tagged));
+	}
+
+	@Test
+	void aBlockedSocketDoesNotHoldItsLaneAndOverflowsItsSendBuffer() throws Exception {
+		CountDownLatch unblock = new CountDownLatch(1);
+		CountDownLatch writing = new CountDownLatch(1);
+		WebSocketSession slowSocket = mock(WebSocketSession.class);
+		when(slowSocket.getId()).thenReturn("slow");
+		when(slowSocket.isOpen()).thenReturn(true);
+		doAnswer(invocation -> {
+			writing.countDown();
+			unblock.await();
+			return null;
+		}).when(slowSocket).sendMessage(any());
+		ConcurrentWebSocketSessionDecorator slow = new ConcurrentWebSocketSessionDecorator(slowSocket, 60_000, 1024);
+
+		// The channel's subscriber in the app is SubProtocolWebSocketHandler, which does this
+		StompSubProtocolHandler stompHandler = new StompSubProtocolHandler();
+		List<Exception> overflows = Collections.synchronizedList(new ArrayList<>());
+		channel.subscribe(message -> {
+			try {
+				stompHandler.handleMessageToClient(slow, message);
+			} catch (SessionLimitExceededException e) {
+				overflows.add(e);
+			}
+		});
+
+		try {
+			channel.send(message("slow", "first"));
+			assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+			// The first frame's write is stuck, yet every later frame reaches the buffer
+			String payload = "x".repeat(200);
+			for (int i = 0; i < 8; i++) {
+				channel.send(message("slow", payload));
+			}
+			awaitTrue(() -> lanes.getActiveLaneCount() == 0 && !overflows.isEmpty());
+			assertTrue(slow.getBufferSize() > 1024); // Over the decorator's limit, which it reported as on the stock path
+			verify(slowSocket, times(1)).sendMessage(any(WebSocketMessage.class));
+		} finally {
+			unblock.countDown();
+		}
+	}
+
+	// --- Helper Methods ---
+
+	private static Message<byte[]> message(String sessionId, String body) {
+		StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+		accessor.setSessionId(sessionId);
+		accessor.setSubscriptionId("sub-0");
+		accessor.setDestination("/topic/room/abc/songs");
+		return MessageBuilder.createMessage(body.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+	}
+
+	private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "Timed out");
+			Thread.sleep(5);
+		}
+	}
+}
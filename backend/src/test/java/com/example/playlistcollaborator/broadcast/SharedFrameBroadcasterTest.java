@@ -0,0 +1,153 @@
+package com.example.playlistcollaborator.broadcast;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.DefaultSubscriptionRegistry;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.messaging.StompSubProtocolHandler;
+import org.springframework.web.socket.sockjs.transport.SockJsSession;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SharedFrameBroadcasterTest {
+
+	private static final String SONGS_TOPIC = "/topic/room/abc/songs";
+
+	private SimpleMeterRegistry meterRegistry;
+	private DefaultSubscriptionRegistry subscriptions;
+	private MessageChannel outbound;
+	private SharedFrameBroadcaster broadcaster;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		subscriptions = new DefaultSubscriptionRegistry();
+		outbound = mock(MessageChannel.class);
+		when(outbound.send(any())).thenReturn(true);
+		broadcaster = new SharedFrameBroadcaster(subscriptions, outbound, meterRegistry);
+	}
+
+	@Test
+	void encodesOncePerSubscriptionIdAndSendsEverySubscriberItsOwnMessage() {
+		subscribe("a", "sub-0");
+		subscribe("b", "sub-0");
+		subscribe("c", "sub-3");
+
+		Message<?> result = broadcaster.preSend(broadcastMessage(SONGS_TOPIC, "{\"title\":\"x\"}"), null);
+
+		// Passed on, but under a destination the simple broker ignores
+		assertNotNull(result);
+		assertEquals(SharedFrameBroadcaster.HANDLED_DESTINATION_PREFIX + SONGS_TOPIC,
+				SimpMessageHeaderAccessor.getDestination(result.getHeaders()));
+		assertEquals(2.0, meterRegistry.get("playlist.broadcast.frames-encoded").counter().count());
+		assertEquals(3.0, meterRegistry.get("playlist.broadcast.deliveries").counter().count());
+
+		Map<String, Message<?>> bySession = sentMessages();
+		assertEquals(Map.of("a", "sub-0", "b", "sub-0", "c", "sub-3"), bySession.entrySet().stream().collect(Collectors.toMap(
+				Map.Entry::getKey, entry -> SimpMessageHeaderAccessor.getSubscriptionId(entry.getValue().getHeaders()))));
+		assertSame(frameOf(bySession.get("a")), frameOf(bySession.get("b"))); // One array for both
+
+		String frame = new String(frameOf(bySession.get("a")), StandardCharsets.UTF_8);
+		assertTrue(frame.startsWith("MESSAGE\n"));
+		assertTrue(frame.contains("destination:" + SONGS_TOPIC + "\n"));
+		assertTrue(frame.contains("subscription:sub-0\n"));
+		assertTrue(frame.contains("content-type:application/json\n"));
+		assertTrue(frame.endsWith("{\"title\":\"x\"}\0"));
+		assertTrue(new String(frameOf(bySession.get("c")), StandardCharsets.UTF_8).contains("subscription:sub-3\n"));
+	}
+
+	@Test
+	void stompHandlerSendsTheSharedFrameAsTextOnEveryTransport() throws Exception {
+		subscribe("native", "sub-0");
+		subscribe("sockjs", "sub-0");
+		broadcaster.preSend(broadcastMessage(SONGS_TOPIC, "{}"), null);
+		Map<String, Message<?>> bySession = sentMessages();
+
+		StompSubProtocolHandler stompHandler = new StompSubProtocolHandler();
+		stompHandler.setEncoder(new SharedFrameBroadcaster.SharedFrameEncoder());
+		WebSocketSession nativeSession = mock(WebSocketSession.class);
+		WebSocketSession sockJsSession = mock(SockJsSession.class);
+		stompHandler.handleMessageToClient(nativeSession, bySession.get("native"));
+		stompHandler.handleMessageToClient(sockJsSession, bySession.get("sockjs"));
+
+		String expected = new String(frameOf(bySession.get("native")), StandardCharsets.UTF_8);
+		assertEquals(expected, sentText(nativeSession));
+		assertEquals(expected, sentText(sockJsSession));
+	}
+
+	@Test
+	void sharedFrameEncoderStillEncodesOtherFrames() {
+		StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+		accessor.setDestination("/user/queue/errors");
+		accessor.setSubscriptionId("sub-1");
+
+		byte[] frame = new SharedFrameBroadcaster.SharedFrameEncoder()
+				.encode(accessor.getMessageHeaders(), "{}".getBytes(StandardCharsets.UTF_8));
+
+		assertTrue(new String(frame, StandardCharsets.UTF_8).startsWith("MESSAGE\n"));
+	}
+
+	@Test
+	void nonRoomDestinationsAreLeftAlone() {
+		subscribe("a", "sub-0");
+
+		Message<?> other = broadcastMessage("/topic/other", "{}");
+		assertSame(other, broadcaster.preSend(other, null));
+		verifyNoInteractions(outbound);
+	}
+
+	// --- Helper Methods ---
+
+	private void subscribe(String sessionId, String subscriptionId) {
+		SimpMessageHeaderAccessor subscribe = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+		subscribe.setSessionId(sessionId);
+		subscribe.setSubscriptionId(subscriptionId);
+		subscribe.setDestination(SONGS_TOPIC);
+		subscriptions.registerSubscription(MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()));
+	}
+
+	private static Message<byte[]> broadcastMessage(String destination, String json) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+		accessor.setDestination(destination);
+		accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+		return MessageBuilder.createMessage(json.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+	}
+
+	private Map<String, Message<?>> sentMessages() {
+		ArgumentCaptor<Message<?>> sent = ArgumentCaptor.forClass(Message.class);
+		verify(outbound, atLeastOnce()).send(sent.capture());
+		List<Message<?>> messages = sent.getAllValues();
+		return messages.stream().collect(Collectors.toMap(
+				message -> SimpMessageHeaderAccessor.getSessionId(message.getHeaders()), Function.identity()));
+	}
+
+	private static byte[] frameOf(Message<?> message) {
+		return (byte[]) message.getHeaders().get(SharedFrameBroadcaster.SHARED_FRAME_HEADER);
+	}
+
+	private static String sentText(WebSocketSession session) throws Exception {
+		ArgumentCaptor<WebSocketMessage<?>> sent = ArgumentCaptor.forClass(WebSocketMessage.class);
+		verify(session).sendMessage(sent.capture());
+		return ((TextMessage) sent.getValue()).getPayload();
+	}
+}
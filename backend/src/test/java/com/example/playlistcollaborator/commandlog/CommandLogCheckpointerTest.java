@@ -0,0 +1,162 @@
+package com.example.playlistcollaborator.commandlog;
+
+import com.example.playlistcollaborator.config.CommandLogConfig;
+import com.example.playlistcollaborator.entity.CommandLogCheckpoint;
+import com.example.playlistcollaborator.repository.CommandLogCheckpointRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CommandLogCheckpointerTest {
+
+	@TempDir
+	Path directory;
+
+	// Stand-ins for the command_log_checkpoints and playlist_songs tables
+	private final Map<String, Long> checkpoints = new HashMap<>();
+	private final List<UUID> insertedSongIds = new ArrayList<>();
+	private final List<SegmentedCommandLog> openLogs = new ArrayList<>();
+
+	private final CommandLogConfig config = new CommandLogConfig(new MockEnvironment());
+	private CommandLogCheckpointRepository checkpointRepository;
+
+	@BeforeEach
+	void setUp() {
+		checkpointRepository = mock(CommandLogCheckpointRepository.class);
+		when(checkpointRepository.findById(anyString())).thenAnswer(invocation -> {
+			String logId = invocation.getArgument(0);
+			return Optional.ofNullable(checkpoints.get(logId)).map(sequence -> new CommandLogCheckpoint(logId, sequence));
+		});
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		for (SegmentedCommandLog commandLog : openLogs) {
+			commandLog.halt();
+		}
+	}
+
+	@Test
+	void restartReplaysOnlyCommandsAfterTheCheckpoint() throws Exception {
+		Path logDirectory = directory.resolve("log");
+		CommandLogCheckpointer checkpointer = checkpointer(logDirectory, 3);
+		SegmentedCommandLog commandLog = recover(checkpointer, logDirectory);
+		List<UUID> songIds = appendSongs(commandLog, 5);
+		assertEquals(3, checkpointer.checkpointBatch());
+		commandLog.halt(); // Crash with sequences 4 and 5 logged but not checkpointed
+		insertedSongIds.clear();
+
+		CommandLogCheckpointer restarted = checkpointer(logDirectory, 3);
+		recover(restarted, logDirectory);
+
+		assertEquals(songIds.subList(3, 5), insertedSongIds);
+		assertEquals(5, restarted.getCheckpointedSequence());
+		assertEquals(0, restarted.getPendingCount());
+	}
+
+	@Test
+	void eachLogRecoversFromItsOwnCheckpoint() throws Exception {
+		Path firstDirectory = directory.resolve("first");
+		Path secondDirectory = directory.resolve("second");
+
+		CommandLogCheckpointer first = checkpointer(firstDirectory, 100);
+		SegmentedCommandLog firstLog = recover(first, firstDirectory);
+		appendSongs(firstLog, 5);
+		first.checkpointBatch();
+		firstLog.close();
+
+		CommandLogCheckpointer second = checkpointer(secondDirectory, 100);
+		SegmentedCommandLog secondLog = recover(second, secondDirectory);
+		List<UUID> secondSongs = appendSongs(secondLog, 3);
+		secondLog.halt(); // Crash before the second log's first checkpoint
+		insertedSongIds.clear();
+
+		assertNotEquals(first.getLogId(), second.getLogId());
+		assertEquals(Map.of(first.getLogId(), 5L), checkpoints);
+
+		// A shared checkpoint row would have said 5 here and skipped all three commands
+		CommandLogCheckpointer secondRestarted = checkpointer(secondDirectory, 100);
+		recover(secondRestarted, secondDirectory);
+		assertEquals(second.getLogId(), secondRestarted.getLogId());
+		assertEquals(secondSongs, insertedSongIds);
+		assertEquals(3L, checkpoints.get(second.getLogId()));
+
+		insertedSongIds.clear();
+		CommandLogCheckpointer firstRestarted = checkpointer(firstDirectory, 100);
+		recover(firstRestarted, firstDirectory);
+		assertTrue(insertedSongIds.isEmpty());
+		assertEquals(5L, checkpoints.get(first.getLogId()));
+	}
+
+	@Test
+	void commandLogRefusesTheReplicatedProfile() {
+		MockEnvironment replicated = new MockEnvironment();
+		replicated.setActiveProfiles("docker", "fast-startup");
+
+		assertThrows(IllegalStateException.class, () -> new CommandLogConfig(replicated));
+	}
+
+	// --- Helper Methods ---
+
+	private CommandLogCheckpointer checkpointer(Path logDirectory, int batchSize) throws IOException {
+		return config.commandLogCheckpointer(new RecordingJdbcTemplate(), mock(PlatformTransactionManager.class),
+				checkpointRepository, logDirectory.toString(), batchSize, new SimpleMeterRegistry());
+	}
+
+	private SegmentedCommandLog recover(CommandLogCheckpointer checkpointer, Path logDirectory) throws IOException {
+		SegmentedCommandLog commandLog = config.commandLog(checkpointer, logDirectory.toString(), 64 * 1024, 1,
+				new SimpleMeterRegistry());
+		openLogs.add(commandLog);
+		return commandLog;
+	}
+
+	private static List<UUID> appendSongs(SegmentedCommandLog commandLog, int count) throws Exception {
+		List<UUID> songIds = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			UUID songId = UUID.randomUUID();
+			commandLog.append(RoomCommand.addSong("room1", songId, "dQw4w9WgXcQ", "Song " + i, "Artist", "alice", 200,
+					System.currentTimeMillis())).get(1, TimeUnit.SECONDS);
+			songIds.add(songId);
+		}
+		return songIds;
+	}
+
+	private class RecordingJdbcTemplate extends JdbcTemplate {
+
+		@Override
+		public int[] batchUpdate(String sql, List<Object[]> batchArgs, int[] argTypes) {
+			if (sql.startsWith("INSERT INTO playlist_songs")) {
+				batchArgs.forEach(args -> insertedSongIds.add((UUID) args[0]));
+			}
+			return new int[batchArgs.size()];
+		}
+
+		@Override
+		public int update(String sql, Object... args) {
+			if (sql.startsWith("INSERT INTO command_log_checkpoints")) {
+				checkpoints.put((String) args[0], (Long) args[1]);
+			}
+			return 1;
+		}
+	}
+}
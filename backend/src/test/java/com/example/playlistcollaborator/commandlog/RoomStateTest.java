@@ -0,0 +1,111 @@
+package com.example.playlistcollaborator.commandlog;
+
+import com.example.playlistcollaborator.dto.PlaylistSongDto;
+import com.example.playlistcollaborator.dto.RoomDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoomStateTest {
+
+	// Microsecond precision, as Postgres returns it; ADDED falls in a US daylight-saving overlap
+	private static final LocalDateTime CREATED = LocalDateTime.of(2025, 5, 1, 12, 0, 0, 123_456_000);
+	private static final LocalDateTime ADDED = LocalDateTime.of(2025, 11, 2, 1, 30, 15, 987_654_000);
+
+	private final SongCatalog catalog = new SongCatalog(4);
+
+	@Test
+	void youtubeVideoIdsRoundTripThroughPackedLongs() {
+		for (String videoId : List.of("dQw4w9WgXcQ", "AAAAAAAAAAA", "__________w", "-_-_-_-_-_8", "9bZkp7q19f0")) {
+			assertTrue(PackedVideoId.isPackable(videoId), videoId);
+			assertEquals(videoId, PackedVideoId.unpack(PackedVideoId.pack(videoId)));
+		}
+		// Wrong length, characters outside base64url, or low bits set in the last character
+		for (String videoId : List.of("dQw4w9WgXc", "dQw4w9WgXcQQ", "dQw4w9WgX!Q", "dQw4w9WgXcR")) {
+			assertFalse(PackedVideoId.isPackable(videoId), videoId);
+		}
+		assertFalse(PackedVideoId.isPackable(null));
+	}
+
+	@Test
+	void songsLoadedFromDatabaseComeBackUnchanged() {
+		List<PlaylistSongDto> songs = List.of(
+				song("dQw4w9WgXcQ", "Never Gonna Give You Up", 213),
+				song(null, "Uploaded file", null),
+				song("not-a-youtube-id", "Elsewhere", 95));
+		RoomState state = new RoomState(new RoomDto("room1", "Room", CREATED, new ArrayList<>(songs)), catalog);
+
+		RoomDto room = state.toRoomDto();
+
+		assertEquals("room1", room.getPublicId());
+		assertEquals(CREATED, room.getCreatedAt());
+		assertEquals(songs, room.getPlaylistSongs());
+		assertEquals(songs.get(0), state.head().orElseThrow());
+	}
+
+	@Test
+	void missingTimestampsStayMissingAndTheEpochStaysTheEpoch() {
+		LocalDateTime epoch = LocalDateTime.of(1970, 1, 1, 0, 0);
+		PlaylistSongDto undated = new PlaylistSongDto(UUID.randomUUID(), "Undated", "Artist", null, "user", null, null);
+		PlaylistSongDto atEpoch = new PlaylistSongDto(UUID.randomUUID(), "Epoch", "Artist", epoch, "user", null, null);
+		RoomState state = new RoomState(new RoomDto("room1", "Room", null, new ArrayList<>(List.of(undated, atEpoch))), catalog);
+
+		RoomDto room = state.toRoomDto();
+
+		assertNull(room.getCreatedAt());
+		assertNull(room.getPlaylistSongs().get(0).getAddedAt());
+		assertEquals(epoch, room.getPlaylistSongs().get(1).getAddedAt());
+	}
+
+	@Test
+	void addAndRemoveKeepQueueOrder() {
+		RoomState state = new RoomState(new RoomDto("room1", "Room", CREATED, null), catalog);
+		List<RoomCommand> added = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			RoomCommand command = RoomCommand.addSong("room1", UUID.randomUUID(), "dQw4w9WgXc" + "AEIMQUYcgk".charAt(i),
+					"Song " + i, "Artist", "user", i, System.currentTimeMillis());
+			command.setSequence(i + 1);
+			state.apply(command);
+			added.add(command);
+		}
+		RoomCommand removeFirst = RoomCommand.removeSong("room1", added.get(0).getSongId());
+		removeFirst.setSequence(11);
+		RoomCommand removeMiddle = RoomCommand.removeSong("room1", added.get(5).getSongId());
+		removeMiddle.setSequence(12);
+		state.apply(removeFirst);
+		state.apply(removeMiddle);
+
+		List<PlaylistSongDto> expected = added.stream()
+				.filter(command -> command != added.get(0) && command != added.get(5))
+				.map(RoomState::toSongDto)
+				.collect(Collectors.toList());
+		assertEquals(expected, state.toRoomDto().getPlaylistSongs());
+		assertEquals(8, state.size());
+		assertFalse(state.containsSong(added.get(5).getSongId()));
+		assertTrue(state.containsSong(added.get(9).getSongId()));
+	}
+
+	@Test
+	void titlesAndArtistsAreSharedAcrossRooms() {
+		RoomState first = new RoomState(new RoomDto("room1", "Room", CREATED, new ArrayList<>(
+				List.of(song("dQw4w9WgXcQ", new String("Shared title"), 200)))), catalog);
+		RoomState second = new RoomState(new RoomDto("room2", "Room", CREATED, new ArrayList<>(
+				List.of(song("dQw4w9WgXcQ", new String("Shared title"), 200)))), catalog);
+
+		assertSame(first.head().orElseThrow().getTitle(), second.head().orElseThrow().getTitle());
+		assertSame(first.head().orElseThrow().getArtist(), second.head().orElseThrow().getArtist());
+	}
+
+	// --- Helper Methods ---
+
+	private static PlaylistSongDto song(String videoId, String title, Integer duration) {
+		return new PlaylistSongDto(UUID.randomUUID(), title, new String("Artist"),
+				ADDED, "user", videoId, duration);
+	}
+}
@@ -0,0 +1,317 @@
+package com.example.playlistcollaborator.commandlog;
+
+import com.example.playlistcollaborator.dto.PlaylistSongDto;
+import com.example.playlistcollaborator.dto.RoomDto;
+import com.example.playlistcollaborator.exception.CommandLogCorruptedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentedCommandLogTest {
+
+	private static final int SMALL_SEGMENT = 1024;
+
+	@TempDir
+	Path directory;
+
+	private SegmentedCommandLog commandLog;
+
+	@AfterEach
+	void tearDown() throws IOException {
+		if (commandLog != null) {
+			commandLog.halt();
+		}
+	}
+
+	@Test
+	void appendedCommandsReplayInOrderAfterRestart() throws Exception {
+		commandLog = open(64 * 1024, 0);
+		List<RoomCommand> written = appendSongs(10);
+		commandLog.close();
+
+		commandLog = open(64 * 1024, 0);
+		List<RoomCommand> replayed = replayAll();
+
+		assertEquals(10, replayed.size());
+		for (int i = 0; i < written.size(); i++) {
+			assertEquals(i + 1, replayed.get(i).getSequence());
+			assertEquals(written.get(i), replayed.get(i));
+		}
+		assertEquals(11, commandLog.append(RoomCommand.removeSong("room1", UUID.randomUUID())).get(1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void commandsSurviveCrashWithoutCleanClose() throws Exception {
+		commandLog = open(64 * 1024, 0);
+		appendSongs(5);
+		commandLog.halt(); // No final flush, no close
+
+		commandLog = open(64 * 1024, 0);
+		assertEquals(5, replayAll().size());
+	}
+
+	@Test
+	void groupCommitAcknowledgesAppendsOnlyAfterFlush() throws Exception {
+		commandLog = new SegmentedCommandLog(directory, 64 * 1024, 60_000, 0, null);
+		CompletableFuture<Long> first = commandLog.append(song("room1", "first"));
+		CompletableFuture<Long> second = commandLog.append(song("room2", "second"));
+		assertFalse(first.isDone());
+		assertFalse(second.isDone());
+
+		commandLog.flush(); // One fsync covers both rooms
+
+		assertEquals(1L, first.get(0, TimeUnit.SECONDS));
+		assertEquals(2L, second.get(0, TimeUnit.SECONDS));
+		assertEquals(2, commandLog.getDurableSequence());
+	}
+
+	@Test
+	void appendListenerSeesCommandsInSequenceOrderUnderConcurrency() throws Exception {
+		List<Long> seen = new ArrayList<>();
+		commandLog = new SegmentedCommandLog(directory, 64 * 1024, 1, 0, command -> seen.add(command.getSequence()));
+		int threads = 8;
+		CountDownLatch done = new CountDownLatch(threads);
+		for (int t = 0; t < threads; t++) {
+			String room = "room" + t;
+			new Thread(() -> {
+				for (int i = 0; i < 100; i++) {
+					commandLog.append(song(room, "song" + i));
+				}
+				done.countDown();
+			}).start();
+		}
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+
+		assertEquals(800, seen.size());
+		for (int i = 0; i < seen.size(); i++) {
+			assertEquals(i + 1, seen.get(i));
+		}
+	}
+
+	@Test
+	void fullSegmentsRotateAndReplayAcrossFiles() throws Exception {
+		commandLog = open(SMALL_SEGMENT, 0);
+		appendSongs(50);
+		assertTrue(commandLog.getSegmentCount() > 1);
+		commandLog.close();
+
+		assertEquals(commandLogFiles().size(), reopenSegmentCount());
+		List<RoomCommand> replayed = replayAll();
+		assertEquals(50, replayed.size());
+		assertEquals(50, replayed.get(49).getSequence());
+	}
+
+	@Test
+	void tornRecordAtTailIsDiscardedAndLogStaysWritable() throws Exception {
+		commandLog = open(64 * 1024, 0);
+		appendSongs(3);
+		commandLog.close();
+
+		// A crash mid-append: header claims 200 bytes but only garbage made it to disk
+		Path tail = lastSegment();
+		int end = endOfRecords(tail);
+		try (RandomAccessFile file = new RandomAccessFile(tail.toFile(), "rw")) {
+			file.seek(end);
+			file.writeInt(200);
+			file.writeInt(12345);
+			file.write(new byte[] { 1, 2, 3, 4, 5 });
+		}
+
+		commandLog = open(64 * 1024, 0);
+		assertEquals(3, replayAll().size());
+		assertEquals(4, commandLog.append(song("room1", "after crash")).get(1, TimeUnit.SECONDS));
+		commandLog.close();
+
+		commandLog = open(64 * 1024, 0);
+		List<RoomCommand> replayed = replayAll();
+		assertEquals(4, replayed.size());
+		assertEquals("after crash", replayed.get(3).getTitle());
+	}
+
+	@Test
+	void tailRecordWithBadChecksumIsDiscarded() throws Exception {
+		commandLog = open(64 * 1024, 0);
+		appendSongs(3);
+		commandLog.close();
+
+		// Flip a payload byte of the last record
+		Path tail = lastSegment();
+		int end = endOfRecords(tail);
+		try (RandomAccessFile file = new RandomAccessFile(tail.toFile(), "rw")) {
+			file.seek(end - 1);
+			int last = file.read();
+			file.seek(end - 1);
+			file.write(last ^ 0xFF);
+		}
+
+		commandLog = open(64 * 1024, 0);
+		List<RoomCommand> replayed = replayAll();
+		assertEquals(2, replayed.size());
+		assertEquals(3, commandLog.append(song("room1", "rewritten")).get(1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void damageInOlderSegmentFailsRecovery() throws Exception {
+		commandLog = open(SMALL_SEGMENT, 0);
+		appendSongs(50);
+		commandLog.close();
+		commandLog = null;
+
+		Path first = commandLogFiles().get(0);
+		try (RandomAccessFile file = new RandomAccessFile(first.toFile(), "rw")) {
+			file.seek(20);
+			file.write(0xFF);
+		}
+
+		assertThrows(CommandLogCorruptedException.class, () -> open(SMALL_SEGMENT, 0));
+	}
+
+	@Test
+	void compactionDeletesOnlyCheckpointedClosedSegments() throws Exception {
+		commandLog = open(SMALL_SEGMENT, 0);
+		appendSongs(50);
+		int before = commandLog.getSegmentCount();
+
+		assertEquals(0, commandLog.compact(0));
+		int deleted = commandLog.compact(25);
+		assertTrue(deleted > 0);
+		assertEquals(before - deleted, commandLog.getSegmentCount());
+		assertEquals(commandLog.getSegmentCount(), commandLogFiles().size());
+
+		// Everything after the checkpoint is still replayable, in and across restarts
+		List<RoomCommand> afterCheckpoint = new ArrayList<>();
+		commandLog.replay(25, afterCheckpoint::add);
+		assertEquals(25, afterCheckpoint.size());
+		assertEquals(26, afterCheckpoint.get(0).getSequence());
+		commandLog.close();
+
+		commandLog = open(SMALL_SEGMENT, 26);
+		afterCheckpoint.clear();
+		commandLog.replay(25, afterCheckpoint::add);
+		assertEquals(25, afterCheckpoint.size());
+
+		// The active segment survives even a checkpoint past everything
+		commandLog.compact(Long.MAX_VALUE);
+		assertEquals(1, commandLog.getSegmentCount());
+	}
+
+	@Test
+	void sequenceContinuesFromCheckpointWhenLogIsEmpty() throws Exception {
+		commandLog = open(64 * 1024, 0);
+		appendSongs(3);
+		commandLog.close();
+		for (Path file : commandLogFiles()) {
+			Files.delete(file);
+		}
+
+		commandLog = open(64 * 1024, 3 + 1);
+		assertEquals(0, replayAll().size());
+		assertEquals(4, commandLog.append(song("room1", "next")).get(1, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void replayRebuildsRoomStateAfterCrash() throws Exception {
+		commandLog = open(SMALL_SEGMENT, 0);
+		RoomCommand a = song("room1", "A");
+		RoomCommand b = song("room1", "B");
+		RoomCommand c = song("room1", "C");
+		commandLog.append(a);
+		commandLog.append(b);
+		commandLog.append(RoomCommand.removeSong("room1", a.getSongId()));
+		commandLog.append(c);
+		commandLog.append(song("room2", "other room"));
+		commandLog.halt();
+
+		commandLog = open(SMALL_SEGMENT, 0);
+		RoomState state = new RoomState(new RoomDto("room1", "Room", LocalDateTime.now(), new ArrayList<>()));
+		commandLog.replay(0, command -> {
+			if (command.getPublicId().equals("room1")) {
+				state.apply(command);
+			}
+		});
+
+		List<String> titles = state.toRoomDto().getPlaylistSongs().stream()
+				.map(PlaylistSongDto::getTitle)
+				.collect(Collectors.toList());
+		assertEquals(List.of("B", "C"), titles);
+		assertEquals(4, state.getLastSequence());
+	}
+
+	// --- Helper Methods ---
+
+	private SegmentedCommandLog open(int segmentBytes, long minNextSequence) throws IOException {
+		return new SegmentedCommandLog(directory, segmentBytes, 1, minNextSequence, null);
+	}
+
+	private List<RoomCommand> appendSongs(int count) throws Exception {
+		List<RoomCommand> written = new ArrayList<>();
+		CompletableFuture<Long> last = null;
+		for (int i = 0; i < count; i++) {
+			RoomCommand command = song("room" + (i % 3), "Song " + i);
+			last = commandLog.append(command);
+			written.add(command);
+		}
+		last.get(1, TimeUnit.SECONDS);
+		return written;
+	}
+
+	private List<RoomCommand> replayAll() throws IOException {
+		List<RoomCommand> replayed = new ArrayList<>();
+		commandLog.replay(0, replayed::add);
+		return replayed;
+	}
+
+	private int reopenSegmentCount() throws IOException {
+		commandLog = open(SMALL_SEGMENT, 0);
+		return commandLog.getSegmentCount();
+	}
+
+	private List<Path> commandLogFiles() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(path -> path.getFileName().toString().startsWith(SegmentedCommandLog.SEGMENT_PREFIX))
+					.sorted()
+					.collect(Collectors.toList());
+		}
+	}
+
+	private Path lastSegment() throws IOException {
+		List<Path> files = commandLogFiles();
+		return files.get(files.size() - 1);
+	}
+
+	// Walks the length-prefixed records the same way recovery does
+	private static int endOfRecords(Path segment) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "r")) {
+			int position = 0;
+			while (true) {
+				file.seek(position);
+				int length = file.readInt();
+				if (length == 0) {
+					return position;
+				}
+				position += 2 * Integer.BYTES + length;
+			}
+		}
+	}
+
+	private static RoomCommand song(String publicId, String title) {
+		return RoomCommand.addSong(publicId, UUID.randomUUID(), "dQw4w9WgXcQ", title, "Artist", "alice", 212,
+				System.currentTimeMillis());
+	}
+}
@@ -0,0 +1,114 @@
+package com.example.playlistcollaborator.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ReplicaRoutingDataSourceTest {
+
+	private ReplicaReadPolicy readPolicy;
+	private ReplicaRoutingDataSource routingDataSource;
+
+	@BeforeEach
+	void setUp() {
+		readPolicy = new ReplicaReadPolicy("jdbc:postgresql://replica/db", 200, 1000, new SimpleMeterRegistry());
+		routingDataSource = new ReplicaRoutingDataSource(mock(DataSource.class), mock(DataSource.class), readPolicy);
+	}
+
+	@AfterEach
+	void tearDown() {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+	}
+
+	@Test
+	void readOnlyTransactionsGoToReplicaAndWritesToPrimary() {
+		assertEquals(ReplicaRoutingDataSource.Target.PRIMARY, routingDataSource.determineCurrentLookupKey());
+
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		assertEquals(ReplicaRoutingDataSource.Target.REPLICA, routingDataSource.determineCurrentLookupKey());
+	}
+
+	@Test
+	void recentlyWrittenRoomIsReadFromPrimaryUntilWindowPasses() throws InterruptedException {
+		readPolicy.recordWrite("abc");
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+		assertEquals(ReplicaRoutingDataSource.Target.PRIMARY,
+				readPolicy.read("abc", routingDataSource::determineCurrentLookupKey));
+		assertEquals(ReplicaRoutingDataSource.Target.REPLICA,
+				readPolicy.read("other", routingDataSource::determineCurrentLookupKey));
+
+		Thread.sleep(300);
+		assertEquals(ReplicaRoutingDataSource.Target.REPLICA,
+				readPolicy.read("abc", routingDataSource::determineCurrentLookupKey));
+	}
+
+	@Test
+	void clientReportedWriteIsReadFromPrimaryOnAnyInstance() {
+		// Nothing was recorded on this instance; the write went through another one
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+		assertEquals(ReplicaRoutingDataSource.Target.PRIMARY,
+				readPolicy.readAfterClientWrite(50L, routingDataSource::determineCurrentLookupKey));
+		assertEquals(ReplicaRoutingDataSource.Target.REPLICA,
+				readPolicy.readAfterClientWrite(5000L, routingDataSource::determineCurrentLookupKey));
+		assertEquals(ReplicaRoutingDataSource.Target.REPLICA,
+				readPolicy.readAfterClientWrite(null, routingDataSource::determineCurrentLookupKey));
+	}
+
+	@Test
+	void laggingOrUnreachableReplicaFallsBackToPrimary() {
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+		readPolicy.updateReplicaLag(5000);
+		assertEquals(ReplicaRoutingDataSource.Target.PRIMARY, routingDataSource.determineCurrentLookupKey());
+
+		readPolicy.updateReplicaLag(10);
+		assertEquals(ReplicaRoutingDataSource.Target.REPLICA, routingDataSource.determineCurrentLookupKey());
+
+		readPolicy.markReplicaUnavailable();
+		assertEquals(ReplicaRoutingDataSource.Target.PRIMARY, routingDataSource.determineCurrentLookupKey());
+	}
+
+	@Test
+	void lagProbeRunsOnItsOwnThreadWithAQueryTimeout() throws Exception {
+		Statement statement = mock(Statement.class);
+		CountDownLatch probed = new CountDownLatch(1);
+		when(statement.executeQuery(anyString())).thenAnswer(invocation -> {
+			probed.countDown();
+			throw new SQLTimeoutException("canceling statement due to statement timeout");
+		});
+		Connection connection = mock(Connection.class);
+		when(connection.createStatement()).thenReturn(statement);
+		DataSource replica = mock(DataSource.class);
+		when(replica.getConnection()).thenReturn(connection);
+
+		ReplicaLagMonitor monitor = new ReplicaLagMonitor(replica, readPolicy, 10, 1500);
+		try {
+			assertTrue(probed.await(5, TimeUnit.SECONDS));
+		} finally {
+			monitor.shutdown();
+		}
+		verify(statement, atLeastOnce()).setQueryTimeout(2);
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (routingDataSource.determineCurrentLookupKey() != ReplicaRoutingDataSource.Target.PRIMARY
+				&& System.nanoTime() < deadline) {
+			Thread.sleep(5); // The failure is recorded just after the query throws
+		}
+		assertEquals(ReplicaRoutingDataSource.Target.PRIMARY, routingDataSource.determineCurrentLookupKey());
+	}
+}
@@ -0,0 +1,237 @@
+package com.example.playlistcollaborator.flightrecorder;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.annotation.support.SimpAnnotationMethodMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class FlightRecorderEventsTest {
+
+	// The subscriber that runs @MessageMapping methods; the only one commands are recorded for
+	private static final SimpAnnotationMethodMessageHandler COMMAND_HANDLER = mock(SimpAnnotationMethodMessageHandler.class);
+
+	@TempDir
+	Path directory;
+
+	private Recording recording;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		command(new CommandRecordingInterceptor(), "warmup", "addSong", 0); // Load and initialize the event classes
+		recording = new Recording();
+		recording.enable(CommandEvent.class);
+		recording.enable(RoomOperationEvent.class);
+		recording.enable(YouTubeCallEvent.class);
+		recording.enable(BroadcastEvent.class);
+		recording.start();
+	}
+
+	@AfterEach
+	void tearDown() {
+		recording.close();
+	}
+
+	@Test
+	void commandEventAttributesDatabaseExternalAndSerializationCost() throws Exception {
+		DataSource dataSource = new DatabaseTimingDataSource(slowDataSource(20));
+		CommandRecordingInterceptor interceptor = new CommandRecordingInterceptor();
+		Message<?> frame = send("s1", "/app/room/room1/addSong");
+
+		interceptor.beforeHandle(frame, null, COMMAND_HANDLER);
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			RoomOperationEvent operation = RoomOperationEvent.start("addSongToRoom", "room1");
+			try (Connection connection = dataSource.getConnection()) {
+				connection.prepareStatement("insert ...").execute();
+			}
+			YouTubeCallEvent call = new YouTubeCallEvent("dQw4w9WgXcQ");
+			Thread.sleep(30);
+			call.found(true);
+			call.finish();
+			operation.queueSize(3);
+			TransactionSynchronizationUtils.invokeAfterCompletion(
+					TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_COMMITTED);
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		BroadcastEvent broadcast = new BroadcastEvent("/topic/room/room1/songs", 500);
+		broadcast.delivered(2, 1, 620);
+		broadcast.finish();
+		interceptor.afterMessageHandled(frame, null, COMMAND_HANDLER, null);
+
+		List<RecordedEvent> events = dump();
+		RecordedEvent command = single(events, FlightRecordingReport.COMMAND);
+		assertEquals("room1", command.getString("roomId"));
+		assertEquals("addSong", command.getString("command"));
+		assertEquals("s1", command.getString("sessionId"));
+		assertEquals(3, command.getInt("queueSize"));
+		assertTrue(command.getDuration("dbTime").toMillis() >= 20, command.toString());
+		assertTrue(command.getDuration("externalTime").toMillis() >= 30, command.toString());
+		assertEquals(500, command.getLong("serializedBytes"));
+		assertNull(command.getStackTrace());
+
+		RecordedEvent operation = single(events, FlightRecordingReport.ROOM_OPERATION);
+		assertTrue(operation.getBoolean("committed"));
+		assertTrue(operation.getDuration("dbTime").toMillis() >= 20);
+		assertEquals(0, operation.getLong("serializedBytes"));
+
+		RecordedEvent call = single(events, FlightRecordingReport.YOUTUBE_CALL);
+		assertEquals("room1", call.getString("roomId")); // Taken from the command being handled
+		assertEquals(Duration.ZERO, call.getDuration("dbTime"));
+
+		RecordedEvent sent = single(events, FlightRecordingReport.BROADCAST);
+		assertEquals(2, sent.getInt("sessions"));
+		assertEquals(620, sent.getLong("frameBytes"));
+	}
+
+	@Test
+	void commandDeliveredToSeveralSubscribersIsRecordedOnce() throws Exception {
+		ExecutorSubscribableChannel inbound = new ExecutorSubscribableChannel();
+		inbound.addInterceptor(new CommandRecordingInterceptor());
+		List<String> handledBy = new ArrayList<>();
+		// Same subscribers as the app's clientInboundChannel: annotation methods, broker, user destinations
+		inbound.subscribe(new SimpAnnotationMethodMessageHandler(inbound, mock(MessageChannel.class),
+				mock(SimpMessageSendingOperations.class)) {
+			@Override
+			public void handleMessage(Message<?> message) {
+				handledBy.add("annotation");
+			}
+		});
+		inbound.subscribe(message -> handledBy.add("broker"));
+		inbound.subscribe(message -> handledBy.add("user-destination"));
+
+		inbound.send(send("s1", "/app/room/room1/addSong"));
+
+		assertEquals(List.of("annotation", "broker", "user-destination"), handledBy);
+		RecordedEvent command = single(dump(), "playlist.Command");
+		assertEquals("room1", command.getString("roomId"));
+		assertEquals("addSong", command.getString("command"));
+	}
+
+	@Test
+	void roomOperationOutsideTransactionIsNotRecorded() throws Exception {
+		RoomOperationEvent.start("findCurrentSong", "room1");
+
+		assertTrue(dump().isEmpty());
+	}
+
+	@Test
+	void roomOperationWithoutTransactionIsRecordedWhenCompleted() throws Exception {
+		RoomOperationEvent durable = RoomOperationEvent.startWithoutTransaction("addSongToRoom", "room1");
+		durable.queueSize(4);
+		durable.complete(true);
+		RoomOperationEvent.startWithoutTransaction("removeSongFromRoom", "room1").complete(false);
+
+		List<RecordedEvent> events = dump();
+		assertEquals(2, events.size());
+		assertEquals("addSongToRoom", events.get(0).getString("operation"));
+		assertEquals(4, events.get(0).getInt("queueSize"));
+		assertTrue(events.get(0).getBoolean("committed"));
+		assertFalse(events.get(1).getBoolean("committed"));
+	}
+
+	@Test
+	void reportRanksSlowestRoomsWithoutCountingNestedWorkTwice() throws Exception {
+		CommandRecordingInterceptor interceptor = new CommandRecordingInterceptor();
+		command(interceptor, "fast", "addSong", 1);
+		command(interceptor, "fast", "addSong", 1);
+		command(interceptor, "slow", "removeSong", 60);
+		// Auto-advance: room service work with no command around it
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			RoomOperationEvent.start("advanceToNextSong", "idle");
+			Thread.sleep(30);
+			TransactionSynchronizationUtils.invokeAfterCompletion(
+					TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_COMMITTED);
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+
+		FlightRecordingReport report = new FlightRecordingReport(dump());
+
+		List<String> rooms = report.rooms().stream().map(FlightRecordingReport.Stats::getKey).collect(Collectors.toList());
+		assertEquals(List.of("slow", "idle", "fast"), rooms);
+		assertEquals(2, report.rooms().get(2).count()); // Commands only, not their nested operations
+		assertEquals("command removeSong", report.operations().get(0).getKey());
+		assertEquals("slow", report.slowest().get(0).getRoomId());
+	}
+
+	// --- Helper Methods ---
+
+	private void command(CommandRecordingInterceptor interceptor, String room, String command, long millis) throws Exception {
+		Message<?> frame = send("s-" + room, "/app/room/" + room + "/" + command);
+		interceptor.beforeHandle(frame, null, COMMAND_HANDLER);
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			RoomOperationEvent.start(command + "Room", room);
+			Thread.sleep(millis);
+			TransactionSynchronizationUtils.invokeAfterCompletion(
+					TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_COMMITTED);
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		interceptor.afterMessageHandled(frame, null, COMMAND_HANDLER, null);
+	}
+
+	private static Message<?> send(String sessionId, String destination) {
+		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+		accessor.setSessionId(sessionId);
+		accessor.setDestination(destination);
+		return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+	}
+
+	private static DataSource slowDataSource(long statementMillis) throws Exception {
+		PreparedStatement statement = mock(PreparedStatement.class);
+		when(statement.execute()).thenAnswer(invocation -> {
+			Thread.sleep(statementMillis);
+			return true;
+		});
+		Connection connection = mock(Connection.class);
+		when(connection.prepareStatement(anyString())).thenReturn(statement);
+		DataSource dataSource = mock(DataSource.class);
+		when(dataSource.getConnection()).thenReturn(connection);
+		return dataSource;
+	}
+
+	private List<RecordedEvent> dump() throws Exception {
+		Path file = directory.resolve("recording.jfr");
+		recording.dump(file);
+		return RecordingFile.readAllEvents(file).stream()
+				.filter(event -> event.getEventType().getName().startsWith("playlist."))
+				.collect(Collectors.toList());
+	}
+
+	private static RecordedEvent single(List<RecordedEvent> events, String type) {
+		List<RecordedEvent> matching = events.stream()
+				.filter(event -> event.getEventType().getName().equals(type))
+				.collect(Collectors.toList());
+		assertEquals(1, matching.size(), type);
+		return matching.get(0);
+	}
+}
@@ -0,0 +1,174 @@
+package com.example.playlistcollaborator.heartbeat;
+
+import com.example.playlistcollaborator.broadcast.BroadcastSessionRegistry;
+import com.example.playlistcollaborator.service.RoomPresenceService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SessionHeartbeatMonitorTest {
+
+	private static final String WHEEL_THREAD = "stomp-heartbeat-wheel";
+
+	private final RoomPresenceService presenceService = mock(RoomPresenceService.class);
+	private final List<SessionHeartbeatMonitor> monitors = new ArrayList<>();
+	private BroadcastSessionRegistry sessionRegistry;
+	private WebSocketHandler handler;
+
+	@AfterEach
+	void tearDown() {
+		monitors.forEach(SessionHeartbeatMonitor::shutdown);
+	}
+
+	@Test
+	void connectAckAdvertisesServerHeartbeatAndArmsSession() throws Exception {
+		SessionHeartbeatMonitor monitor = monitor(10_000, 10_000, 100, 1024);
+		connect("s1");
+
+		SimpMessageHeaderAccessor connect = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+		connect.setSessionId("s1");
+		connect.setHeader(SimpMessageHeaderAccessor.HEART_BEAT_HEADER, new long[] { 5000, 20_000 });
+		SimpMessageHeaderAccessor ack = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT_ACK);
+		ack.setSessionId("s1");
+		ack.setHeader(SimpMessageHeaderAccessor.CONNECT_MESSAGE_HEADER,
+				MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()));
+
+		Message<?> result = monitor.preSend(MessageBuilder.createMessage(new byte[0], ack.getMessageHeaders()), null);
+
+		assertArrayEquals(new long[] { 10_000, 10_000 }, SimpMessageHeaderAccessor.getHeartbeat(result.getHeaders()));
+		assertEquals(1, monitor.getSessionCount());
+	}
+
+	@Test
+	void idleSessionGetsHeartbeatsButBusySessionDoesNot() throws Exception {
+		SessionHeartbeatMonitor monitor = monitor(100, 100, 10, 512);
+		StubSession idle = connect("idle");
+		StubSession busy = connect("busy");
+		monitor.arm("idle", new long[] { 0, 100 });
+		monitor.arm("busy", new long[] { 0, 100 });
+
+		// Regular traffic to the busy session goes through the same send wrapper as broadcasts
+		WebSocketSession busyWrapper = sessionRegistry.getSession("busy");
+		for (int i = 0; i < 25; i++) {
+			busyWrapper.sendMessage(new TextMessage("MESSAGE\n\n\0"));
+			Thread.sleep(20);
+		}
+
+		assertTrue(idle.heartbeats.get() >= 2, "idle session got " + idle.heartbeats.get() + " heartbeats");
+		assertEquals(0, busy.heartbeats.get());
+	}
+
+	@Test
+	void silentSessionIsReapedAndLeavesItsRooms() throws Exception {
+		SessionHeartbeatMonitor monitor = monitor(100, 100, 10, 512);
+		AtomicReference<String> reapingThread = new AtomicReference<>();
+		doAnswer(invocation -> {
+			reapingThread.set(Thread.currentThread().getName());
+			return null;
+		}).when(presenceService).disconnect("silent");
+		StubSession silent = connect("silent");
+		StubSession talking = connect("talking");
+		monitor.arm("silent", new long[] { 100, 0 });
+		monitor.arm("talking", new long[] { 100, 0 });
+
+		// Client heartbeats from the talking session only; read deadline is 3 x 100 ms
+		for (int i = 0; i < 25; i++) {
+			handler.handleMessage(talking, new TextMessage("\n"));
+			Thread.sleep(20);
+		}
+
+		assertEquals(CloseStatus.SESSION_NOT_RELIABLE, silent.closeStatus);
+		verify(presenceService).disconnect("silent");
+		assertNotEquals(WHEEL_THREAD, reapingThread.get()); // Presence and close must not stall the wheel
+		assertTrue(talking.isOpen());
+		verify(presenceService, never()).disconnect("talking");
+		assertEquals(1, monitor.getSessionCount());
+	}
+
+	// --- Helper Methods ---
+
+	private SessionHeartbeatMonitor monitor(long serverSend, long serverReceive, long tickMillis, int ticksPerWheel) {
+		StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("roomPresenceService", presenceService));
+		sessionRegistry = new BroadcastSessionRegistry(10_000, 512 * 1024);
+		SessionHeartbeatMonitor monitor = new SessionHeartbeatMonitor(sessionRegistry,
+				beans.getBeanProvider(RoomPresenceService.class), serverSend, serverReceive, tickMillis, ticksPerWheel, 1,
+				new SimpleMeterRegistry());
+		monitors.add(monitor);
+		// Same order as WebSocketConfig: the monitor wraps the session registry
+		handler = monitor.decorate(sessionRegistry.decorate(new AbstractWebSocketHandler() { }));
+		return monitor;
+	}
+
+	private StubSession connect(String id) throws Exception {
+		StubSession session = new StubSession(id);
+		handler.afterConnectionEstablished(session);
+		return session;
+	}
+
+	/**
+	 * Records heartbeats and closes; no I/O.
+	 */
+	private static final class StubSession implements WebSocketSession {
+		private final String id;
+		final AtomicInteger heartbeats = new AtomicInteger();
+		final AtomicLong frames = new AtomicLong();
+		volatile CloseStatus closeStatus;
+
+		StubSession(String id) {
+			this.id = id;
+		}
+
+		@Override
+		public void sendMessage(WebSocketMessage<?> message) {
+			if ("\n".equals(message.getPayload())) {
+				heartbeats.incrementAndGet();
+			} else {
+				frames.incrementAndGet();
+			}
+		}
+
+		@Override public void close(CloseStatus status) { closeStatus = status; }
+		@Override public void close() { close(CloseStatus.NORMAL); }
+		@Override public boolean isOpen() { return closeStatus == null; }
+		@Override public String getId() { return id; }
+		@Override public URI getUri() { return null; }
+		@Override public HttpHeaders getHandshakeHeaders() { return new HttpHeaders(); }
+		@Override public Map<String, Object> getAttributes() { return Collections.emptyMap(); }
+		@Override public Principal getPrincipal() { return null; }
+		@Override public InetSocketAddress getLocalAddress() { return null; }
+		@Override public InetSocketAddress getRemoteAddress() { return null; }
+		@Override public String getAcceptedProtocol() { return "v12.stomp"; }
+		@Override public void setTextMessageSizeLimit(int messageSizeLimit) { }
+		@Override public int getTextMessageSizeLimit() { return 0; }
+		@Override public void setBinaryMessageSizeLimit(int messageSizeLimit) { }
+		@Override public int getBinaryMessageSizeLimit() { return 0; }
+		@Override public List<WebSocketExtension> getExtensions() { return Collections.emptyList(); }
+	}
+}
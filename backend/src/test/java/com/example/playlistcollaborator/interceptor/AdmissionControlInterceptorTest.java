@@ -0,0 +1,137 @@
+package com.example.playlistcollaborator.interceptor;
+
+import com.example.playlistcollaborator.config.AdmissionControlProperties;
+import com.example.playlistcollaborator.dto.CommandRejectedDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.messaging.StompSubProtocolHandler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class AdmissionControlInterceptorTest {
+
+	private SimpleMeterRegistry meterRegistry;
+	private SimpMessagingTemplate messagingTemplate;
+	private AdmissionControlInterceptor interceptor;
+
+	@BeforeEach
+	void setUp() {
+		AdmissionControlProperties properties = new AdmissionControlProperties();
+		properties.getSession().setAddSong(new AdmissionControlProperties.Budget(2, 0.001));
+		properties.getRoom().setAddSong(new AdmissionControlProperties.Budget(3, 0.001));
+		meterRegistry = new SimpleMeterRegistry();
+		messagingTemplate = mock(SimpMessagingTemplate.class);
+		interceptor = new AdmissionControlInterceptor(properties,
+				new StaticListableBeanFactory(Map.of("brokerMessagingTemplate", messagingTemplate))
+						.getBeanProvider(SimpMessagingTemplate.class),
+				meterRegistry);
+	}
+
+	@Test
+	void rejectsSessionOverItsBudgetAndRecordsMetric() {
+		assertNotNull(interceptor.preSend(send("s1", "/app/room/abc/addSong"), null));
+		assertNotNull(interceptor.preSend(send("s1", "/app/room/abc/addSong"), null));
+
+		assertNull(interceptor.preSend(send("s1", "/app/room/abc/addSong"), null));
+		verify(messagingTemplate).convertAndSendToUser(eq("s1"), eq("/queue/errors"),
+				eq(new CommandRejectedDto("addSong", "abc", "Rate limit exceeded (session)")),
+				argThat((MessageHeaders headers) -> "s1".equals(SimpMessageHeaderAccessor.getSessionId(headers))));
+		assertEquals(1.0, meterRegistry.get("playlist.admission.rejected")
+				.tag("command", "addSong").tag("scope", "session").counter().count());
+
+		// Other destination types have their own budget
+		assertNotNull(interceptor.preSend(send("s1", "/app/room/abc/playbackState"), null));
+	}
+
+	@Test
+	void roomBudgetIsSharedAcrossSessions() {
+		interceptor.preSend(send("s1", "/app/room/abc/addSong"), null);
+		interceptor.preSend(send("s2", "/app/room/abc/addSong"), null);
+		interceptor.preSend(send("s3", "/app/room/abc/addSong"), null);
+
+		assertNull(interceptor.preSend(send("s4", "/app/room/abc/addSong"), null));
+		verify(messagingTemplate).convertAndSendToUser(eq("s4"), eq("/queue/errors"),
+				eq(new CommandRejectedDto("addSong", "abc", "Rate limit exceeded (room)")), any(MessageHeaders.class));
+
+		// A different room is unaffected
+		assertNotNull(interceptor.preSend(send("s4", "/app/room/xyz/addSong"), null));
+	}
+
+	@Test
+	void ignoresNonRoomFramesAndForgetsSessionOnDisconnect() {
+		for (int i = 0; i < 10; i++) {
+			assertNotNull(interceptor.preSend(send("s1", "/topic/room/abc/songs"), null));
+		}
+		interceptor.preSend(send("s1", "/app/room/abc/addSong"), null);
+		interceptor.preSend(send("s1", "/app/room/abc/addSong"), null);
+
+		StompHeaderAccessor disconnect = StompHeaderAccessor.create(StompCommand.DISCONNECT);
+		disconnect.setSessionId("s1");
+		interceptor.preSend(MessageBuilder.createMessage(new byte[0], disconnect.getMessageHeaders()), null);
+
+		assertNotNull(interceptor.preSend(send("s1", "/app/room/xyz/addSong"), null));
+	}
+
+	@Test
+	void roomRejectionDoesNotSpendTheSessionsToken() {
+		interceptor.preSend(send("s1", "/app/room/abc/addSong"), null);
+		interceptor.preSend(send("s2", "/app/room/abc/addSong"), null);
+		interceptor.preSend(send("s2", "/app/room/abc/addSong"), null); // Room budget (3) now spent
+
+		assertNull(interceptor.preSend(send("s1", "/app/room/abc/addSong"), null));
+		// s1 has used one of its two tokens, so it still has one for another room
+		assertNotNull(interceptor.preSend(send("s1", "/app/room/xyz/addSong"), null));
+		assertNull(interceptor.preSend(send("s1", "/app/room/xyz/addSong"), null));
+	}
+
+	@Test
+	void rejectedFrameLeavesTheConnectionOpen() throws Exception {
+		List<Message<?>> handled = new ArrayList<>();
+		ExecutorSubscribableChannel inbound = new ExecutorSubscribableChannel();
+		inbound.addInterceptor(interceptor);
+		inbound.subscribe(handled::add);
+		WebSocketSession session = mock(WebSocketSession.class);
+		when(session.getId()).thenReturn("s1");
+		when(session.getAttributes()).thenReturn(new HashMap<>());
+		when(session.isOpen()).thenReturn(true);
+		StompSubProtocolHandler stomp = new StompSubProtocolHandler();
+		stomp.afterSessionStarted(session, inbound);
+
+		for (int i = 0; i < 5; i++) {
+			stomp.handleMessageFromClient(session, new TextMessage("SEND\ndestination:/app/room/abc/addSong\n\n\u0000"), inbound);
+		}
+
+		assertEquals(2, handled.size());
+		verify(session, never()).close(any());
+		verify(session, never()).sendMessage(any()); // No STOMP ERROR frame
+		verify(messagingTemplate, times(3)).convertAndSendToUser(eq("s1"), eq("/queue/errors"), any(), any(MessageHeaders.class));
+	}
+
+	private static Message<byte[]> send(String sessionId, String destination) {
+		StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SEND);
+		accessor.setSessionId(sessionId);
+		accessor.setDestination(destination);
+		return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+	}
+}
@@ -0,0 +1,57 @@
+package com.example.playlistcollaborator.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerMessageLogRateLimiterTest {
+
+	private LoggerContext context;
+	private PerMessageLogRateLimiter limiter;
+
+	@BeforeEach
+	void setUp() {
+		context = new LoggerContext();
+		context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.INFO);
+		limiter = new PerMessageLogRateLimiter();
+		limiter.setLoggers("com.example.service, com.example.controller");
+		limiter.setCapacity(2);
+		limiter.setRefillPerSecond(0.001); // No refill within the test
+		limiter.setContext(context);
+		limiter.start();
+	}
+
+	@Test
+	void limitsEachMessageTemplateSeparately() {
+		Logger logger = context.getLogger("com.example.service.RoomService");
+
+		assertEquals(FilterReply.NEUTRAL, decide(logger, Level.INFO, "Added song {}"));
+		assertEquals(FilterReply.NEUTRAL, decide(logger, Level.INFO, "Added song {}"));
+		assertEquals(FilterReply.DENY, decide(logger, Level.INFO, "Added song {}"));
+		assertEquals(FilterReply.NEUTRAL, decide(logger, Level.INFO, "Removed song {}"));
+		assertEquals(1, limiter.getSuppressedCount());
+	}
+
+	@Test
+	void neverLimitsWarningsOtherLoggersOrDisabledLevels() {
+		Logger logger = context.getLogger("com.example.service.RoomService");
+		for (int i = 0; i < 5; i++) {
+			assertEquals(FilterReply.NEUTRAL, decide(logger, Level.WARN, "Room {} not found"));
+			assertEquals(FilterReply.NEUTRAL, decide(context.getLogger("org.hibernate.SQL"), Level.INFO, "select"));
+			assertEquals(FilterReply.NEUTRAL, decide(logger, Level.DEBUG, "Attempting to add {}"));
+			assertEquals(FilterReply.NEUTRAL, decide(logger, Level.INFO, null)); // isInfoEnabled()
+		}
+		assertEquals(0, limiter.getSuppressedCount());
+	}
+
+	// --- Helper Methods ---
+
+	private FilterReply decide(Logger logger, Level level, String format) {
+		return limiter.decide(null, logger, level, format, new Object[] { "room1" }, null);
+	}
+}
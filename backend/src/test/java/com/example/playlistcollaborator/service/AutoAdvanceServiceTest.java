@@ -0,0 +1,115 @@
+package com.example.playlistcollaborator.service;
+
+import com.example.playlistcollaborator.dto.PlaybackStateDto;
+import com.example.playlistcollaborator.dto.PlaylistSongDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class AutoAdvanceServiceTest {
+
+	private RoomService roomService;
+	private AutoAdvanceService autoAdvanceService;
+
+	@BeforeEach
+	void setUp() {
+		roomService = mock(RoomService.class);
+		// 10 ms ticks and no grace period keep the test fast
+		autoAdvanceService = new AutoAdvanceService(roomService, 10, 64, 0, 1);
+	}
+
+	@AfterEach
+	void tearDown() {
+		autoAdvanceService.shutdown();
+	}
+
+	@Test
+	void playEventArmsTimerThatAdvancesThroughRoomService() {
+		PlaylistSongDto song = song("vid1", 1);
+		when(roomService.findCurrentSong("abc")).thenReturn(Optional.of(song));
+		when(roomService.advanceToNextSong(anyString(), anyString(), any())).thenReturn(Optional.empty());
+
+		autoAdvanceService.onPlaybackState("abc", new PlaybackStateDto(true, 0.8, "vid1", "alice", "play"));
+
+		verify(roomService, timeout(2000)).advanceToNextSong("abc", AutoAdvanceService.SERVER_USERNAME, song.getId());
+	}
+
+	@Test
+	void pauseDisarmsTimer() throws InterruptedException {
+		when(roomService.findCurrentSong("abc")).thenReturn(Optional.of(song("vid1", 1)));
+
+		autoAdvanceService.onPlaybackState("abc", new PlaybackStateDto(true, 0.5, "vid1", "alice", "play"));
+		autoAdvanceService.onPlaybackState("abc", new PlaybackStateDto(false, 0.6, "vid1", "alice", "pause"));
+		Thread.sleep(1000);
+
+		verify(roomService, never()).advanceToNextSong(anyString(), anyString(), any());
+		assertEquals(0, autoAdvanceService.getScheduledRoomCount());
+	}
+
+	@Test
+	void advanceArmsTimerForNextSongAndUnknownDurationIsLeftToClients() {
+		PlaylistSongDto next = song("vid2", 600);
+		when(roomService.advanceToNextSong("abc", "alice", null)).thenReturn(Optional.of(next));
+		autoAdvanceService.advance("abc", "alice", null);
+		assertEquals(1, autoAdvanceService.getScheduledRoomCount());
+
+		PlaylistSongDto noDuration = song("vid3", null);
+		when(roomService.advanceToNextSong("abc", "alice", next.getId())).thenReturn(Optional.of(noDuration));
+		autoAdvanceService.advance("abc", "alice", next.getId());
+		assertEquals(0, autoAdvanceService.getScheduledRoomCount());
+	}
+
+	@Test
+	void playingStateWithoutAVideoDisarmsInsteadOfThrowing() {
+		when(roomService.findCurrentSong("abc")).thenReturn(Optional.of(song("vid1", 600)));
+		autoAdvanceService.onPlaybackState("abc", new PlaybackStateDto(true, 0, "vid1", "alice", "play"));
+		assertEquals(1, autoAdvanceService.getScheduledRoomCount());
+
+		autoAdvanceService.onPlaybackState("abc", new PlaybackStateDto(true, 0, null, "alice", "play"));
+
+		assertEquals(0, autoAdvanceService.getScheduledRoomCount());
+		verify(roomService, times(1)).findCurrentSong("abc");
+	}
+
+	@Test
+	void playOfTheHeldSongNeedsNoLookup() {
+		PlaylistSongDto next = song("vid2", 600);
+		when(roomService.advanceToNextSong("abc", "alice", null)).thenReturn(Optional.of(next));
+		autoAdvanceService.advance("abc", "alice", null);
+
+		autoAdvanceService.onPlaybackState("abc", new PlaybackStateDto(true, 0, "vid2", "alice", "play"));
+		autoAdvanceService.onPlaybackState("abc", new PlaybackStateDto(false, 5, "vid2", "alice", "pause"));
+		assertEquals(0, autoAdvanceService.getScheduledRoomCount());
+		autoAdvanceService.onPlaybackState("abc", new PlaybackStateDto(true, 5, "vid2", "alice", "play"));
+		autoAdvanceService.onPlaybackState("abc", new PlaybackStateDto(true, 60, "vid2", "alice", "seek"));
+
+		assertEquals(1, autoAdvanceService.getScheduledRoomCount());
+		verify(roomService, never()).findCurrentSong(anyString());
+	}
+
+	@Test
+	void otherVideoIsLookedUpAndIgnoredWhenNotAtTheHead() {
+		when(roomService.advanceToNextSong("abc", "alice", null)).thenReturn(Optional.of(song("vid2", 600)));
+		autoAdvanceService.advance("abc", "alice", null);
+		when(roomService.findCurrentSong("abc")).thenReturn(Optional.of(song("vid2", 600)));
+
+		autoAdvanceService.onPlaybackState("abc", new PlaybackStateDto(false, 0, "vid2", "alice", "pause"));
+		autoAdvanceService.onPlaybackState("abc", new PlaybackStateDto(true, 0, "vid1", "alice", "play"));
+
+		verify(roomService).findCurrentSong("abc");
+		assertEquals(0, autoAdvanceService.getScheduledRoomCount());
+	}
+
+	private static PlaylistSongDto song(String videoId, Integer durationSeconds) {
+		return new PlaylistSongDto(UUID.randomUUID(), "title", "artist", LocalDateTime.now(), "alice", videoId, durationSeconds);
+	}
+}
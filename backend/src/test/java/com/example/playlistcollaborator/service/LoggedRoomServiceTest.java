@@ -0,0 +1,216 @@
+package com.example.playlistcollaborator.service;
+
+import com.example.playlistcollaborator.commandlog.CommandLogCheckpointer;
+import com.example.playlistcollaborator.commandlog.RoomCommand;
+import com.example.playlistcollaborator.commandlog.SegmentedCommandLog;
+import com.example.playlistcollaborator.dto.AddSongRequest;
+import com.example.playlistcollaborator.dto.PlaylistSongDto;
+import com.example.playlistcollaborator.dto.RoomDto;
+import com.example.playlistcollaborator.exception.CommandNotDurableException;
+import com.example.playlistcollaborator.repository.CommandLogCheckpointRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+class LoggedRoomServiceTest {
+
+	@TempDir
+	Path directory;
+
+	private RoomServiceImpl database;
+	private SegmentedCommandLog commandLog;
+	private SimpMessagingTemplate messagingTemplate;
+	private LoggedRoomService roomService;
+	private UUID songId;
+
+	// Only set by tests that run against a real log
+	private SegmentedCommandLog realLog;
+	private JdbcTemplate jdbcTemplate;
+	private CommandLogCheckpointer checkpointer;
+
+	@BeforeEach
+	void setUp() {
+		database = mock(RoomServiceImpl.class);
+		commandLog = mock(SegmentedCommandLog.class);
+		messagingTemplate = mock(SimpMessagingTemplate.class);
+		roomService = new LoggedRoomService(database, mock(SongDetailsResolver.class), commandLog,
+				mock(CommandLogCheckpointer.class), messagingTemplate, true, 50, 600_000);
+
+		songId = UUID.randomUUID();
+		List<PlaylistSongDto> songs = new ArrayList<>();
+		songs.add(new PlaylistSongDto(songId, "Song", "Artist", LocalDateTime.now(), "alice", "dQw4w9WgXcQ", 200));
+		when(database.findRoomOnPrimary("abc")).thenReturn(Optional.of(new RoomDto("abc", "Room", LocalDateTime.now(), songs)));
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		if (realLog != null) {
+			realLog.close();
+		}
+	}
+
+	@Test
+	void mutationFailsWhenTheFsyncDoesNotCompleteInTime() {
+		when(commandLog.append(any())).thenReturn(new CompletableFuture<>());
+
+		assertThrows(CommandNotDurableException.class, () -> roomService.advanceToNextSong("abc", "alice", songId));
+		verifyNoInteractions(messagingTemplate);
+		assertEquals(Optional.of(songId), roomService.findCurrentSong("abc").map(PlaylistSongDto::getId));
+	}
+
+	@Test
+	void removeWhoseFsyncStallsLeavesTheRoomAndTheDatabaseUnchanged() throws Exception {
+		LoggedRoomService service = serviceWithRealLog(60_000, 50); // The flusher never runs during the test
+
+		assertThrows(CommandNotDurableException.class, () -> service.removeSongFromRoom("abc", songId));
+
+		assertEquals(List.of(songId), songIds(service.findRoomByPublicId("abc").orElseThrow()));
+		List<RoomCommand> logged = loggedCommands();
+		assertEquals(List.of(RoomCommand.Type.REMOVE_SONG, RoomCommand.Type.ADD_SONG),
+				logged.stream().map(RoomCommand::getType).collect(Collectors.toList()));
+		assertEquals(songId, logged.get(1).getSongId()); // Put back under its own id
+
+		// The checkpoint writes them in log order, so the song is deleted and then restored
+		service.checkpoint();
+		InOrder order = inOrder(jdbcTemplate);
+		order.verify(jdbcTemplate).batchUpdate(startsWith("DELETE"), anyList(), any(int[].class));
+		order.verify(jdbcTemplate).batchUpdate(startsWith("INSERT"), anyList(), any(int[].class));
+	}
+
+	@Test
+	void addWhoseFsyncStallsLeavesTheRoomUnchanged() throws Exception {
+		LoggedRoomService service = serviceWithRealLog(60_000, 50);
+
+		assertThrows(CommandNotDurableException.class,
+				() -> service.addSongToRoom("abc", new AddSongRequest("kJQP7kiw5Fk", "Next", "Artist", "bob", 180)));
+
+		assertEquals(List.of(songId), songIds(service.findRoomByPublicId("abc").orElseThrow()));
+		List<RoomCommand> logged = loggedCommands();
+		assertEquals(List.of(RoomCommand.Type.ADD_SONG, RoomCommand.Type.REMOVE_SONG),
+				logged.stream().map(RoomCommand::getType).collect(Collectors.toList()));
+		assertEquals(logged.get(0).getSongId(), logged.get(1).getSongId());
+		assertEquals(2, checkpointer.getPendingCount()); // Both go to the database, which therefore stays unchanged
+	}
+
+	@Test
+	void mutationFailsWhenTheFlushFails() {
+		when(commandLog.append(any())).thenReturn(CompletableFuture.failedFuture(new IOException("disk full")));
+
+		CommandNotDurableException thrown = assertThrows(CommandNotDurableException.class,
+				() -> roomService.removeSongFromRoom("abc", songId));
+		assertInstanceOf(IOException.class, thrown.getCause());
+	}
+
+	@Test
+	void interruptedWaitFailsAndKeepsTheInterrupt() {
+		when(commandLog.append(any())).thenReturn(new CompletableFuture<>());
+
+		Thread.currentThread().interrupt();
+		try {
+			assertThrows(CommandNotDurableException.class, () -> roomService.removeSongFromRoom("abc", songId));
+			assertTrue(Thread.currentThread().isInterrupted());
+		} finally {
+			Thread.interrupted();
+		}
+	}
+
+	@Test
+	void mutationIsAcknowledgedOnceDurable() {
+		when(commandLog.append(any())).thenReturn(CompletableFuture.completedFuture(1L));
+
+		assertEquals(Optional.empty(), roomService.advanceToNextSong("abc", "alice", songId));
+		verify(messagingTemplate).convertAndSend(eq("/topic/room/abc/songRemoved"), any(Object.class));
+	}
+
+	@Test
+	void checkpointEvictsIdleRoomsAndTheNextMutationReloadsThem() throws Exception {
+		LoggedRoomService service = serviceWithRealLog(1, 1000);
+		service.advanceToNextSong("abc", "alice", songId);
+		assertEquals(1, service.getLoadedRoomCount());
+		assertTrue(service.findRoomByPublicId("abc").orElseThrow().getPlaylistSongs().isEmpty());
+		verify(database, never()).findRoomByPublicId("abc"); // Served from memory
+
+		service.checkpoint();
+
+		assertEquals(1, checkpointer.getCheckpointedSequence());
+		assertEquals(0, service.getLoadedRoomCount());
+		service.findRoomByPublicId("abc");
+		verify(database).findRoomByPublicId("abc");
+
+		// The database now holds the checkpointed queue, so that is what gets reloaded
+		when(database.findRoomOnPrimary("abc")).thenReturn(Optional.of(new RoomDto("abc", "Room", LocalDateTime.now(), new ArrayList<>())));
+		PlaylistSongDto added = service.addSongToRoom("abc", new AddSongRequest("kJQP7kiw5Fk", "Next", "Artist", "bob", 180));
+
+		verify(database, times(2)).findRoomOnPrimary("abc");
+		assertEquals(1, service.getLoadedRoomCount());
+		assertEquals(Optional.of(added.getId()), service.findCurrentSong("abc").map(PlaylistSongDto::getId));
+	}
+
+	@Test
+	void failedCheckpointKeepsTheRoomLoadedUntilARetrySucceeds() throws Exception {
+		LoggedRoomService service = serviceWithRealLog(1, 1000);
+		when(jdbcTemplate.batchUpdate(anyString(), anyList(), any(int[].class)))
+				.thenThrow(new DataAccessResourceFailureException("database down"));
+		service.advanceToNextSong("abc", "alice", songId);
+
+		service.checkpoint();
+
+		assertEquals(1, checkpointer.getPendingCount());
+		assertEquals(1, service.getLoadedRoomCount());
+		assertTrue(service.findRoomByPublicId("abc").orElseThrow().getPlaylistSongs().isEmpty());
+		verify(database, never()).findRoomByPublicId("abc");
+
+		reset(jdbcTemplate);
+		service.checkpoint();
+
+		assertEquals(0, checkpointer.getPendingCount());
+		assertEquals(1, checkpointer.getCheckpointedSequence());
+		assertEquals(0, service.getLoadedRoomCount());
+	}
+
+	// --- Helper Methods ---
+
+	private LoggedRoomService serviceWithRealLog(long flushIntervalMillis, long ackTimeoutMillis) throws IOException {
+		jdbcTemplate = mock(JdbcTemplate.class);
+		checkpointer = new CommandLogCheckpointer(jdbcTemplate, mock(PlatformTransactionManager.class),
+				mock(CommandLogCheckpointRepository.class), "test-log", 100);
+		realLog = new SegmentedCommandLog(directory, 64 * 1024, flushIntervalMillis, checkpointer.loadCheckpoint() + 1,
+				checkpointer::enqueue);
+		// A negative idle time makes every fully checkpointed room eligible for eviction at once
+		return new LoggedRoomService(database, new SongDetailsResolver(mock(YouTubeApiService.class)), realLog,
+				checkpointer, messagingTemplate, true, ackTimeoutMillis, -1);
+	}
+
+	private List<RoomCommand> loggedCommands() throws IOException {
+		List<RoomCommand> logged = new ArrayList<>();
+		realLog.replay(0, logged::add);
+		return logged;
+	}
+
+	private static List<UUID> songIds(RoomDto room) {
+		return room.getPlaylistSongs().stream().map(PlaylistSongDto::getId).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,116 @@
+package com.example.playlistcollaborator.service;
+
+import com.example.playlistcollaborator.dto.RoomLeaderDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RoomPresenceServiceTest {
+
+	private SimpMessagingTemplate messagingTemplate;
+	private RoomPresenceService presenceService;
+
+	@BeforeEach
+	void setUp() {
+		messagingTemplate = mock(SimpMessagingTemplate.class);
+		presenceService = new RoomPresenceService(messagingTemplate);
+	}
+
+	@Test
+	void firstSubscriberBecomesLeaderAndRepeatSubscriptionsCountOnce() {
+		presenceService.registerSession("s1", "alice", "c1");
+		presenceService.subscribe("s1", "sub-0", "/topic/room/abc/songs");
+		presenceService.subscribe("s1", "sub-1", "/topic/room/abc/playbackState");
+		presenceService.registerSession("s2", "bob", "c2");
+		presenceService.subscribe("s2", "sub-0", "/topic/room/abc/songs");
+
+		assertEquals(2, presenceService.getListenerCount("abc"));
+		assertTrue(presenceService.isLeader("abc", "s1"));
+		assertFalse(presenceService.isLeader("abc", "s2"));
+		assertEquals("alice", presenceService.getLeaderUsername("abc"));
+		verify(messagingTemplate, times(2)).convertAndSend(eq("/topic/room/abc/leader"), any(RoomLeaderDto.class));
+	}
+
+	@Test
+	void leaderDisconnectPromotesLongestPresentSession() {
+		presenceService.registerSession("s1", "alice", "c1");
+		presenceService.registerSession("s2", "bob", "c2");
+		presenceService.registerSession("s3", "carol", "c3");
+		presenceService.subscribe("s1", "sub-0", "/topic/room/abc/songs");
+		presenceService.subscribe("s2", "sub-0", "/topic/room/abc/songs");
+		presenceService.subscribe("s3", "sub-0", "/topic/room/abc/songs");
+
+		presenceService.disconnect("s1");
+
+		assertTrue(presenceService.isLeader("abc", "s2"));
+		assertEquals(2, presenceService.getListenerCount("abc"));
+		verify(messagingTemplate).convertAndSend("/topic/room/abc/leader", new RoomLeaderDto("bob", "c2", 2));
+	}
+
+	@Test
+	void unsubscribingLastRoomTopicLeavesRoomAndEmptyRoomIsDropped() {
+		presenceService.registerSession("s1", "alice", "c1");
+		presenceService.subscribe("s1", "sub-0", "/topic/room/abc/songs");
+		presenceService.subscribe("s1", "sub-1", "/topic/room/abc/songRemoved");
+
+		presenceService.unsubscribe("s1", "sub-0");
+		assertEquals(1, presenceService.getListenerCount("abc"));
+
+		presenceService.unsubscribe("s1", "sub-1");
+		assertEquals(0, presenceService.getListenerCount("abc"));
+		assertFalse(presenceService.isLeader("abc", "s1"));
+		assertTrue(presenceService.getActiveRoomIds().isEmpty());
+	}
+
+	@Test
+	void nonRoomDestinationsAreIgnored() {
+		presenceService.registerSession("s1", "alice", "c1");
+		presenceService.subscribe("s1", "sub-0", "/queue/errors");
+		presenceService.subscribe("s1", "sub-1", "/topic/room/");
+
+		assertTrue(presenceService.getActiveRoomIds().isEmpty());
+		assertNull(RoomPresenceService.extractRoomId("/app/room/abc/addSong"));
+		assertEquals("abc", RoomPresenceService.extractRoomId("/topic/room/abc"));
+	}
+
+	@Test
+	void subscribeHandledAfterDisconnectDoesNotLeaveAGhostMember() {
+		presenceService.registerSession("s1", "alice", "c1");
+		presenceService.disconnect("s1");
+		presenceService.subscribe("s1", "sub-0", "/topic/room/abc/songs");
+		presenceService.subscribe("s2", "sub-0", "/topic/room/abc/songs"); // Never connected
+
+		assertEquals(0, presenceService.getListenerCount("abc"));
+		assertNull(presenceService.getLeaderUsername("abc"));
+		assertTrue(presenceService.getActiveRoomIds().isEmpty());
+		verifyNoInteractions(messagingTemplate);
+	}
+
+	@Test
+	void currentLeaderIsAvailableToJoinersWithoutTheBroadcast() {
+		presenceService.registerSession("s1", "alice", "c1");
+		presenceService.registerSession("s2", "bob", "c2");
+		presenceService.subscribe("s1", "sub-0", "/topic/room/abc/songs");
+		presenceService.subscribe("s2", "sub-0", "/topic/room/abc/leader");
+
+		assertEquals(new RoomLeaderDto("alice", "c1", 2), presenceService.getLeader("abc"));
+		assertEquals(new RoomLeaderDto(null, null, 0), presenceService.getLeader("empty"));
+	}
+
+	@Test
+	void leaderIsIdentifiedByConnectionNotUsername() {
+		presenceService.registerSession("s1", "alice", "c1");
+		presenceService.registerSession("s2", "alice", "c2"); // Second tab, same username
+		presenceService.subscribe("s1", "sub-0", "/topic/room/abc/songs");
+		presenceService.subscribe("s2", "sub-0", "/topic/room/abc/songs");
+
+		assertEquals("c1", presenceService.getLeader("abc").getLeaderConnectionId());
+		presenceService.disconnect("s1");
+		assertEquals(new RoomLeaderDto("alice", "c2", 1), presenceService.getLeader("abc"));
+	}
+}
@@ -0,0 +1,121 @@
+package com.example.playlistcollaborator.service;
+
+import com.example.playlistcollaborator.datasource.ReplicaReadPolicy;
+import com.example.playlistcollaborator.dto.AddSongRequest;
+import com.example.playlistcollaborator.dto.SongRemovedResponse;
+import com.example.playlistcollaborator.entity.PlaylistSong;
+import com.example.playlistcollaborator.entity.Room;
+import com.example.playlistcollaborator.repository.PlaylistSongRepository;
+import com.example.playlistcollaborator.repository.RoomRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RoomServiceImplTest {
+
+	private RoomRepository roomRepository;
+	private PlaylistSongRepository playlistSongRepository;
+	private YouTubeApiService youTubeApiService;
+	private SimpMessagingTemplate messagingTemplate;
+	private PlatformTransactionManager transactionManager;
+	private RoomServiceImpl roomService;
+	private Room room;
+
+	@BeforeEach
+	void setUp() {
+		roomRepository = mock(RoomRepository.class);
+		playlistSongRepository = mock(PlaylistSongRepository.class);
+		youTubeApiService = mock(YouTubeApiService.class);
+		messagingTemplate = mock(SimpMessagingTemplate.class);
+		transactionManager = mock(PlatformTransactionManager.class);
+		when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+		roomService = new RoomServiceImpl(roomRepository, playlistSongRepository, new SongDetailsResolver(youTubeApiService),
+				messagingTemplate, new ReplicaReadPolicy("", 2000, 5000, new SimpleMeterRegistry()),
+				new TransactionTemplate(transactionManager));
+
+		room = new Room(UUID.randomUUID(), "abc", "Room", LocalDateTime.now(), new ArrayList<>());
+		when(roomRepository.findByPublicId("abc")).thenReturn(Optional.of(room));
+		when(roomRepository.findByPublicIdForUpdate("abc")).thenReturn(Optional.of(room));
+		when(playlistSongRepository.save(any())).thenAnswer(invocation -> {
+			PlaylistSong song = invocation.getArgument(0);
+			song.setId(UUID.randomUUID());
+			return song;
+		});
+	}
+
+	@Test
+	void youTubeLookupRunsBeforeTheTransactionOpens() {
+		when(youTubeApiService.getVideoDetails("vid1")).thenReturn(new YouTubeVideoDetails("Title", "Channel", 215));
+
+		roomService.addSongToRoom("abc", new AddSongRequest("vid1", null, null, "alice", null));
+
+		InOrder order = inOrder(youTubeApiService, transactionManager, playlistSongRepository);
+		order.verify(youTubeApiService).getVideoDetails("vid1");
+		order.verify(transactionManager).getTransaction(any());
+		order.verify(playlistSongRepository).save(argThat(song -> song.getDurationSeconds() == 215));
+		order.verify(transactionManager).commit(any());
+	}
+
+	@Test
+	void completeRequestSkipsYouTubeLookup() {
+		roomService.addSongToRoom("abc", new AddSongRequest("vid1", "Title", "Artist", "alice", 215));
+
+		verifyNoInteractions(youTubeApiService);
+		verify(playlistSongRepository).save(argThat(song -> song.getDurationSeconds() == 215 && song.getTitle().equals("Title")));
+	}
+
+	@Test
+	void advanceBroadcastsRemovalOnlyAfterCommit() {
+		PlaylistSong playing = new PlaylistSong();
+		playing.setId(UUID.randomUUID());
+		room.getPlaylistSongs().add(playing);
+
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			roomService.advanceToNextSong("abc", "alice", playing.getId());
+			verify(roomRepository).findByPublicIdForUpdate("abc");
+			verifyNoInteractions(messagingTemplate);
+
+			List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+			TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		verify(messagingTemplate).convertAndSend("/topic/room/abc/songRemoved", new SongRemovedResponse(playing.getId()));
+	}
+
+	@Test
+	void rolledBackAdvanceIsNotBroadcast() {
+		PlaylistSong playing = new PlaylistSong();
+		playing.setId(UUID.randomUUID());
+		room.getPlaylistSongs().add(playing);
+
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			roomService.advanceToNextSong("abc", "alice", playing.getId());
+			TransactionSynchronizationUtils.invokeAfterCompletion(
+					TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK);
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		verifyNoInteractions(messagingTemplate);
+	}
+}
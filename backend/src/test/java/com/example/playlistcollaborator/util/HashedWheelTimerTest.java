@@ -0,0 +1,61 @@
+package com.example.playlistcollaborator.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedWheelTimerTest {
+
+	private final HashedWheelTimer timer = new HashedWheelTimer("test-wheel", 10, TimeUnit.MILLISECONDS, 8, Runnable::run);
+
+	@AfterEach
+	void tearDown() {
+		timer.stop();
+	}
+
+	@Test
+	void firesAfterDelayEvenWhenDelaySpansSeveralRotations() throws InterruptedException {
+		CountDownLatch fired = new CountDownLatch(1);
+		long start = System.nanoTime();
+
+		// 8 slots x 10 ms = 80 ms per rotation, so 250 ms needs three rounds
+		HashedWheelTimer.Timeout timeout = timer.newTimeout(fired::countDown, 250, TimeUnit.MILLISECONDS);
+
+		assertTrue(fired.await(2, TimeUnit.SECONDS));
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertTrue(elapsedMillis >= 250, "fired early after " + elapsedMillis + " ms");
+		assertTrue(timeout.isExpired());
+		assertEquals(0, timer.pendingTimeouts());
+	}
+
+	@Test
+	void cancelledTimeoutNeverFires() throws InterruptedException {
+		AtomicInteger runs = new AtomicInteger();
+		HashedWheelTimer.Timeout timeout = timer.newTimeout(runs::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+
+		assertTrue(timeout.cancel());
+		assertFalse(timeout.cancel());
+		Thread.sleep(150);
+
+		assertEquals(0, runs.get());
+		assertTrue(timeout.isCancelled());
+		assertEquals(0, timer.pendingTimeouts());
+	}
+
+	@Test
+	void manyTimeoutsAllFireOnce() throws InterruptedException {
+		int count = 50_000;
+		CountDownLatch fired = new CountDownLatch(count);
+		for (int i = 0; i < count; i++) {
+			timer.newTimeout(fired::countDown, i % 200, TimeUnit.MILLISECONDS);
+		}
+
+		assertTrue(fired.await(5, TimeUnit.SECONDS));
+		assertEquals(0, timer.pendingTimeouts());
+	}
+}
@@ -0,0 +1,42 @@
+package com.example.playlistcollaborator.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+	@Test
+	void admitsBurstUpToCapacityThenRefillsAtRate() {
+		TokenBucket bucket = new TokenBucket(3, 2); // one token every 500 ms
+		long now = System.nanoTime();
+
+		assertTrue(bucket.tryAcquire(now));
+		assertTrue(bucket.tryAcquire(now));
+		assertTrue(bucket.tryAcquire(now));
+		assertFalse(bucket.tryAcquire(now));
+
+		assertFalse(bucket.tryAcquire(now + TimeUnit.MILLISECONDS.toNanos(400)));
+		assertTrue(bucket.tryAcquire(now + TimeUnit.MILLISECONDS.toNanos(500)));
+		assertFalse(bucket.tryAcquire(now + TimeUnit.MILLISECONDS.toNanos(500)));
+	}
+
+	@Test
+	void hasPermitDoesNotTakeOne() {
+		TokenBucket bucket = new TokenBucket(1, 1);
+		long now = System.nanoTime();
+
+		assertTrue(bucket.hasPermit(now));
+		assertTrue(bucket.hasPermit(now));
+		assertTrue(bucket.tryAcquire(now));
+		assertFalse(bucket.hasPermit(now));
+	}
+
+	@Test
+	void rejectsInvalidBudgets() {
+		assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1));
+		assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 0));
+	}
+}
@@ -0,0 +1,18 @@
+#!/bin/bash
+# Purpose: Starts a hot-standby streaming replica of postgres-db.
+# On first start the data directory is cloned from the primary with pg_basebackup;
+# -R writes standby.signal and primary_conninfo so later starts just resume streaming.
+set -e
+
+if [ ! -s "$PGDATA/PG_VERSION" ]; then
+    until pg_isready -h postgres-db -p 5432 -U "$REPLICATION_USER"; do
+        echo "Waiting for primary..."
+        sleep 1
+    done
+    rm -rf "${PGDATA:?}"/*
+    PGPASSWORD="$REPLICATION_PASSWORD" pg_basebackup -h postgres-db -p 5432 -U "$REPLICATION_USER" \
+        -D "$PGDATA" -X stream -R -P
+    chmod 700 "$PGDATA"
+fi
+
+exec postgres -c hot_standby=on
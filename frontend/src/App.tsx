@@ -3,8 +3,9 @@ import { Toaster, toast } from 'react-hot-toast';
 import EntryModal from './components/features/entry/EntryModal';
 import RoomView from './components/layouts/RoomView';
 import './index.css';
-import { RoomDto, CreateRoomDto, PlaylistSongDto, PlaybackStateDto } from './types/dtos';
+import { RoomDto, CreateRoomDto, PlaylistSongDto, PlaybackStateDto, RoomLeaderWsMessage } from './types/dtos';
 import { usePlaylistWebSocket } from './hooks/usePlaylistWebSocket';
+import { lastWriteHeaders, recordRoomWrite } from './lib/roomWrites';
 
 const API_BASE_URL = '/api';
 
@@ -35,6 +36,14 @@ function App() {
         setPlaybackState(newState);
     }, []);
 
+    const handleWebSocketLeaderChange = useCallback((leader: RoomLeaderWsMessage, isSelf: boolean) => {
+        // The server is the source of truth for who the DJ is; follow its election.
+        // It elects a connection, not a username, which two tabs or users may share.
+        if (leader.leaderConnectionId) {
+            setIsLeader(isSelf);
+        }
+    }, []);
+
     const {
         isConnected: isWsConnected,
         sendAddSongMessage,
@@ -48,6 +57,7 @@ function App() {
         onPlaylistUpdate: handleWebSocketSongAdded,
         onSongRemoved: handleWebSocketSongRemoved,
         onPlaybackStateUpdate: handleWebSocketPlaybackUpdate,
+        onLeaderChange: handleWebSocketLeaderChange,
     });
 
     const handleJoinOrCreate = useCallback(async (user: string, roomIdToJoin?: string) => {
@@ -60,7 +70,7 @@ function App() {
             let finalRoomData: RoomDto;
             if (roomIdToJoin) {
                 setIsLeader(false);
-                const response = await fetch(`${API_BASE_URL}/rooms/${roomIdToJoin}`);
+                const response = await fetch(`${API_BASE_URL}/rooms/${roomIdToJoin}`, { headers: lastWriteHeaders(roomIdToJoin) });
                 if (!response.ok) {
                     if (response.status === 404) throw new Error(`Room "${roomIdToJoin}" not found.`);
                     const errorData = await response.json().catch(() => ({}));
@@ -78,6 +88,7 @@ function App() {
                     throw new Error(errorData.message || `Failed to create room: ${response.statusText}`);
                 }
                 finalRoomData = await response.json() as RoomDto;
+                recordRoomWrite(finalRoomData.publicId);
                 toast.success(`New room "${finalRoomData.publicId}" created! You are the DJ.`);
             }
 
@@ -93,20 +104,20 @@ function App() {
         }
     }, []);
 
-    const handleSongEnded = useCallback((_endedSongId: string | null) => {
+    const handleSongEnded = useCallback((endedSongId: string | null) => {
         if (!isLeader) return;
 
         console.log(`[App] Leader's song ended. Requesting next song from backend.`);
-        sendNextSongRequest(username);
+        sendNextSongRequest(username, endedSongId);
     }, [isLeader, sendNextSongRequest, username]);
 
     const handleSkipSong = useCallback(() => {
         if (isLeader && playlistSongs.length > 0) {
-            sendNextSongRequest(username);
+            sendNextSongRequest(username, playlistSongs[0].id);
         } else if (!isLeader) {
             toast.error("Only the DJ can skip songs.");
         }
-    }, [isLeader, playlistSongs.length, sendNextSongRequest, username]);
+    }, [isLeader, playlistSongs, sendNextSongRequest, username]);
 
     const handleLeaveRoom = useCallback(() => {
         setCurrentRoomId(null);
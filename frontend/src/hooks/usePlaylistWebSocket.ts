@@ -1,10 +1,18 @@
 import { useState, useEffect, useCallback, useRef } from 'react';
 import { Client, IMessage, StompSubscription } from '@stomp/stompjs';
 import SockJS from 'sockjs-client';
-import { PlaylistSongDto, AddSongWsRequest, SongAddedWsMessage, SongRemovedWsMessage, PlaybackStateDto, NextSongRequestDto } from '@/types/dtos';
+import { PlaylistSongDto, AddSongWsRequest, SongAddedWsMessage, SongRemovedWsMessage, PlaybackStateDto, NextSongRequestDto, RoomLeaderWsMessage, CommandRejectedWsMessage } from '@/types/dtos';
 import toast from 'react-hot-toast';
+import { recordRoomWrite } from '@/lib/roomWrites';
 
-const WS_ENDPOINT = '/ws-playlist';
+const NATIVE_WS_ENDPOINT = '/ws-playlist-native'; // Raw WebSocket, tried first
+const WS_ENDPOINT = '/ws-playlist'; // SockJS fallback
+const STOMP_PROTOCOLS = ['v12.stomp', 'v11.stomp', 'v10.stomp'];
+
+// Random id sent on each CONNECT, so this tab can tell itself apart from others with the same username.
+// getRandomValues, unlike randomUUID, also works on plain-http deployments.
+const newConnectionId = () =>
+    Array.from(crypto.getRandomValues(new Uint32Array(4)), n => n.toString(16).padStart(8, '0')).join('');
 
 interface UsePlaylistWebSocketProps {
     roomId: string | null;
@@ -13,6 +21,7 @@ interface UsePlaylistWebSocketProps {
     onPlaylistUpdate: (newSong: PlaylistSongDto) => void;
     onSongRemoved: (removedSongId: string) => void;
     onPlaybackStateUpdate: (newState: PlaybackStateDto) => void;
+    onLeaderChange: (leader: RoomLeaderWsMessage, isSelf: boolean) => void;
 }
 
 interface UsePlaylistWebSocketReturn {
@@ -20,7 +29,7 @@ interface UsePlaylistWebSocketReturn {
     sendAddSongMessage: (youtubeVideoId: string, title: string | undefined, artist: string | undefined, username: string) => void;
     sendRemoveSongMessage: (songId: string) => void;
     sendPlaybackState: (state: Omit<PlaybackStateDto, 'triggeredBy'>) => void;
-    sendNextSongRequest: (username: string) => void;
+    sendNextSongRequest: (username: string, songId: string | null) => void;
 }
 
 export const usePlaylistWebSocket = ({
@@ -30,10 +39,23 @@ export const usePlaylistWebSocket = ({
     onPlaylistUpdate,
     onSongRemoved,
     onPlaybackStateUpdate,
+    onLeaderChange,
 }: UsePlaylistWebSocketProps): UsePlaylistWebSocketReturn => {
     const [stompClient, setStompClient] = useState<Client | null>(null);
     const [isConnected, setIsConnected] = useState<boolean>(false);
     const subscriptionsRef = useRef<StompSubscription[]>([]);
+    // Switched on once a native WebSocket fails before connecting; reconnects then go through SockJS
+    const useSockJsRef = useRef<boolean>(false);
+    const socketConnectedRef = useRef<boolean>(false);
+    const connectionIdRef = useRef<string>('');
+
+    const getNativeWsUrl = () => {
+        if (import.meta.env.DEV) {
+            return `ws://localhost:8080${NATIVE_WS_ENDPOINT}`;
+        }
+        const scheme = window.location.protocol === 'https:' ? 'wss' : 'ws';
+        return `${scheme}://${window.location.host}${NATIVE_WS_ENDPOINT}`;
+    };
 
     const getSockJsUrl = () => {
         if (import.meta.env.DEV) {
@@ -46,20 +68,42 @@ export const usePlaylistWebSocket = ({
         if (roomId && username && !stompClient) {
             console.log(`[WS] Attempting to connect to room: ${roomId}`);
             const client = new Client({
-                webSocketFactory: () => new SockJS(getSockJsUrl()),
+                webSocketFactory: () => {
+                    socketConnectedRef.current = false;
+                    if (useSockJsRef.current) {
+                        return new SockJS(getSockJsUrl());
+                    }
+                    return new WebSocket(getNativeWsUrl(), STOMP_PROTOCOLS);
+                },
                 debug: (str) => { console.log('[STOMP_DEBUG]', str); },
                 reconnectDelay: 5000,
                 heartbeatIncoming: 10000,
                 heartbeatOutgoing: 10000,
             });
 
+            // A reconnect is a new server session, so it gets a new id
+            const connectUsername = username;
+            client.beforeConnect = () => {
+                connectionIdRef.current = newConnectionId();
+                client.connectHeaders = { username: connectUsername, 'connection-id': connectionIdRef.current };
+            };
+
             client.onConnect = () => {
-                console.log(`[WS] Connected to Room ${roomId}`);
+                socketConnectedRef.current = true;
+                console.log(`[WS] Connected to Room ${roomId}${useSockJsRef.current ? ' (SockJS)' : ''}`);
                 setIsConnected(true);
                 toast.success(`Connected to room: ${roomId}`);
 
                 const newSubscriptions: StompSubscription[] = [];
 
+                // Subscribe to leader (DJ) elections made by the server
+                newSubscriptions.push(client.subscribe(`/topic/room/${roomId}/leader`, (message: IMessage) => {
+                    try {
+                        const leader = JSON.parse(message.body) as RoomLeaderWsMessage;
+                        onLeaderChange(leader, leader.leaderConnectionId === connectionIdRef.current);
+                    } catch (e) { console.error("[WS] Error parsing leader message:", e); }
+                }));
+
                 // Subscribe to new songs being added
                 newSubscriptions.push(client.subscribe(`/topic/room/${roomId}/songs`, (message: IMessage) => {
                     try {
@@ -89,6 +133,23 @@ export const usePlaylistWebSocket = ({
                     } catch (e) { console.error("[WS] Error parsing playbackState message:", e); }
                 }));
 
+                // Commands the server dropped (over the rate limit, or playback commands from a non-DJ); the connection stays open
+                newSubscriptions.push(client.subscribe('/user/queue/errors', (message: IMessage) => {
+                    try {
+                        const rejected = JSON.parse(message.body) as CommandRejectedWsMessage;
+                        toast.error(`${rejected.reason}: ${rejected.command} was not applied`);
+                    } catch (e) { console.error("[WS] Error parsing rejection message:", e); }
+                }));
+
+                // Ask for the current leader once, after the room topics above are in place:
+                // the leader broadcast for our own join can race our /leader subscription
+                newSubscriptions.push(client.subscribe(`/app/room/${roomId}/leader`, (message: IMessage) => {
+                    try {
+                        const leader = JSON.parse(message.body) as RoomLeaderWsMessage;
+                        onLeaderChange(leader, leader.leaderConnectionId === connectionIdRef.current);
+                    } catch (e) { console.error("[WS] Error parsing current leader message:", e); }
+                }));
+
                 subscriptionsRef.current = newSubscriptions;
             };
 
@@ -105,6 +166,13 @@ export const usePlaylistWebSocket = ({
                 setIsConnected(false); // It will attempt to reconnect based on 'reconnectDelay'
             };
             
+            client.onWebSocketClose = () => {
+                if (!useSockJsRef.current && !socketConnectedRef.current) {
+                    console.warn('[WS] Native WebSocket unavailable, falling back to SockJS');
+                    useSockJsRef.current = true; // Takes effect on the next reconnect attempt
+                }
+            };
+
             client.onDisconnect = () => {
                 console.log("[WS] Disconnected");
                 setIsConnected(false);
@@ -123,12 +191,13 @@ export const usePlaylistWebSocket = ({
                 setIsConnected(false);
             }
         };
-    }, [roomId, username, onPlaybackStateUpdate, onPlaylistUpdate, onSongRemoved]);
+    }, [roomId, username, onPlaybackStateUpdate, onPlaylistUpdate, onSongRemoved, onLeaderChange]);
 
     const sendAddSongMessage = useCallback((youtubeVideoId: string, title: string | undefined, artist: string | undefined, senderUsername: string) => {
         if (stompClient?.active && roomId) {
             const message: AddSongWsRequest = { youtubeVideoId, title, artist, username: senderUsername };
             stompClient.publish({ destination: `/app/room/${roomId}/addSong`, body: JSON.stringify(message) });
+            recordRoomWrite(roomId);
         }
     }, [stompClient, roomId]);
 
@@ -136,6 +205,7 @@ export const usePlaylistWebSocket = ({
         if (stompClient?.active && roomId) {
             const request = { songId: songId };
             stompClient.publish({ destination: `/app/room/${roomId}/removeSong`, body: JSON.stringify(request) });
+            recordRoomWrite(roomId);
         }
     }, [stompClient, roomId]);
 
@@ -149,10 +219,11 @@ export const usePlaylistWebSocket = ({
         }
     }, [stompClient, roomId, isLeader, username]);
 
-    const sendNextSongRequest = useCallback((senderUsername: string) => {
+    const sendNextSongRequest = useCallback((senderUsername: string, songId: string | null) => {
         if (stompClient?.active && roomId) {
-            const message: NextSongRequestDto = { username: senderUsername };
+            const message: NextSongRequestDto = { username: senderUsername, songId };
             stompClient.publish({ destination: `/app/room/${roomId}/requestNextSong`, body: JSON.stringify(message) });
+            recordRoomWrite(roomId);
             console.log('[WS] Sent requestNextSong to backend');
         }
     }, [stompClient, roomId]);
@@ -0,0 +1,24 @@
+// Remembers when this tab last changed each room. The next fetch of that room reports the age,
+// so whichever backend instance serves it reads from the primary instead of a lagging replica.
+// sessionStorage keeps it across a reload of the tab.
+
+const LAST_WRITE_HEADER = 'X-Last-Write-Age-Ms';
+
+const storageKey = (roomId: string) => `roomLastWrite:${roomId}`;
+
+export function recordRoomWrite(roomId: string): void {
+    try {
+        sessionStorage.setItem(storageKey(roomId), String(Date.now()));
+    } catch {
+        // Storage disabled: reads simply follow the backend's own routing
+    }
+}
+
+export function lastWriteHeaders(roomId: string): Record<string, string> {
+    try {
+        const writtenAt = Number(sessionStorage.getItem(storageKey(roomId)));
+        return writtenAt > 0 ? { [LAST_WRITE_HEADER]: String(Math.max(Date.now() - writtenAt, 0)) } : {};
+    } catch {
+        return {};
+    }
+}
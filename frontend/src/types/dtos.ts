@@ -5,6 +5,7 @@ export interface PlaylistSongDto {
     addedAt: string; // LocalDateTime is serialized as ISO string
     addedByUsername?: string;
     youtubeVideoId?: string;
+    durationSeconds?: number | null; // From YouTube; drives server-side auto-advance
 }
 
 export interface RoomDto {
@@ -31,6 +32,7 @@ export interface AddSongWsRequest {
     title?: string;
     artist?: string;
     username: string;
+    durationSeconds?: number; // With title and artist, lets the server skip its YouTube lookup
 }
 
 export interface RemoveSongWsRequest {
@@ -62,4 +64,17 @@ export interface NextSongWsMessage {
 
 export interface NextSongRequestDto {
     username: string;
-}
\ No newline at end of file
+    songId?: string | null; // Song the client believes is playing; the server ignores stale requests
+}
+
+export interface RoomLeaderWsMessage {
+    leaderUsername: string | null; // Username of the session the server elected as DJ
+    leaderConnectionId: string | null; // Connection id that session sent on CONNECT; usernames need not be unique
+    listenerCount: number;
+}
+
+export interface CommandRejectedWsMessage {
+    command: string; // e.g. "addSong"
+    roomId: string;
+    reason: string;
+}